@@ -0,0 +1,502 @@
+/*****************************
+ *
+ * CLASS:   ACSbench
+ * DATE :   10/16/2026
+ * Purpose: Benchmarks for the extractor. Build and run with
+ *            ant bench
+ *            ant bench -Dbench.args="filter=deMorgan time=2000"
+ *
+ *          Each benchmark is warmed up, then timed over several
+ *          iterations. For each one it prints the mean time per
+ *          operation with its spread, the bytes allocated per operation,
+ *          and the garbage collections and GC time during the timed part.
+ *          Allocation is measured on the benchmark thread only, so the
+ *          end-to-end runs don't count what the writer thread allocates.
+ *
+ *          Benchmarks:
+ *            readToken       - tokens read through ACSparser.readToken
+ *            parse           - a generated routine of n statements read into
+ *                              a tree, without making any rules
+ *            parse or-chain  - one IF with n job names ORed together inline
+ *            ANDconditions   - two lists of n conditions
+ *            deMorgan        - NOT of a list of n two-pair conditions
+ *            addPair         - a condition with n pairs
+ *            toCSV           - one rule row with n columns
+ *            filtlist        - a name against a FILTLIST of n entries, compiled
+ *            filtlist scan   - the same, trying every entry in turn
+ *            extract         - whole runs of ACSDemo.txt, ACSDemo2.txt
+ *                              and generated routines of n statements
+ *            extract numbered - a generated routine with sequence numbers,
+ *                              found by the 8 digit guess
+ *            extract fb80    - the same, blanked out by the lexer as it loads
+ *            extract ebcdic  - the generated routine in IBM-1047, decoded
+ *                              by the lexer's byte table
+ *            classify        - one data set against the rules of a generated
+ *                              routine of n statements, with the compiled tree
+ *            classify scan   - the same, trying every row of every rule.
+ *                              Both are checked to give the same answers first.
+ *            classify noexit - both again, with the EXITs taken out of the
+ *                              routine, so that every rule has to be looked at
+ *            dcollect record - a data set classified straight from a DCOLLECT
+ *                              record, decoding only what the rules test
+ *            csv line        - the same data set from a CSV line, as classify
+ *                              and simulate read it
+ *
+ *          The benchmark classes live in the default package with the
+ *          rest of the extractor so they can reach its protected methods.
+ *
+ * Options:
+ *   - filter=regex  : only run benchmarks whose name matches
+ *   - warmup=ms     : warm up time for each benchmark (default 1000)
+ *   - iterations=n  : timed iterations (default 5)
+ *   - time=ms       : length of each iteration (default 1000)
+ *   - demo=dir      : where ACSDemo.txt and ACSDemo2.txt are (default .)
+ *
+ *****************************/
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+public class ACSbench {
+
+	// One benchmark operation. The result is kept so the work can't be optimized away.
+	protected interface Op {
+		public Object run() throws Exception;
+	}
+
+	// Options
+	protected String filter = ".*";
+	protected long warmupMillis = 1000;
+	protected int iterations = 5;
+	protected long iterationMillis = 1000;
+	protected String demoDir = ".";
+
+	// Results end up here, so the JIT has to compute them
+	public static volatile Object sink;
+
+	protected File tmpDir;
+
+	// MAIN proc
+	public static void main( String[] argz ) throws Exception {
+		ACSbench b = new ACSbench();
+		for( String a : argz ) {
+			if( a.startsWith("filter=") ) b.filter = a.substring(7);
+			else if( a.startsWith("warmup=") ) b.warmupMillis = Long.parseLong( a.substring(7) );
+			else if( a.startsWith("iterations=") ) b.iterations = Integer.parseInt( a.substring(11) );
+			else if( a.startsWith("time=") ) b.iterationMillis = Long.parseLong( a.substring(5) );
+			else if( a.startsWith("demo=") ) b.demoDir = a.substring(5);
+			else System.out.println( "Unknown option: "+a+"... Moving on." );
+		}
+		b.runAll();
+	}
+
+	// runAll
+	// Runs every benchmark that matches the filter
+	public void runAll() throws Exception {
+		this.tmpDir = Files.createTempDirectory( "acsbench" ).toFile();
+		System.out.println( String.format( Locale.ROOT, "%-28s %14s %12s %14s %6s %9s",
+		                                   "Benchmark", "ns/op", "+-", "B/op", "GCs", "GC ms" ) );
+
+		// Tokenizer
+		for( int n : new int[] { 100, 1000 } ) {
+			char[] src = generate( n ).toCharArray();
+			this.bench( "readToken", n, () -> {
+				ACSparser p = new ACSparser( new ACSlexer( src.clone(), src.length ), this.extractor() );
+				int count = 0;
+				while( p.readToken() != null ) count++;
+				return count;
+			} );
+		}
+		for( int n : new int[] { 100, 1000 } ) {
+			char[] src = generate( n ).toCharArray();
+			this.bench( "parse", n, () -> new ACSparser( new ACSlexer( src.clone(), src.length ), this.extractor() ).parse() );
+		}
+		for( int n : new int[] { 100, 1000, 10000 } ) {
+			char[] src = orChain( n ).toCharArray();
+			this.bench( "parse or-chain", n, () -> new ACSparser( new ACSlexer( src.clone(), src.length ), this.extractor() ).parse() );
+		}
+
+		// Condition algebra
+		for( int n : new int[] { 1, 4, 16, 64 } ) {
+			ACSextract ex = this.extractor();
+			LinkedList<ACScondition> l1 = conditions( ex.pairTable, "&DSN", n, 2 );
+			LinkedList<ACScondition> l2 = conditions( ex.pairTable, "&UNIT", n, 2 );
+			this.bench( "ANDconditions", n, () -> ex.ANDconditions( l1, l2 ) );
+		}
+		for( int n : new int[] { 2, 4, 8, 12 } ) {
+			ACSextract ex = this.extractor();
+			LinkedList<ACScondition> l = conditions( ex.pairTable, "&DSN", n, 2 );
+			this.bench( "deMorgan", n, () -> ex.deMorgan( l ) );
+		}
+		for( int n : new int[] { 4, 16, 64, 256 } ) {
+			ACSpairTable t = new ACSpairTable();
+			ACSpair[] pairs = new ACSpair[n];
+			for( int i=0; i<n; i++ ) pairs[i] = t.intern( "&V"+(i%8), ACSoperator.EQ, "'X"+i+"'" );
+			this.bench( "addPair", n, () -> {
+				ACScondition c = new ACScondition( t );
+				for( ACSpair p : pairs ) c.addPair( p );
+				return c;
+			} );
+		}
+
+		// Rendering
+		for( int n : new int[] { 4, 16, 64 } ) {
+			ACSpairTable t = new ACSpairTable();
+			LinkedList<String> vars = new LinkedList<String>();
+			ACScondition c = new ACScondition( t );
+			for( int i=0; i<n; i++ ) {
+				vars.add( "&V"+i );
+				c.addPair( t.intern( "&V"+i, ACSoperator.EQ_SYM, "'VALUE"+i+"'" ) );
+			}
+			ACSrule r = new ACSrule( t );
+			r.setSetValue( "'SC1'" );
+			this.bench( "toCSV", n, () -> r.toCSV( c, vars ) );
+		}
+
+		// Matching names
+		for( int n : new int[] { 10, 100, 1000 } ) {
+			LinkedList<String> inc = new LinkedList<String>();
+			for( int j=0; j<n; j++ ) inc.add( ACSevaluator.unquote( new ACSgenerate().mask( 1000+j ) ) );
+			LinkedList<String> exc = new LinkedList<String>();
+			exc.add( ACSevaluator.unquote( new ACSgenerate().mask( 1000+2*n ) ) );
+			ACSmatcher m = new ACSmatcher( inc, exc );
+			List<String> names = names( inc, 1024, n );
+			for( String v : names ) {
+				if( m.matches( v ) != scanList( inc, exc, v ) ) throw new IllegalStateException( "Matcher and scan disagree on "+v );
+			}
+			int[] next = new int[1];
+			this.bench( "filtlist", n, () -> m.matches( names.get( next[0]++ & 1023 ) ) );
+			this.bench( "filtlist scan", n, () -> scanList( inc, exc, names.get( next[0]++ & 1023 ) ) );
+		}
+
+		// End to end
+		for( String demo : new String[] { "ACSDemo.txt", "ACSDemo2.txt" } ) {
+			File in = new File( this.demoDir, demo );
+			if( !in.exists() ) {
+				System.out.println( "Skipping "+demo+", not found in "+this.demoDir+". Use demo=dir." );
+				continue;
+			}
+			this.bench( "extract "+demo, 0, () -> this.extract( in.getPath() ) );
+		}
+		for( int n : new int[] { 100, 1000, 10000 } ) {
+			File in = new File( this.tmpDir, "gen"+n+".txt" );
+			try( FileWriter w = new FileWriter( in ) ) {
+				w.write( generate( n ) );
+			}
+			this.bench( "extract generated", n, () -> this.extract( in.getPath() ) );
+			File eb = new File( this.tmpDir, "ebc"+n+".txt" );
+			try( OutputStream w = new FileOutputStream( eb ) ) {
+				w.write( generate( n ).getBytes( "IBM1047" ) );
+			}
+			this.bench( "extract ebcdic", n, () -> this.extract( eb.getPath(), "ebcdic" ) );
+		}
+		for( int n : new int[] { 100, 1000 } ) {
+			File in = new File( this.tmpDir, "nest"+n+".txt" );
+			try( FileWriter w = new FileWriter( in ) ) {
+				w.write( nest( n ) );
+			}
+			this.bench( "extract nest", n, () -> this.extract( in.getPath() ) );
+		}
+		for( int n : new int[] { 100, 1000, 10000 } ) {
+			File in = new File( this.tmpDir, "num"+n+".txt" );
+			try( FileWriter w = new FileWriter( in ) ) {
+				w.write( generate( n, "linenums" ) );
+			}
+			this.bench( "extract numbered", n, () -> this.extract( in.getPath() ) );
+			this.bench( "extract fb80", n, () -> this.extract( in.getPath(), "fb80" ) );
+		}
+
+		// Evaluating rules
+		for( String kind : new String[] { "", " noexit" } ) {
+			for( int n : new int[] { 100, 1000 } ) {
+				File in = new File( this.tmpDir, "gen"+n+".txt" );
+				try( FileWriter w = new FileWriter( in ) ) {
+					String gen = generate( n );
+					w.write( kind.length() == 0 ? gen : gen.replaceAll( "(?m)^[ \\t]*EXIT[ \\t]*\\n", "" ) );
+				}
+				ACSevaluator ev = ACSclassify.compile( in.getPath(), new String[0] );
+				List<java.util.Map<String,String>> sets = datasets( 1024, n );
+				for( java.util.Map<String,String> a : sets ) {
+					if( ev.match( a ) != ev.scan( a ) ) throw new IllegalStateException( "Tree and scan disagree on "+a );
+				}
+				int[] next = new int[1];
+				this.bench( "classify"+kind, n, () -> ev.match( sets.get( next[0]++ & 1023 ) ) );
+				this.bench( "classify"+kind+" scan", n, () -> ev.scan( sets.get( next[0]++ & 1023 ) ) );
+			}
+		}
+
+		// Reading inventories: the same data sets as DCOLLECT records and as CSV lines
+		{
+			File in = new File( this.tmpDir, "gen100.txt" );
+			try( FileWriter w = new FileWriter( in ) ) {
+				w.write( generate( 100 ) );
+			}
+			ACSevaluator ev = ACSclassify.compile( in.getPath(), new String[0] );
+			List<java.util.Map<String,String>> sets = datasets( 1024, 100 );
+			java.nio.ByteBuffer buf = java.nio.ByteBuffer.allocateDirect( 1024*( ACSdcollect.DLENGTH+8 ) );
+			int[] offsets = new int[1024];
+			String[] vars = ACSdcollect.VARIABLES.toArray( new String[0] );
+			String[] lines = new String[1024];
+			ACSdcollect.Record rec = new ACSdcollect.Record();
+			java.util.HashMap<String,String> attrs = new java.util.HashMap<String,String>();
+			for( int i=0; i<1024; i++ ) {
+				offsets[i] = buf.position();
+				buf.put( dcollect( sets.get(i) ) );
+				rec.set( buf, offsets[i] );
+				StringBuilder line = new StringBuilder();
+				for( String v : vars ) line.append( line.length() > 0 ? "," : "" ).append( ACSclassify.quote( rec.get( v ) ) );
+				lines[i] = line.toString();
+				if( ev.matchRule( rec ) != ACSclassify.classifyLine( ev, vars, lines[i], attrs ) ) {
+					throw new IllegalStateException( "DCOLLECT and CSV disagree on "+lines[i] );
+				}
+			}
+			int[] next = new int[1];
+			this.bench( "dcollect record", 100, () -> ev.matchRule( rec.set( buf, offsets[next[0]++ & 1023] ) ) );
+			this.bench( "csv line", 100, () -> ACSclassify.classifyLine( ev, vars, lines[next[0]++ & 1023], attrs ) );
+		}
+
+		// Clean up
+		File[] left = this.tmpDir.listFiles();
+		if( left != null ) for( File f : left ) f.delete();
+		this.tmpDir.delete();
+	}
+
+	// bench
+	// Warms up one benchmark, times it and prints a line of results
+	protected void bench( String name, int param, Op op ) throws Exception {
+		String label = param > 0 ? name+" ("+param+")" : name;
+		if( !label.matches( this.filter ) && !name.matches( this.filter ) ) return;
+
+		// Warm up
+		long end = System.nanoTime()+this.warmupMillis*1000000L;
+		while( System.nanoTime() < end ) sink = op.run();
+
+		// Timed iterations
+		double[] nsPerOp = new double[this.iterations];
+		long ops = 0;
+		long bytes0 = allocated();
+		long gc0 = gcCount(), gcTime0 = gcMillis();
+		for( int i=0; i<this.iterations; i++ ) {
+			long n = 0;
+			long start = System.nanoTime();
+			long stop = start+this.iterationMillis*1000000L;
+			long now;
+			do {
+				sink = op.run();
+				n++;
+			} while( (now = System.nanoTime()) < stop );
+			nsPerOp[i] = (double)(now-start)/n;
+			ops += n;
+		}
+		long bytes = bytes0 < 0 ? -1 : allocated()-bytes0;
+		long gcs = gcCount()-gc0;
+		long gcTime = gcMillis()-gcTime0;
+
+		// Mean and spread
+		double mean = 0;
+		for( double d : nsPerOp ) mean += d;
+		mean /= nsPerOp.length;
+		double var = 0;
+		for( double d : nsPerOp ) var += (d-mean)*(d-mean);
+		double sd = nsPerOp.length > 1 ? Math.sqrt( var/(nsPerOp.length-1) ) : 0;
+
+		System.out.println( String.format( Locale.ROOT, "%-28s %14.1f %12.1f %14s %6d %9d",
+		                                   label, mean, sd, bytes < 0 ? "n/a" : String.valueOf( bytes/ops ), gcs, gcTime ) );
+	}
+
+	// extractor
+	// An extractor with nothing open, for calling its pieces directly
+	protected ACSextract extractor() {
+		ACSextract ex = new ACSextract();
+		ex.pairTable = new ACSpairTable();
+		ex.variableList = new LinkedList<String>();
+		ex.conditionStack = new java.util.Stack<LinkedList<ACScondition>>();
+		ex.stats = new ACSstats();
+		return ex;
+	}
+
+	// extract
+	// One full run, the same as batch mode does it
+	protected Object extract( String in, String... options ) throws IOException {
+		String out = new File( this.tmpDir, "out.csv" ).getPath();
+		ACSextract ex = new ACSextract( in, out, options );
+		ex.run();
+		return ex.getRowCount();
+	}
+
+	// conditions
+	// Builds n conditions joined by OR, each with the given number of pairs
+	protected static LinkedList<ACScondition> conditions( ACSpairTable t, String var, int n, int pairs ) {
+		LinkedList<ACScondition> toRet = new LinkedList<ACScondition>();
+		for( int i=0; i<n; i++ ) {
+			ACScondition c = new ACScondition( t );
+			for( int j=0; j<pairs; j++ ) c.addPair( t.intern( var+"("+(j+1)+")", ACSoperator.EQ, "'V"+i+"'" ) );
+			toRet.add( c );
+		}
+		return toRet;
+	}
+
+	// generate
+	// A generated STORCLAS routine of n statements, two levels deep. See ACSgenerate.
+	protected static String generate( int n, String... options ) {
+		ACSgenerate g = new ACSgenerate();
+		g.setOption( "statements="+n );
+		g.setOption( "depth=2" );
+		for( String o : options ) g.setOption( o );
+		return g.generate();
+	}
+
+	// orChain
+	// One IF testing &JOB against n job names, ORed together on a line each,
+	// as a job list written inline instead of in a FILTLIST. Every fourth
+	// name also checks &DSORG, so AND and OR are mixed without parentheses.
+	protected static String orChain( int n ) {
+		StringBuilder sb = new StringBuilder( "PROC STORCLAS\n IF " );
+		for( int i=0; i<n; i++ ) {
+			if( i > 0 ) sb.append( "\n  OR " );
+			sb.append( String.format( Locale.ROOT, "&JOB = 'J%07d'", i ) );
+			if( i % 4 == 3 ) sb.append( " AND &DSORG = 'PS'" );
+		}
+		sb.append( "\n THEN SET &STORCLAS = 'BATCH'\nEND\n" );
+		return sb.toString();
+	}
+
+	// nest
+	// n SETs under the same three IFs, each testing &DSN against eight
+	// masks ORed together, so every SET has 512 rows to multiply out
+	// above its own test.
+	protected static String nest( int n ) {
+		StringBuilder sb = new StringBuilder( "PROC STORCLAS\n" );
+		for( int d=0; d<3; d++ ) {
+			sb.append( " IF " );
+			for( int i=0; i<8; i++ ) {
+				if( i > 0 ) sb.append( " OR " );
+				sb.append( String.format( Locale.ROOT, "&DSN = 'L%d.M%d.**'", d, i ) );
+			}
+			sb.append( " THEN DO\n" );
+		}
+		for( int i=0; i<n; i++ ) {
+			sb.append( String.format( Locale.ROOT, "  IF &JOB = 'J%07d' THEN SET &STORCLAS = 'S%d'\n", i, i % 10 ) );
+		}
+		for( int d=0; d<3; d++ ) sb.append( " END\n" );
+		sb.append( "END\n" );
+		return sb.toString();
+	}
+
+	// datasets
+	// Random attributes for the variables ACSgenerate tests, drawn from the
+	// values it uses, so that some rules match. Masks are filled in.
+	protected static List<java.util.Map<String,String>> datasets( int count, long seed ) {
+		java.util.Random rand = new java.util.Random( seed );
+		ACSgenerate g = new ACSgenerate();
+		LinkedList<java.util.Map<String,String>> toRet = new LinkedList<java.util.Map<String,String>>();
+		for( int i=0; i<count; i++ ) {
+			java.util.HashMap<String,String> a = new java.util.HashMap<String,String>();
+			for( int v=0; v<ACSgenerate.VARIABLES.length; v++ ) {
+				String val;
+				if( ACSgenerate.KINDS[v] == ACSgenerate.NUMBER ) {
+					val = String.valueOf( rand.nextInt( 250 ) )+ACSgenerate.UNITS[rand.nextInt( ACSgenerate.UNITS.length )];
+				} else {
+					val = ACSevaluator.unquote( g.literal( v, rand.nextInt( g.values ) ) );
+					val = val.replace( "**", "Q1.Q2" ).replace( "*", "Q3" ).replace( "%", "1" );
+				}
+				a.put( ACSgenerate.VARIABLES[v], val );
+			}
+			toRet.add( a );
+		}
+		return new java.util.ArrayList<java.util.Map<String,String>>( toRet );
+	}
+
+	// dcollect
+	// A DCOLLECT D record for a set of attributes, with its record descriptor word.
+	// Only the fields ACSdcollect reads are filled in.
+	protected static byte[] dcollect( java.util.Map<String,String> a ) {
+		java.nio.ByteBuffer b = java.nio.ByteBuffer.allocate( ACSdcollect.DLENGTH+8 );
+		b.putShort( 0, (short)b.capacity() );
+		ebcdic( b, ACSdcollect.TYPE, "D ", 2 );
+		ebcdic( b, ACSdcollect.DSNAM, a.getOrDefault( "&DSN", "" ), 44 );
+		String org = a.getOrDefault( "&DSORG", "" );
+		b.put( ACSdcollect.DSORG, (byte)( org.equals("PS") ? 0x40 : org.equals("PO") ? 0x02 : org.equals("DA") ? 0x20 : org.equals("IS") ? 0x80 : 0 ) );
+		b.put( ACSdcollect.DSORG+1, (byte)( org.equals("VS") ? 0x08 : 0 ) );
+		b.put( ACSdcollect.RECFM, (byte)0x90 );
+		ebcdic( b, ACSdcollect.VOLSR, "VOL001", 6 );
+		b.putShort( ACSdcollect.BKLNG, (short)27920 );
+		b.putInt( ACSdcollect.ALLSP, (int)Math.max( ACSevaluator.kilobytes( a.getOrDefault( "&SIZE", "" ) ), 0 ) );
+		String[] names = { "&DATACLAS", "&STORCLAS", "&MGMTCLAS", "&STORGRP" };
+		int[] at = { ACSdcollect.DATCL, ACSdcollect.STGCL, ACSdcollect.MGTCL, ACSdcollect.STGRP };
+		for( int i=0; i<names.length; i++ ) {
+			String v = a.getOrDefault( names[i], "" );
+			b.putShort( at[i], (short)v.length() );
+			ebcdic( b, at[i]+2, v, 30 );
+		}
+		return b.array();
+	}
+
+	// ebcdic
+	// Writes a field in EBCDIC, padded with blanks
+	protected static void ebcdic( java.nio.ByteBuffer b, int at, String v, int len ) {
+		for( int i=0; i<len; i++ ) {
+			char c = i < v.length() ? v.charAt(i) : ' ';
+			int code = 0x40;
+			for( int e=0; e<256; e++ ) if( ACSdcollect.EBCDIC[e] == c ) code = e;
+			b.put( at+i, (byte)code );
+		}
+	}
+
+	// names
+	// Names for a list of entries: half of them fit a random entry, with
+	// any wildcards filled in, and half are near misses
+	protected static List<String> names( List<String> entries, int count, long seed ) {
+		java.util.Random rand = new java.util.Random( seed );
+		java.util.ArrayList<String> toRet = new java.util.ArrayList<String>();
+		for( int i=0; i<count; i++ ) {
+			String e = entries.get( rand.nextInt( entries.size() ) );
+			e = e.replace( "**", "Q1.Q2" ).replace( "*", "Q3" ).replace( "%", "1" );
+			toRet.add( rand.nextBoolean() ? e : e+"X" );
+		}
+		return toRet;
+	}
+
+	// scanList
+	// A FILTLIST the simple way: every entry in turn, masks by backtracking
+	protected static boolean scanList( List<String> inc, List<String> exc, String v ) {
+		boolean in = inc.isEmpty();
+		for( String e : inc ) if( ACSmask.isMask( e ) ? ACSmask.backtrack( e, 0, v, 0 ) : e.equals( v ) ) in = true;
+		if( !in ) return false;
+		for( String e : exc ) if( ACSmask.isMask( e ) ? ACSmask.backtrack( e, 0, v, 0 ) : e.equals( v ) ) return false;
+		return true;
+	}
+
+	// allocated
+	// Bytes allocated by this thread so far, or -1 if the JVM can't tell
+	protected static long allocated() {
+		java.lang.management.ThreadMXBean tb = ManagementFactory.getThreadMXBean();
+		if( tb instanceof com.sun.management.ThreadMXBean ) {
+			return ((com.sun.management.ThreadMXBean)tb).getThreadAllocatedBytes( Thread.currentThread().getId() );
+		}
+		return -1;
+	}
+
+	// gcCount / gcMillis
+	// Totals over every collector
+	protected static long gcCount() {
+		long toRet = 0;
+		List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+		for( GarbageCollectorMXBean g : gcs ) toRet += Math.max( 0, g.getCollectionCount() );
+		return toRet;
+	}
+
+	protected static long gcMillis() {
+		long toRet = 0;
+		for( GarbageCollectorMXBean g : ManagementFactory.getGarbageCollectorMXBeans() ) toRet += Math.max( 0, g.getCollectionTime() );
+		return toRet;
+	}
+}
@@ -0,0 +1,223 @@
+/*****************************
+ *
+ * CLASS:   ACSscaling
+ * DATE :   10/16/2026
+ * Purpose: Checks that the extractor's cost grows linearly with its input.
+ *          Build and run with
+ *            ant scaling
+ *            ant scaling -Dscaling.args="filter=statements reps=5"
+ *
+ *          Each dimension runs routines of 1x, 2x, 4x and 8x a base size,
+ *          with everything else fixed, and fits a line through log(size)
+ *          and log(cost). The slope is the power the cost grows by: about
+ *          1 for linear growth and 2 for quadratic. The run fails if any
+ *          slope is over the limit. The limit leaves room for noise from
+ *          the garbage collector and caches, and the ant target runs with
+ *          a fixed heap so collections don't depend on how the heap grew.
+ *
+ *          Dimensions:
+ *            statements - copies of the same generated statements, so
+ *                         the nesting and the work per statement stay
+ *                         fixed. Checks total time and allocation.
+ *            filtlist   - entries in each FILTLIST. Checks parse time and
+ *                         allocation.
+ *            variables  - distinct variables tested, as &DSN(1), &DSN(2)...
+ *                         Every row has a column for each variable, so the
+ *                         IFs only WRITE and there is one SET at the end.
+ *                         Checks parse time and allocation.
+ *
+ *          Times come from ACSstats and allocation is counted on the
+ *          extracting thread, so the writer thread isn't included. The
+ *          smallest routine is run over and over first to warm up the JIT,
+ *          then each size is run several times and the fastest run is used.
+ *
+ * Options:
+ *   - filter=regex  : only run dimensions whose name matches
+ *   - reps=n        : runs of each size (default 5)
+ *   - warmup=ms     : warm up time for each dimension (default 3000)
+ *   - limit=x       : largest slope allowed (default 1.5)
+ *   - scale=x       : multiplies every base size (default 1)
+ *
+ *****************************/
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Locale;
+
+public class ACSscaling {
+
+	// Size multipliers for each dimension
+	public static final int[] FACTORS = { 1, 2, 4, 8 };
+
+	// What is measured for each run
+	public static final int TOTAL = 0;
+	public static final int PARSE = 1;
+	public static final int ALLOC = 2;
+	public static final String[] MEASURES = { "total ms", "parse ms", "alloc MB" };
+
+	// Options
+	protected String filter = ".*";
+	protected int reps = 5;
+	protected long warmupMillis = 3000;
+	protected double limit = 1.5;
+	protected double scale = 1;
+
+	protected File tmpDir;
+	protected int failures;
+
+	// MAIN proc. Exits with 1 if any dimension grows faster than the limit.
+	public static void main( String[] argz ) throws Exception {
+		ACSscaling s = new ACSscaling();
+		for( String a : argz ) {
+			if( a.startsWith("filter=") ) s.filter = a.substring(7);
+			else if( a.startsWith("reps=") ) s.reps = Integer.parseInt( a.substring(5) );
+			else if( a.startsWith("warmup=") ) s.warmupMillis = Long.parseLong( a.substring(7) );
+			else if( a.startsWith("limit=") ) s.limit = Double.parseDouble( a.substring(6) );
+			else if( a.startsWith("scale=") ) s.scale = Double.parseDouble( a.substring(6) );
+			else System.out.println( "Unknown option: "+a+"... Moving on." );
+		}
+		s.runAll();
+		if( s.failures > 0 ) {
+			System.out.println( s.failures+" measure(s) grew faster than n^"+s.limit+"." );
+			System.exit(1);
+		}
+		System.out.println( "All measures grew no faster than n^"+s.limit+"." );
+	}
+
+	// runAll
+	// Runs every dimension that matches the filter
+	public void runAll() throws Exception {
+		this.tmpDir = Files.createTempDirectory( "acsscaling" ).toFile();
+		try {
+			int copy = 250;
+			this.dimension( "statements", (int)( 2*copy*this.scale ), new int[] { TOTAL, ALLOC }, n -> {
+				ACSgenerate g = new ACSgenerate();
+				g.setOption( "statements="+copy );
+				g.setOption( "repeat="+n/copy );
+				g.setOption( "depth=2" );
+				g.setOption( "width=3" );
+				g.setOption( "fanout=2" );
+				return g.generate();
+			} );
+			this.dimension( "filtlist", (int)( 50000*this.scale ), new int[] { PARSE, ALLOC }, n -> {
+				ACSgenerate g = new ACSgenerate();
+				g.setOption( "statements=20" );
+				g.setOption( "filtsize="+n );
+				return g.generate();
+			} );
+			this.dimension( "variables", (int)( 16000*this.scale ), new int[] { PARSE, ALLOC }, n -> variables( n ) );
+		} finally {
+			File[] left = this.tmpDir.listFiles();
+			if( left != null ) for( File f : left ) f.delete();
+			this.tmpDir.delete();
+		}
+	}
+
+	// Makes the routine for one size of a dimension
+	protected interface Routine {
+		public String make( int n );
+	}
+
+	// dimension
+	// Runs one dimension at each size, then fits and checks the given measures
+	protected void dimension( String name, int base, int[] checks, Routine r ) throws IOException {
+		if( !name.matches( this.filter ) ) return;
+		System.out.println( "Dimension "+name+", base size "+base );
+
+		// Write the routines
+		File[] in = new File[FACTORS.length];
+		for( int i=0; i<FACTORS.length; i++ ) {
+			in[i] = new File( this.tmpDir, name+FACTORS[i]+".txt" );
+			try( FileWriter w = new FileWriter( in[i] ) ) {
+				w.write( r.make( base*FACTORS[i] ) );
+			}
+		}
+
+		// Warm up on the smallest, then keep the best of reps
+		long end = System.nanoTime()+this.warmupMillis*1000000L;
+		while( System.nanoTime() < end ) this.measure( in[0] );
+		double[][] best = new double[MEASURES.length][FACTORS.length];
+		for( double[] b : best ) java.util.Arrays.fill( b, Double.MAX_VALUE );
+		for( int rep=0; rep<this.reps; rep++ ) {
+			for( int i=0; i<FACTORS.length; i++ ) {
+				double[] m = this.measure( in[i] );
+				for( int k=0; k<m.length; k++ ) best[k][i] = Math.min( best[k][i], m[k] );
+			}
+		}
+
+		// Print the table and check each slope
+		StringBuilder s = new StringBuilder( String.format( Locale.ROOT, "  %-10s", "size" ) );
+		for( int f : FACTORS ) s.append( String.format( Locale.ROOT, " %10d", base*f ) );
+		s.append( String.format( Locale.ROOT, " %8s", "slope" ) );
+		System.out.println( s );
+		for( int k : checks ) {
+			double slope = slope( best[k] );
+			boolean ok = slope <= this.limit;
+			s.setLength(0);
+			s.append( String.format( Locale.ROOT, "  %-10s", MEASURES[k] ) );
+			for( double v : best[k] ) s.append( String.format( Locale.ROOT, " %10.2f", v ) );
+			s.append( String.format( Locale.ROOT, " %8.2f", slope ) );
+			if( !ok ) {
+				s.append( "  FAILED" );
+				this.failures++;
+			}
+			System.out.println( s );
+		}
+	}
+
+	// measure
+	// Extracts one routine and returns the total time, parse time and allocation
+	protected double[] measure( File in ) throws IOException {
+		String out = new File( this.tmpDir, "out.csv" ).getPath();
+		long bytes = allocated();
+		long start = System.nanoTime();
+		ACSextract ex = new ACSextract( in.getPath(), out, new String[0] );
+		ex.run();
+		double total = ( System.nanoTime()-start )/1e6;
+		double alloc = ( allocated()-bytes )/1048576.0;
+		return new double[] { total, ex.stats.parseNanos/1e6, alloc };
+	}
+
+	// slope
+	// Least squares slope of log(value) against log(factor)
+	protected static double slope( double[] v ) {
+		int n = v.length;
+		double sx = 0, sy = 0, sxx = 0, sxy = 0;
+		for( int i=0; i<n; i++ ) {
+			double x = Math.log( FACTORS[i] );
+			double y = Math.log( Math.max( v[i], 1e-6 ) );
+			sx += x;
+			sy += y;
+			sxx += x*x;
+			sxy += x*y;
+		}
+		return ( n*sxy-sx*sy )/( n*sxx-sx*sx );
+	}
+
+	// variables
+	// A routine that tests n variables, &DSN(1) to &DSN(n), 10 to an IF
+	protected static String variables( int n ) {
+		StringBuilder s = new StringBuilder( "PROC STORCLAS\n" );
+		for( int i=1; i<=n; i++ ) {
+			s.append( i % 10 == 1 ? "IF " : "  AND " );
+			s.append( "&DSN(" ).append( i ).append( ") = 'Q" ).append( i ).append( "'" );
+			if( i % 10 == 0 || i == n ) s.append( " THEN WRITE 'Q" ).append( i ).append( "'" );
+			s.append( "\n" );
+		}
+		s.append( "SET &STORCLAS = 'SC1'\n" );
+		s.append( "END\n" );
+		return s.toString();
+	}
+
+	// allocated
+	// Bytes allocated by this thread so far, or 0 if the JVM can't tell
+	protected static long allocated() {
+		java.lang.management.ThreadMXBean tb = ManagementFactory.getThreadMXBean();
+		if( tb instanceof com.sun.management.ThreadMXBean ) {
+			return ((com.sun.management.ThreadMXBean)tb).getThreadAllocatedBytes( Thread.currentThread().getId() );
+		}
+		return 0;
+	}
+}
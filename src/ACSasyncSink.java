@@ -0,0 +1,115 @@
+/*****************************
+ *
+ * CLASS:   ACSasyncSink
+ * DATE :   10/16/2026
+ * Purpose: Hands output to another sink on a separate writer thread.
+ *          Each call is put on a bounded queue and returns straight
+ *          away, so parsing doesn't wait on the console or the disk
+ *          unless the writer falls a whole queue behind.
+ *
+ *          Rules and rows must not change once they are passed in.
+ *          ACSextract only passes rules that are finished.
+ *
+ *          If the writer hits an error, the next call (or close)
+ *          throws it back to the caller.
+ *
+ *****************************/
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+public class ACSasyncSink implements ACSsink {
+
+	// Default number of calls that can be waiting for the writer
+	public static final int QUEUE_SIZE = 4096;
+
+	// One call to make on the real sink
+	protected interface Event {
+		public void apply( ACSsink s ) throws IOException;
+	}
+
+	// Tells the writer to stop
+	protected static final Event STOP = s -> { };
+
+	protected ACSsink target;
+	protected ArrayBlockingQueue<Event> queue;
+	protected Thread writer;
+	protected volatile IOException failure;
+
+	// Constructor
+	// Starts the writer thread
+	public ACSasyncSink( ACSsink t ) {
+		this( t, QUEUE_SIZE );
+	}
+
+	public ACSasyncSink( ACSsink t, int size ) {
+		this.target = t;
+		this.queue = new ArrayBlockingQueue<Event>( size );
+		this.writer = new Thread( this::drain, "ACSwriter" );
+		this.writer.setDaemon( true );
+		this.writer.start();
+	}
+
+	// drain
+	// The writer thread. Runs each call in order until STOP.
+	// After an error, the rest are thrown away so the caller never blocks.
+	protected void drain() {
+		try {
+			while( true ) {
+				Event e = this.queue.take();
+				if( e == STOP ) return;
+				if( this.failure != null ) continue;
+				try {
+					e.apply( this.target );
+				} catch( IOException ex ) {
+					this.failure = ex;
+				}
+			}
+		} catch( InterruptedException ex ) {
+			this.failure = new IOException( "Output writer interrupted.", ex );
+		}
+	}
+
+	// send
+	// Queues a call for the writer
+	protected void send( Event e ) throws IOException {
+		if( this.failure != null ) throw this.failure;
+		try {
+			this.queue.put( e );
+		} catch( InterruptedException ex ) {
+			Thread.currentThread().interrupt();
+			throw new IOException( "Interrupted writing output.", ex );
+		}
+	}
+
+	public void header( String procName, List<String> variables ) throws IOException {
+		this.send( s -> s.header( procName, variables ) );
+	}
+
+	public void row( ACSrule rule, ACScondition row ) throws IOException {
+		this.send( s -> s.row( rule, row ) );
+	}
+
+	public void endRows() throws IOException {
+		this.send( s -> s.endRows() );
+	}
+
+	public void filtlist( String name, String include, String exclude ) throws IOException {
+		this.send( s -> s.filtlist( name, include, exclude ) );
+	}
+
+	// close
+	// Waits for the writer to finish everything queued, then closes the real sink
+	public void close() throws IOException {
+		try {
+			this.queue.put( STOP );
+			this.writer.join();
+		} catch( InterruptedException ex ) {
+			Thread.currentThread().interrupt();
+			throw new IOException( "Interrupted closing output.", ex );
+		} finally {
+			this.target.close();
+		}
+		if( this.failure != null ) throw this.failure;
+	}
+}
@@ -0,0 +1,294 @@
+/*****************************
+ *
+ * CLASS:   ACSbatch
+ * DATE :   10/16/2026
+ * Purpose: Extracts many ACS routines in one JVM.
+ *          Takes a directory, a glob pattern or a list file (@file)
+ *          and runs one independent ACSextract per input on a
+ *          fork/join pool sized to the number of CPUs.
+ *          Each input gets its own CSV, and a summary CSV lists
+ *          the result of every extraction.
+ *
+ * Syntax:
+ *   - java ACSextract batch <dir|glob|@listfile> <outdir> <options>
+ *
+ *   If no output directory is given, each CSV is written next to
+ *   its input, the same as a single-file run, and the summary is
+ *   written to the current directory.
+ *
+ *   With the library option, each input is an unload of a whole ACS
+ *   library. It is read once and split into its routines by
+ *   ACSlibrary, and each routine is extracted on its own, at the same
+ *   time as the others, to <input>.<member>.csv.
+ *
+ *****************************/
+import java.io.*;
+import java.nio.file.*;
+import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+public class ACSbatch {
+
+	// Name of the summary file written at the end of the run
+	public static final String SUMMARY = "summary.csv";
+
+	// Inputs, in the order they were found
+	protected LinkedList<String> inputs;
+	// Output file for each input, same order
+	protected LinkedList<String> outputs;
+	// Routine already read for each input, same order. Null to read the file.
+	protected LinkedList<ACSlexer> sources;
+	// Inputs are whole libraries, to be split into their routines
+	protected boolean library;
+	// Output directory. Null means next to each input.
+	protected String outDir;
+	// Options passed along to each extraction
+	protected LinkedList<String> options;
+	protected int threads;
+
+	// MAIN proc. Called from ACSextract when the first argument is "batch"
+	public static void main( String[] argz ) {
+		if( argz.length < 1 ) {
+			ACSextract.help();
+			return;
+		}
+		try {
+			ACSbatch b = new ACSbatch( argz );
+			System.exit( b.run() );
+		} catch( IOException e ) {
+			System.out.println( "Error: "+e.getMessage() );
+			System.exit(4);
+		}
+	}
+
+	// Constructor
+	// Parses the options and works out the list of inputs
+	public ACSbatch( String[] argz ) throws IOException {
+		this.options = new LinkedList<String>();
+		this.threads = Runtime.getRuntime().availableProcessors();
+		this.outDir = null;
+
+		// Second parameter is the output directory, unless it's an option
+		// Anything ACSextract understands is passed along to each extraction
+		ACSextract probe = new ACSextract();
+		for( int i=1; i<argz.length; i++ ) {
+			if( argz[i].startsWith("threads=") ) this.threads = Integer.parseInt( argz[i].substring(8) );
+			else if( argz[i].equals("library") ) this.library = true;
+			else if( probe.setOption( argz[i] ) ) this.options.add( argz[i] );
+			else if( i == 1 ) this.outDir = argz[i];
+			else System.out.println( "Unknown option: "+argz[i]+"... Moving on." );
+		}
+		if( this.threads < 1 ) this.threads = 1;
+
+		// Find the inputs
+		this.inputs = findInputs( argz[0] );
+		if( this.inputs.size() == 0 ) throw new IOException( "No input files found for "+argz[0] );
+
+		// Split libraries into their routines. Each is named like a PDS member.
+		LinkedList<String> members = new LinkedList<String>();
+		this.sources = new LinkedList<ACSlexer>();
+		for( String in : this.inputs ) {
+			if( !this.library ) {
+				this.sources.add( null );
+				continue;
+			}
+			ACSlibrary lib = ACSlibrary.open( in, probe.encoding, probe.fixedRecords );
+			for( ACSlibrary.Member m : lib.getMembers() ) {
+				members.add( m.name.length() == 0 ? in : in+"("+m.name+")" );
+				this.sources.add( lib.lexer( m ) );
+			}
+		}
+		if( this.library ) this.inputs = members;
+
+		// Create the output directory if needed
+		if( this.outDir != null ) Files.createDirectories( Paths.get( this.outDir ) );
+
+		// Work out the output names up front, so two inputs with the
+		// same name in different directories don't overwrite each other
+		this.outputs = new LinkedList<String>();
+		HashSet<String> used = new HashSet<String>();
+		for( String in : this.inputs ) {
+			String dsn;
+			if( this.library && in.endsWith(")") ) {
+				int p = in.lastIndexOf('(');
+				dsn = ACSextract.defaultOutput( in.substring( 0, p ), "."+in.substring( p+1, in.length()-1 )+probe.getExtension() );
+			} else {
+				dsn = ACSextract.defaultOutput( in, probe.getExtension() );
+			}
+			if( this.outDir != null ) {
+				dsn = Paths.get( this.outDir, Paths.get( dsn ).getFileName().toString() ).toString();
+			}
+			String base = dsn.substring( 0, dsn.lastIndexOf('.') );
+			for( int n=2; !used.add( dsn ); n++ ) {
+				dsn = base+"_"+n+probe.getExtension();
+			}
+			this.outputs.add( dsn );
+		}
+	}
+
+	// findInputs
+	// Builds the list of input files from one of:
+	//   @file     - a list file, one input per line. Blank lines and # comments are skipped
+	//   directory - every file in the directory, except CSV, JSON Lines and stats output
+	//   glob      - a pattern such as acs/*.txt or acs/**/STOR*
+	//   file      - a single input
+	protected static LinkedList<String> findInputs( String spec ) throws IOException {
+		LinkedList<String> toRet = new LinkedList<String>();
+
+		// List file
+		if( spec.startsWith("@") ) {
+			try( BufferedReader r = Files.newBufferedReader( Paths.get( spec.substring(1) ) ) ) {
+				String line;
+				while( (line = r.readLine()) != null ) {
+					line = line.trim();
+					if( line.length() > 0 && !line.startsWith("#") ) toRet.add( line );
+				}
+			}
+		}
+		// Glob pattern
+		else if( spec.indexOf('*') >= 0 || spec.indexOf('?') >= 0 || spec.indexOf('[') >= 0 || spec.indexOf('{') >= 0 ) {
+			// Walk from the last directory before the first wildcard
+			int wild = spec.length();
+			for( char c : "*?[{".toCharArray() ) {
+				if( spec.indexOf(c) >= 0 ) wild = Math.min( wild, spec.indexOf(c) );
+			}
+			int slash = spec.lastIndexOf( '/', wild );
+			Path base = Paths.get( slash < 0 ? "." : spec.substring( 0, slash+1 ) );
+			PathMatcher pm = FileSystems.getDefault().getPathMatcher( "glob:"+spec );
+			try( Stream<Path> walk = Files.walk( base ) ) {
+				walk.filter( p -> Files.isRegularFile( p ) )
+				    .filter( p -> pm.matches( slash < 0 ? base.relativize( p ) : p ) )
+				    .map( Path::toString )
+				    .sorted()
+				    .forEachOrdered( toRet::add );
+			}
+		}
+		// Directory
+		else if( Files.isDirectory( Paths.get( spec ) ) ) {
+			try( Stream<Path> list = Files.list( Paths.get( spec ) ) ) {
+				list.filter( p -> Files.isRegularFile( p ) )
+				    .filter( p -> !p.toString().toLowerCase().endsWith(".csv") && !p.toString().toLowerCase().endsWith(".jsonl") &&
+				                 !p.toString().toLowerCase().endsWith(".stats.json") )
+				    .map( Path::toString )
+				    .sorted()
+				    .forEachOrdered( toRet::add );
+			}
+		}
+		// Plain file
+		else {
+			toRet.add( spec );
+		}
+		return toRet;
+	}
+
+	// run
+	// Extracts every input on the pool and writes the summary.
+	// Returns the exit code: 0 if everything worked, 8 if any extraction failed.
+	public int run() throws IOException {
+		long start = System.currentTimeMillis();
+		System.out.println( "Extracting "+this.inputs.size()+" routines using "+this.threads+" threads." );
+
+		// One task per input. Each task has its own ACSextract, so nothing is shared.
+		LinkedList<Callable<ACSresult>> tasks = new LinkedList<Callable<ACSresult>>();
+		for( int i=0; i<this.inputs.size(); i++ ) {
+			final String in = this.inputs.get(i);
+			final String out = this.outputs.get(i);
+			final ACSlexer src = this.sources.get(i);
+			tasks.add( () -> this.extract( in, out, src ) );
+		}
+
+		// Run them all and collect the results in input order
+		LinkedList<ACSresult> results = new LinkedList<ACSresult>();
+		ForkJoinPool pool = new ForkJoinPool( this.threads );
+		try {
+			for( Future<ACSresult> f : pool.invokeAll( tasks ) ) {
+				results.add( f.get() );
+			}
+		} catch( InterruptedException | ExecutionException e ) {
+			throw new IOException( "Batch extraction interrupted.", e );
+		} finally {
+			pool.shutdown();
+		}
+
+		// Write the summary
+		String sum = this.outDir == null ? SUMMARY : Paths.get( this.outDir, SUMMARY ).toString();
+		int failed = 0;
+		try( BufferedWriter w = new BufferedWriter( new FileWriter( sum ) ) ) {
+			w.write( "Input,Output,Status,Proc,Rules,Rows,Truncated,Millis,Message\n" );
+			for( ACSresult r : results ) {
+				w.write( r.toCSV() );
+				if( !r.ok ) failed++;
+			}
+		}
+
+		System.out.println( "Processed "+results.size()+" routines, "+failed+" failed, in "+
+		                    (System.currentTimeMillis()-start)+" ms. Summary in "+sum );
+		return failed == 0 ? 0 : 8;
+	}
+
+	// extract
+	// Runs one extraction and records how it went. The routine is read
+	// from the input file, unless src already holds it.
+	// Never throws, so one bad routine doesn't stop the rest of the batch.
+	protected ACSresult extract( String in, String out, ACSlexer src ) {
+		ACSresult r = new ACSresult();
+		r.input = in;
+		r.output = out;
+		long start = System.currentTimeMillis();
+		ACSextract ex = null;
+		try {
+			String[] opts = this.options.toArray( new String[0] );
+			ex = src == null ? new ACSextract( in, out, opts ) : new ACSextract( src, in, out, opts );
+			ex.run();
+			r.ok = true;
+			r.proc = ex.getProcName();
+			r.rules = ex.getRuleCount();
+			r.rows = ex.getRowCount();
+			r.truncated = ex.getTruncatedCount();
+		} catch( Exception e ) {
+			r.ok = false;
+			r.message = e.getMessage() == null ? e.toString() : e.getMessage();
+			if( ex != null ) {
+				r.proc = ex.getProcName();
+				ex.close();
+			}
+			// ACSextract has already reported its own failures
+			if( !(e instanceof ACSexception) ) System.out.println( in+": FAILED: "+r.message );
+		}
+		r.millis = System.currentTimeMillis()-start;
+		return r;
+	}
+
+	// Class ACSresult
+	// Holds the outcome of one extraction for the summary
+	public static class ACSresult {
+		public String input;
+		public String output;
+		public boolean ok;
+		public String proc = "";
+		public int rules;
+		public long rows;
+		public int truncated;
+		public long millis;
+		public String message = "";
+
+		// toCSV
+		// Returns the summary line for this extraction
+		public String toCSV() {
+			return quote( this.input )+","+quote( this.output )+","+( this.ok ? "OK" : "FAILED" )+","+
+			       ( this.proc == null ? "" : this.proc )+","+this.rules+","+this.rows+","+this.truncated+","+this.millis+","+
+			       quote( this.message )+"\n";
+		}
+
+		// quote
+		// Wraps a value in double quotes for the CSV, doubling any quotes inside
+		protected static String quote( String v ) {
+			return "\""+v.replace( "\"", "\"\"" )+"\"";
+		}
+	}
+}
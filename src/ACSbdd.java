@@ -0,0 +1,326 @@
+/*****************************
+ *
+ * CLASS:   ACSbdd
+ * DATE :   10/16/2026
+ * Purpose: Condition engine built on a reduced ordered binary decision
+ *          diagram (BDD), used instead of lists of ACSconditions when
+ *          the engine=bdd option is given.
+ *
+ *          Each node tests one pair (an "atom") and has a branch for
+ *          when the pair is true (hi) and one for when it is false (lo).
+ *          A pair and its opposite share one atom: &DSORG NE 'PS' is the
+ *          false branch of &DSORG EQ 'PS'. Atoms are ordered by pair id.
+ *
+ *          Nodes are kept unique, so equal conditions are the same node,
+ *          and AND, OR and NOT all go through ite() with a cache of
+ *          results. That keeps NOT of a long OR (an ELSE, or the
+ *          OTHERWISE after many WHENs) the same size as the OR itself,
+ *          where the list engine has to multiply it out.
+ *
+ *          Rows are only made when the rule is written, one per path
+ *          from the root to TRUE. Paths are disjoint, so the rows can
+ *          differ from the list engine's: A OR B comes out as A, and
+ *          NOT A AND B.
+ *
+ *          One BDD is used per extraction and it isn't thread safe.
+ *
+ *****************************/
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class ACSbdd {
+
+	// Terminal nodes
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+
+	// Atom number of the terminals, below every real atom
+	protected static final int TERMINAL = Integer.MAX_VALUE;
+
+	// Size of the operation cache. Must be a power of 2.
+	protected static final int CACHE_SIZE = 1 << 16;
+
+	protected ACSpairTable table;
+
+	// Nodes. Atom (pair id), false branch and true branch of each.
+	protected int[] atom;
+	protected int[] lo;
+	protected int[] hi;
+	protected int count;
+
+	// Unique table: open addressing over node numbers. 0 means empty,
+	// which is safe because node 0 is a terminal and never stored.
+	protected int[] unique;
+
+	// ite() cache, direct mapped
+	protected int[] cacheF, cacheG, cacheH, cacheR;
+
+	// How each negated atom was first written, such as ¬= or NE,
+	// so rows come out the way the routine spelled them
+	protected HashMap<Integer,ACSpair> negSpelling;
+
+	// Constructor, takes the pair table for this extraction
+	public ACSbdd( ACSpairTable t ) {
+		this.table = t;
+		this.atom = new int[1024];
+		this.lo = new int[1024];
+		this.hi = new int[1024];
+		this.atom[FALSE] = TERMINAL;
+		this.atom[TRUE] = TERMINAL;
+		this.count = 2;
+		this.unique = new int[2048];
+		this.cacheF = new int[CACHE_SIZE];
+		this.cacheG = new int[CACHE_SIZE];
+		this.cacheH = new int[CACHE_SIZE];
+		this.cacheR = new int[CACHE_SIZE];
+		Arrays.fill( this.cacheF, -1 );
+		this.negSpelling = new HashMap<Integer,ACSpair>();
+	}
+
+	// size
+	// Returns the number of nodes made so far, including the terminals
+	public int size() {
+		return this.count;
+	}
+
+	// mk
+	// Returns the node for IF atom THEN h ELSE l, making it if needed
+	protected int mk( int a, int l, int h ) {
+		if( l == h ) return l;
+		int mask = this.unique.length-1;
+		int slot = hash( a, l, h ) & mask;
+		int n;
+		while( (n = this.unique[slot]) != 0 ) {
+			if( this.atom[n] == a && this.lo[n] == l && this.hi[n] == h ) return n;
+			slot = (slot+1) & mask;
+		}
+
+		// New node
+		if( this.count == this.atom.length ) {
+			int len = this.atom.length*2;
+			this.atom = Arrays.copyOf( this.atom, len );
+			this.lo = Arrays.copyOf( this.lo, len );
+			this.hi = Arrays.copyOf( this.hi, len );
+		}
+		n = this.count++;
+		this.atom[n] = a;
+		this.lo[n] = l;
+		this.hi[n] = h;
+		this.unique[slot] = n;
+		if( this.count*2 > this.unique.length ) this.rehash();
+		return n;
+	}
+
+	// rehash
+	// Doubles the unique table
+	protected void rehash() {
+		int[] nu = new int[this.unique.length*2];
+		int mask = nu.length-1;
+		for( int n=2; n<this.count; n++ ) {
+			int slot = hash( this.atom[n], this.lo[n], this.hi[n] ) & mask;
+			while( nu[slot] != 0 ) slot = (slot+1) & mask;
+			nu[slot] = n;
+		}
+		this.unique = nu;
+	}
+
+	// hash
+	protected static int hash( int a, int b, int c ) {
+		int h = ( a*31 + b )*31 + c;
+		return h ^ (h >>> 16);
+	}
+
+	// ite
+	// IF f THEN g ELSE h. Every other operation is built on this.
+	public int ite( int f, int g, int h ) {
+		// Cases with a known answer
+		if( f == TRUE ) return g;
+		if( f == FALSE ) return h;
+		if( g == h ) return g;
+		if( g == TRUE && h == FALSE ) return f;
+
+		int slot = hash( f, g, h ) & (CACHE_SIZE-1);
+		if( this.cacheF[slot] == f && this.cacheG[slot] == g && this.cacheH[slot] == h ) return this.cacheR[slot];
+
+		// Split on the first atom of the three
+		int a = Math.min( this.atom[f], Math.min( this.atom[g], this.atom[h] ) );
+		int l = this.ite( this.low( f, a ), this.low( g, a ), this.low( h, a ) );
+		int r = this.ite( this.high( f, a ), this.high( g, a ), this.high( h, a ) );
+		int toRet = this.mk( a, l, r );
+
+		this.cacheF[slot] = f;
+		this.cacheG[slot] = g;
+		this.cacheH[slot] = h;
+		this.cacheR[slot] = toRet;
+		return toRet;
+	}
+
+	// low / high
+	// The node with the given atom set false / true
+	protected int low( int n, int a ) {
+		return this.atom[n] == a ? this.lo[n] : n;
+	}
+
+	protected int high( int n, int a ) {
+		return this.atom[n] == a ? this.hi[n] : n;
+	}
+
+	// and / or / not
+	public int and( int f, int g ) {
+		return this.ite( f, g, FALSE );
+	}
+
+	public int or( int f, int g ) {
+		return this.ite( f, TRUE, g );
+	}
+
+	public int not( int f ) {
+		return this.ite( f, FALSE, TRUE );
+	}
+
+	// positive
+	// Returns the pair an atom is named by: the one of a pair and its
+	// opposite that uses EQ, GT or LT
+	protected static ACSpair positive( ACSpair p ) {
+		ACSoperator r = p.getComparison().relation();
+		return ( r == ACSoperator.EQ || r == ACSoperator.GT || r == ACSoperator.LT ) ? p : p.not();
+	}
+
+	// pair
+	// Returns the node that is true when the pair is true
+	// Both sides of the atom are interned now, so writing rows later never
+	// adds pairs, and pair ids don't depend on when rules are written.
+	public int pair( ACSpair p ) {
+		ACSpair pos = positive( p );
+		pos.not();
+		if( pos == p ) return this.mk( pos.getId(), FALSE, TRUE );
+		this.negSpelling.putIfAbsent( pos.getId(), p );
+		return this.mk( pos.getId(), TRUE, FALSE );
+	}
+
+	// condition
+	// Returns the node for a condition: all of its pairs ANDed together
+	public int condition( ACScondition c ) {
+		int toRet = TRUE;
+		for( ACSpair p : c.getPairs() ) toRet = this.and( toRet, this.pair( p ) );
+		return toRet;
+	}
+
+	// conditions
+	// Returns the node for a list of conditions joined by OR.
+	// An empty list adds nothing, the same as in ANDconditions, so it is TRUE.
+	public int conditions( List<ACScondition> l ) {
+		if( l.size() == 0 ) return TRUE;
+		int toRet = FALSE;
+		for( ACScondition c : l ) toRet = this.or( toRet, this.condition( c ) );
+		return toRet;
+	}
+
+	// pathCount
+	// Returns the number of rows a node writes out as
+	public long pathCount( int root ) {
+		return this.pathCount( root, new HashMap<Integer,Long>() );
+	}
+
+	protected long pathCount( int n, HashMap<Integer,Long> memo ) {
+		if( n == TRUE ) return 1;
+		if( n == FALSE ) return 0;
+		Long m = memo.get( n );
+		if( m != null ) return m;
+		long toRet = this.pathCount( this.lo[n], memo ) + this.pathCount( this.hi[n], memo );
+		if( toRet < 0 ) toRet = Long.MAX_VALUE;
+		memo.put( n, toRet );
+		return toRet;
+	}
+
+	// paths
+	// Returns an iterator over the rows of a node, one per path to TRUE.
+	// If prune is set, paths with two pairs that can't both be true are skipped.
+	public Iterator<ACScondition> paths( int root, boolean prune ) {
+		return new Paths( root, prune );
+	}
+
+	// Class Paths
+	// Walks the paths of a node depth first, true branch first
+	protected class Paths implements Iterator<ACScondition> {
+		protected int[] nodes = new int[16];
+		protected byte[] tried = new byte[16];
+		protected ACSpair[] lits = new ACSpair[16];
+		protected int depth;
+		protected boolean prune;
+		protected ACScondition nextRow;
+
+		protected Paths( int root, boolean prune ) {
+			this.prune = prune;
+			this.nodes[0] = root;
+			this.depth = root == FALSE ? -1 : 0;
+			this.find();
+		}
+
+		// find
+		// Moves on to the next path that reaches TRUE
+		protected void find() {
+			while( this.depth >= 0 ) {
+				int d = this.depth;
+				int n = this.nodes[d];
+				if( n == TRUE ) {
+					ACScondition row = new ACScondition( ACSbdd.this.table );
+					for( int i=0; i<d; i++ ) row.addPair( this.lits[i] );
+					this.nextRow = row;
+					this.depth--;
+					return;
+				}
+				if( this.tried[d] == 2 ) {
+					this.depth--;
+					continue;
+				}
+
+				// Take the true branch, then the false one
+				boolean high = this.tried[d]++ == 0;
+				int next = high ? ACSbdd.this.hi[n] : ACSbdd.this.lo[n];
+				if( next == FALSE ) continue;
+				ACSpair pos = ACSbdd.this.table.get( ACSbdd.this.atom[n] );
+				ACSpair lit = pos;
+				if( !high ) {
+					lit = ACSbdd.this.negSpelling.get( pos.getId() );
+					if( lit == null ) lit = pos.not();
+				}
+				if( this.prune && this.conflicts( lit, d ) ) continue;
+
+				if( d+1 == this.nodes.length ) {
+					this.nodes = Arrays.copyOf( this.nodes, d*2 );
+					this.tried = Arrays.copyOf( this.tried, d*2 );
+					this.lits = Arrays.copyOf( this.lits, d*2 );
+				}
+				this.lits[d] = lit;
+				this.nodes[d+1] = next;
+				this.tried[d+1] = 0;
+				this.depth = d+1;
+			}
+			this.nextRow = null;
+		}
+
+		// conflicts
+		// Returns true if the pair can't be true along with the path so far
+		protected boolean conflicts( ACSpair p, int d ) {
+			for( int i=0; i<d; i++ ) {
+				if( p.conflicts( this.lits[i] ) ) return true;
+			}
+			return false;
+		}
+
+		public boolean hasNext() {
+			return this.nextRow != null;
+		}
+
+		public ACScondition next() {
+			if( this.nextRow == null ) throw new NoSuchElementException();
+			ACScondition toRet = this.nextRow;
+			this.find();
+			return toRet;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*****************************
+ *
+ * CLASS:   ACSclassify
+ * DATE :   10/16/2026
+ * Purpose: Works out the class of each data set in a list, straight
+ *          from an ACS routine, instead of reading it off the CSV.
+ *          The routine is parsed as usual, and its rules are compiled
+ *          into an ACSevaluator. The data sets are then read one line
+ *          at a time, so the list can be as long as needed.
+ *
+ * Syntax:
+ *   - java ACSextract classify acsfile datasets.csv <output> <options>
+ *
+ *   datasets.csv starts with a header naming the variables, such as
+ *     &DSN,&DSORG,&SIZE,&JOB
+ *   then has one data set per line. Values are taken as the routine
+ *   would see them: upper case, with any quotes around them removed.
+ *   &DSN(n) doesn't need its own column, it comes from &DSN.
+ *
+ *   The output is each input line with three more columns: the class,
+ *   and the sequence and line number of the SET that gave it. They are
+ *   empty if no SET applies. If no output is given, it is written next
+ *   to the data sets, as datasets.class.csv.
+ *
+ *   The extraction options that shape the rules (nosimplify, engine)
+ *   are honoured. stream is ignored, since every rule is needed, and so
+ *   are maxrows and maxtotal, since every row of every rule is.
+ *
+ *****************************/
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+public class ACSclassify {
+
+	// Columns added to the header of the data sets
+	public static final String HEADER = ",Class,Seq,LineNum\n";
+
+	// MAIN proc. Called from ACSextract when the first argument is "classify"
+	public static void main( String[] argz ) {
+		if( argz.length < 2 ) {
+			ACSextract.help();
+			return;
+		}
+		String out = null;
+		LinkedList<String> options = new LinkedList<String>();
+		ACSextract probe = new ACSextract();
+		for( int i=2; i<argz.length; i++ ) {
+			if( probe.setOption( argz[i] ) ) options.add( argz[i] );
+			else if( i == 2 ) out = argz[i];
+			else System.out.println( "Unknown option: "+argz[i]+"... Moving on." );
+		}
+		if( out == null ) out = ACSextract.defaultOutput( argz[1], ".class.csv" );
+
+		try {
+			long start = System.currentTimeMillis();
+			ACSevaluator ev = compile( argz[0], options.toArray( new String[0] ) );
+			long compiled = System.currentTimeMillis();
+			System.out.println( "Compiled "+ev.rules.length+" rules, "+ev.getRowCount()+" rows, into "+
+			                    ev.getNodeCount()+" nodes in "+(compiled-start)+" ms." );
+			long n = classify( ev, argz[1], out );
+			System.out.println( "Classified "+n+" data sets in "+(System.currentTimeMillis()-compiled)+" ms. Output in "+out );
+			System.out.println( "Done." );
+		} catch( ACSexception e ) {
+			// ACSextract has already reported it
+			System.exit(8);
+		} catch( IOException e ) {
+			System.out.println( "Error: "+e.getMessage() );
+			System.exit(4);
+		}
+	}
+
+	// compile
+	// Parses a routine and compiles its rules
+	public static ACSevaluator compile( String acsFile, String[] options ) throws IOException {
+		ACSextract ex = new ACSextract( acsFile, null, options );
+		ex.parse();
+		return new ACSevaluator( ex );
+	}
+
+	// classify
+	// Classifies every data set in the input and writes the output.
+	// Returns the number of data sets.
+	public static long classify( ACSevaluator ev, String inFile, String outFile ) throws IOException {
+		long n = 0;
+		try( BufferedReader r = new BufferedReader( new FileReader( inFile ) );
+		     BufferedWriter w = new BufferedWriter( new FileWriter( outFile ) ) ) {
+			String line = r.readLine();
+			if( line == null ) throw new IOException( inFile+" is empty. It needs a header of variables." );
+
+			String[] vars = variables( line );
+			w.write( line );
+			w.write( HEADER );
+
+			// One data set per line. The map is reused, since every line sets every column.
+			HashMap<String,String> attrs = new HashMap<String,String>();
+			while( (line = r.readLine()) != null ) {
+				if( line.trim().length() == 0 ) continue;
+				ACSrule rule = classifyLine( ev, vars, line, attrs );
+				w.write( line );
+				w.write( columns( rule ) );
+				n++;
+			}
+		}
+		return n;
+	}
+
+	// variables
+	// Reads the header: the variables, with & added if left off
+	public static String[] variables( String header ) {
+		List<String> head = split( header );
+		String[] vars = new String[head.size()];
+		for( int i=0; i<vars.length; i++ ) {
+			String v = ACSevaluator.normalize( head.get(i) );
+			vars[i] = v.startsWith("&") ? v : "&"+v;
+		}
+		return vars;
+	}
+
+	// classifyLine
+	// Sets the attributes from one data set line and returns the rule
+	// that gives its class, or null
+	public static ACSrule classifyLine( ACSevaluator ev, String[] vars, String line, Map<String,String> attrs ) {
+		List<String> vals = split( line );
+		for( int i=0; i<vars.length; i++ ) {
+			attrs.put( vars[i], i < vals.size() ? ACSevaluator.normalize( vals.get(i) ) : "" );
+		}
+		return ev.matchRule( attrs );
+	}
+
+	// columns
+	// The columns added to a data set line for the rule that gave its class,
+	// with the line end. Empty if there is no rule.
+	public static String columns( ACSrule rule ) {
+		if( rule == null ) return ",,,\n";
+		return ","+quote( className( rule ) )+","+rule.getSequence()+","+rule.getLineNumber()+"\n";
+	}
+
+	// className
+	// The class a rule sets, without quotes
+	public static String className( ACSrule rule ) {
+		return ACSevaluator.unquote( rule.getSetValue() );
+	}
+
+	// split
+	// Splits one CSV line on commas outside double quotes, removing the double quotes
+	protected static List<String> split( String line ) {
+		ArrayList<String> toRet = new ArrayList<String>();
+		StringBuilder cur = new StringBuilder();
+		boolean quoted = false;
+		for( int i=0; i<line.length(); i++ ) {
+			char c = line.charAt(i);
+			if( c == '"' ) {
+				// A doubled quote inside quotes is a quote
+				if( quoted && i+1 < line.length() && line.charAt(i+1) == '"' ) {
+					cur.append( c );
+					i++;
+				} else {
+					quoted = !quoted;
+				}
+			} else if( c == ',' && !quoted ) {
+				toRet.add( cur.toString() );
+				cur.setLength(0);
+			} else {
+				cur.append( c );
+			}
+		}
+		toRet.add( cur.toString() );
+		return toRet;
+	}
+
+	// quote
+	// Wraps a value in double quotes if it has a comma or a quote in it
+	protected static String quote( String v ) {
+		if( v.indexOf(',') < 0 && v.indexOf('"') < 0 ) return v;
+		return "\""+v.replace( "\"", "\"\"" )+"\"";
+	}
+}
@@ -7,47 +7,135 @@
  *          One condition is a set of VAR / VALUE pairs.
  *          The combined set of all the ACSpairs creates a condition
  *
+ *          The pairs are kept as a sorted array of pair ids from the
+ *          ACSpairTable. ANDing two conditions is a merge of their ids,
+ *          duplicates can't happen, and comparing two conditions is an
+ *          array compare. The array is only as long as the number of
+ *          pairs, however many pairs the routine has in all.
+ *          The ids are also kept in the order they were added, which is
+ *          the order they are written out in.
+ *
  *****************************/
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 
 public class ACScondition {
 
-	// Set of pairs that represent the condition
-	protected LinkedList<ACSpair> pairs;
+	// Table the pairs come from
+	protected ACSpairTable table;
+
+	// Set of pairs that represent the condition, by pair id, in order
+	protected int[] pairs;
+	// The same ids, in the order they were added
+	protected int[] order;
+
+	protected static final int[] NONE = new int[0];
+
+	// Constructor, takes the pair table for this extraction
+	public ACScondition( ACSpairTable t ) {
+		this.table = t;
+		this.pairs = NONE;
+		this.order = NONE;
+	}
 
-	// Constructor, no parms
-	public ACScondition() {
-		this.pairs = new LinkedList<ACSpair>();
+	// Constructor, used to build a condition from existing ids
+	protected ACScondition( ACSpairTable t, int[] ids, int[] order ) {
+		this.table = t;
+		this.pairs = ids;
+		this.order = order;
 	}
 
 	// Constructor, accepts parameters to build a new pair
-	public void addPair( String variable, String comparison, String value ) {
-		this.addPair( new ACSpair( variable, comparison, value ) );
+	public void addPair( String variable, ACSoperator comparison, String value ) {
+		this.addPair( this.table.intern( variable, comparison, value ) );
 	}
 
 	// addPair
-	// Adds a new pair, but only if it's not a duplicate
+	// Adds a new pair. A duplicate is the same id, so it's ignored.
 	public void addPair( ACSpair newpair ) {
-		// Check for duplicate
-		boolean found = false;
-		for( ACSpair cp : this.pairs ) {
-			if( ( cp == newpair ) ||
-			    ( cp.getVariable().equals( newpair.getVariable() ) &&
-			      cp.getComparison().equals( newpair.getComparison() ) &&
-			      cp.getValue().equals( cp.getValue() ) ) )
-				found = true;
+		int id = newpair.getId();
+		int at = Arrays.binarySearch( this.pairs, id );
+		if( at >= 0 ) return;
+		at = -at-1;
+		int[] p = new int[this.pairs.length+1];
+		System.arraycopy( this.pairs, 0, p, 0, at );
+		p[at] = id;
+		System.arraycopy( this.pairs, at, p, at+1, this.pairs.length-at );
+		this.pairs = p;
+		this.order = Arrays.copyOf( this.order, this.order.length+1 );
+		this.order[this.order.length-1] = id;
+	}
+
+	// and
+	// Returns a new condition that requires both this condition and the other.
+	// Since pairs in a condition are joined by AND, that is all the pairs of both:
+	// this condition's first, then the other's that aren't already here.
+	public ACScondition and( ACScondition other ) {
+		int[] a = this.pairs, b = other.pairs;
+		int[] m = new int[a.length+b.length];
+		int i = 0, j = 0, n = 0;
+		while( i < a.length && j < b.length ) {
+			if( a[i] < b[j] ) m[n++] = a[i++];
+			else if( a[i] > b[j] ) m[n++] = b[j++];
+			else {
+				m[n++] = a[i++];
+				j++;
+			}
+		}
+		while( i < a.length ) m[n++] = a[i++];
+		while( j < b.length ) m[n++] = b[j++];
+
+		int[] o = Arrays.copyOf( this.order, n );
+		int k = this.order.length;
+		for( int id : other.order ) {
+			if( Arrays.binarySearch( a, id ) < 0 ) o[k++] = id;
 		}
-		// If not a duplicate, then add it
-		if( !found ) this.pairs.add( newpair );
+		return new ACScondition( this.table, n == m.length ? m : Arrays.copyOf( m, n ), o );
+	}
+
+	// implies
+	// Returns true if every pair of the other condition is also in this one,
+	// so whenever this condition is true, the other one is too.
+	public boolean implies( ACScondition other ) {
+		int[] mine = this.pairs, theirs = other.pairs;
+		if( theirs.length > mine.length ) return false;
+		int i = 0;
+		for( int id : theirs ) {
+			while( i < mine.length && mine[i] < id ) i++;
+			if( i == mine.length || mine[i] != id ) return false;
+			i++;
+		}
+		return true;
+	}
+
+	// isSatisfiable
+	// Returns false if two of the pairs can never be true together,
+	// such as &DSORG EQ 'PS' AND &DSORG EQ 'PO'. See ACSpair.conflicts().
+	public boolean isSatisfiable() {
+		int[] b = this.pairs;
+		for( int i=0; i<b.length; i++ ) {
+			ACSpair p = this.table.get( b[i] );
+			for( int j=i+1; j<b.length; j++ ) {
+				if( p.conflicts( this.table.get( b[j] ) ) ) return false;
+			}
+		}
+		return true;
+	}
+
+	// size
+	// Returns the number of pairs
+	public int size() {
+		return this.pairs.length;
 	}
 
 	// getVars
 	// Returns a String array of the variables set in the pairs
 	public String[] getVars() {
-		String[] toRet = new String[pairs.size()];
+		String[] toRet = new String[this.pairs.length];
 		int ix = 0;
-		for( ACSpair apair : pairs ) {
-			toRet[ix++] = apair.getVariable();
+		for( int id : this.order ) {
+			toRet[ix++] = this.table.get(id).getVariable();
 		}
 		return toRet;
 	}
@@ -55,34 +143,52 @@ public class ACScondition {
 	// toCSV
 	// Exports the variables into CSV
 	// Accepts a parameter and prints the values in that order.
-	public String toCSV( LinkedList<String> varOrder ) {
-		String toRet = "";
+	public String toCSV( List<String> varOrder ) {
+		StringBuilder toRet = new StringBuilder();
 		// Loop over the var order
 		for( String cl : varOrder ) {
-			// Find the pair that matches that order
-			boolean mult = false;
-			for( ACSpair cp : pairs ) {
-				if( cl.equals(cp.getVariable()) ) {
-					// Only print the operator if it's not =
-					if( cp.getComparison().equals( "=" ) ) {
-						if( mult ) toRet = toRet + "; ";
-						toRet = toRet + cp.getValue();
-					} else {
-						if( mult ) toRet = toRet + "; ";
-						toRet = toRet + cp.getComparison()+" "+cp.getValue();
-					}
-					mult = true;
+			this.appendCell( toRet, cl );
+			toRet.append( ',' );
+		}
+		return toRet.toString();
+	}
+
+	// cell
+	// Returns what this condition tests for one variable, the same as its CSV cell.
+	// Empty if the variable isn't tested.
+	public String cell( String var ) {
+		StringBuilder toRet = new StringBuilder();
+		this.appendCell( toRet, var );
+		return toRet.toString();
+	}
+
+	// appendCell
+	// Adds every pair for one variable, joined by "; "
+	protected void appendCell( StringBuilder toRet, String var ) {
+		// Find the pairs that match the variable
+		boolean mult = false;
+		for( int id : this.order ) {
+			ACSpair cp = this.table.get(id);
+			if( var.equals(cp.getVariable()) ) {
+				if( mult ) toRet.append( "; " );
+				// Only print the operator if it's not =
+				if( cp.getComparison() != ACSoperator.EQ_SYM ) {
+					toRet.append( cp.getComparison() ).append( ' ' );
 				}
+				toRet.append( cp.getValue() );
+				mult = true;
 			}
-			toRet = toRet + ",";
 		}
-		return toRet;
 	}
 
 	// getPairs
-	// Returns the pairs
+	// Returns the pairs, in the order they were added
 	public LinkedList<ACSpair> getPairs() {
-		return this.pairs;
+		LinkedList<ACSpair> toRet = new LinkedList<ACSpair>();
+		for( int id : this.order ) {
+			toRet.add( this.table.get(id) );
+		}
+		return toRet;
 	}
 
 	// Not
@@ -96,41 +202,40 @@ public class ACScondition {
 		LinkedList<ACScondition> newList = new LinkedList<ACScondition>();
 
 		// Loop over the pairs and build a new condition from the opposite of each
-		for( ACSpair cp : this.pairs ) {
-			ACScondition nc = new ACScondition();
-			nc.addPair( cp.not() );
+		for( int id : this.order ) {
+			ACScondition nc = new ACScondition( this.table );
+			nc.addPair( this.table.get(id).not() );
 			newList.add( nc );
-			//System.out.println( "NOT PAIR: Old: "+cp.toString()+" New:"+nc.toString() );
 		}
 		return newList;
 	}
 
+	// equals
+	// Two conditions are equal if they have the same pairs
+	public boolean equals( Object o ) {
+		return ( o instanceof ACScondition ) && Arrays.equals( this.pairs, ((ACScondition)o).pairs );
+	}
+
+	// hashCode
+	public int hashCode() {
+		return Arrays.hashCode( this.pairs );
+	}
+
 	// toString
 	// Return a string showing all the pairs
 	public String toString() {
-		String toRet = this.pairs.size()+" pairs: ";
-		for( ACSpair cp : this.pairs ) {
-			toRet += cp.toString()+" ";
+		StringBuilder toRet = new StringBuilder();
+		toRet.append( this.pairs.length ).append( " pairs: " );
+		for( int id : this.order ) {
+			toRet.append( this.table.get(id) ).append( ' ' );
 		}
-		return toRet;
+		return toRet.toString();
 	}
 
 	// removeDuplicatePairs
-	// Compares all the pairs and removes duplicates
+	// Pairs are kept as a set of ids, so there are never
+	// any duplicates to remove. Kept for existing callers.
 	public void removeDuplicatePairs() {
-		LinkedList<ACSpair> newList = new LinkedList<ACSpair>();
-		for( ACSpair cp : this.pairs ) {
-			boolean found = false;
-			for( ACSpair np : newList ) {
-				if( cp.getValue().equals( np.getValue() ) &&
-				    cp.getComparison().equals( np.getComparison() ) &&
-				    cp.getVariable().equals( np.getVariable() ) ) {
-						found = true;
-				}
-			}
-			if( !found ) newList.add( cp );
-		}
-		this.pairs = newList;
 	}
 
 }
@@ -0,0 +1,74 @@
+/*****************************
+ *
+ * CLASS:   ACScsvSink
+ * DATE :   10/16/2026
+ * Purpose: Writes the output as CSV.
+ *          One row per rule row, with the SET value, a column per
+ *          variable, then Seq, Exit and LineNum, followed by a
+ *          FILTLISTS section. If an echo stream is given, everything
+ *          written is copied to it as well.
+ *
+ *****************************/
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+
+public class ACScsvSink implements ACSsink {
+
+	protected Writer out;
+	protected PrintStream echo;    // Null for no echo
+	protected ACSstats stats;      // Render and write times. Null to skip.
+	protected List<String> variables;
+
+	// Constructor
+	public ACScsvSink( Writer o, PrintStream e ) {
+		this( o, e, null );
+	}
+
+	public ACScsvSink( Writer o, PrintStream e, ACSstats st ) {
+		this.out = o;
+		this.echo = e;
+		this.stats = st;
+	}
+
+	// write
+	// Writes to the output and the echo
+	protected void write( String s ) throws IOException {
+		long t = System.nanoTime();
+		if( this.echo != null ) this.echo.print( s );
+		this.out.write( s );
+		if( this.stats != null ) this.stats.writeNanos += System.nanoTime()-t;
+	}
+
+	public void header( String procName, List<String> vars ) throws IOException {
+		this.variables = vars;
+		StringBuilder h = new StringBuilder();
+		h.append( procName ).append( "," );
+		for( String cv : vars ) {
+			h.append( cv ).append( "," );
+		}
+		h.append( "Seq,Exit,LineNum\n" );
+		this.write( h.toString() );
+	}
+
+	public void row( ACSrule rule, ACScondition row ) throws IOException {
+		long t = System.nanoTime();
+		String s = rule.toCSV( row, this.variables );
+		if( this.stats != null ) this.stats.renderNanos += System.nanoTime()-t;
+		this.write( s );
+	}
+
+	public void endRows() throws IOException {
+		this.write( "\nFILTLISTS\nNAME,INCLUDE,EXCLUDE\n" );
+	}
+
+	public void filtlist( String name, String include, String exclude ) throws IOException {
+		this.write( name+",\""+include+"\",\""+exclude+"\"\n" );
+	}
+
+	public void close() throws IOException {
+		this.out.flush();
+		this.out.close();
+	}
+}
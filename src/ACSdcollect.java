@@ -0,0 +1,337 @@
+/*****************************
+ *
+ * CLASS:   ACSdcollect
+ * DATE :   10/16/2026
+ * Purpose: Reads data set records straight from a DCOLLECT output file,
+ *          as the attributes an ACS routine sees, so an inventory can
+ *          be simulated without turning it into a CSV first.
+ *
+ *          The file must keep its record descriptor words, which it does
+ *          when sent in binary with QUOTE SITE RDW. Each record starts
+ *          with a two byte length, and the type at offset 4. Only type
+ *          D (active data set) records are used. The rest are skipped.
+ *
+ *          The file is memory mapped, a window of up to 1GB at a time,
+ *          and never copied. next() walks the lengths to cut the next
+ *          run of D records, which only costs a few bytes per record,
+ *          and the runs can then be worked on by any number of threads.
+ *
+ *          A Record is a Map from variable to value over one record in
+ *          the mapped file. A field is only decoded from EBCDIC when the
+ *          routine asks for its variable, and ACSevaluator asks once per
+ *          data set, so variables the routine doesn't test cost nothing.
+ *
+ *          Field offsets are from the IDCDOUT mapping of the D record.
+ *          Variables that DCOLLECT doesn't hold (&JOB, &PGM, &USER...)
+ *          are left out, and so are '' to the routine.
+ *
+ *****************************/
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+public class ACSdcollect implements Closeable {
+
+	// Largest window of the file mapped at once
+	public static final int WINDOW = 1 << 30;
+
+	// Record header: length, type. The D record fields follow it.
+	protected static final int TYPE = 4;
+	protected static final int DSNAM = 24;      // CL44 data set name
+	protected static final int DSORG = 72;      // XL2 DSORG bits
+	protected static final int RECFM = 74;      // XL1 RECFM bits
+	protected static final int VOLSR = 76;      // CL6 volume serial
+	protected static final int BKLNG = 82;      // HL2 block size
+	protected static final int ALLSP = 86;      // FL4 space allocated, in KB
+	protected static final int SCALL = 94;      // FL4 secondary allocation, in KB
+	protected static final int EXPDT = 106;     // PL4 expiration date, 0CYYDDDF
+	protected static final int DATCL = 130;     // HL2 length, CL30 data class
+	protected static final int STGCL = 162;     // HL2 length, CL30 storage class
+	protected static final int MGTCL = 194;     // HL2 length, CL30 management class
+	protected static final int STGRP = 226;     // HL2 length, CL30 storage group
+	protected static final int DLENGTH = 258;   // Shortest D record with every field above
+
+	// The variables a D record can give
+	public static final List<String> VARIABLES = Arrays.asList(
+		"&DSN", "&HLQ", "&LLQ", "&NQUAL", "&DSORG", "&RECFM", "&BLKSIZE", "&SIZE", "&MAXSIZE",
+		"&ANYVOL", "&ALLVOL", "&EXPDT", "&DSTYPE", "&DATACLAS", "&STORCLAS", "&MGMTCLAS", "&STORGRP" );
+
+	// EBCDIC to characters, for the ones that can be in names and classes.
+	// Anything else is a ?.
+	protected static final char[] EBCDIC = new char[256];
+	static {
+		Arrays.fill( EBCDIC, '?' );
+		range( 0xC1, "ABCDEFGHI" );
+		range( 0xD1, "JKLMNOPQR" );
+		range( 0xE2, "STUVWXYZ" );
+		range( 0xF0, "0123456789" );
+		range( 0x81, "abcdefghi" );
+		range( 0x91, "jklmnopqr" );
+		range( 0xA2, "stuvwxyz" );
+		int[] codes = { 0x40, 0x4B, 0x4D, 0x4E, 0x50, 0x5B, 0x5C, 0x5D, 0x60, 0x61, 0x6B, 0x6C, 0x6D, 0x7A, 0x7B, 0x7C, 0x7D, 0x7E };
+		String chars = " .(+&$*)-/,%_:#@'=";
+		for( int i=0; i<codes.length; i++ ) EBCDIC[codes[i]] = chars.charAt(i);
+	}
+
+	// range
+	// Fills in a run of characters with consecutive codes
+	protected static void range( int first, String chars ) {
+		for( int i=0; i<chars.length(); i++ ) EBCDIC[first+i] = chars.charAt(i);
+	}
+
+	protected FileChannel channel;
+	protected long size;
+	protected long pos;             // File offset of the next record
+	protected MappedByteBuffer map;
+	protected long mapStart;        // File offset of the window
+	protected long records;         // D records found so far
+	protected long skipped;         // Other records
+
+	// A run of D records in one window of the file
+	public static class Run {
+		public ByteBuffer buf;
+		public int[] offsets;
+		public int count;
+	}
+
+	// Constructor
+	// Opens the file. Nothing is read until next().
+	public ACSdcollect( String file ) throws IOException {
+		this.channel = FileChannel.open( Paths.get( file ), StandardOpenOption.READ );
+		this.size = this.channel.size();
+		this.pos = 0;
+	}
+
+	// next
+	// Returns the next run of at most max D records, or null at the end of the file
+	public Run next( int max ) throws IOException {
+		Run run = new Run();
+		run.offsets = new int[max];
+		while( run.count < max && this.pos < this.size ) {
+			// Map the next window if the record's length isn't in this one
+			if( this.map == null || this.pos+4 > this.mapStart+this.map.limit() ) {
+				if( run.count > 0 ) break;
+				this.remap();
+			}
+			int off = (int)( this.pos-this.mapStart );
+			int len = this.map.getShort( off ) & 0xFFFF;
+			if( len < 8 || this.map.getShort( off+2 ) != 0 ) {
+				throw new IOException( "No record descriptor word at offset "+this.pos+". Send DCOLLECT output with QUOTE SITE RDW." );
+			}
+			if( this.pos+len > this.size ) throw new IOException( "Last record is cut short at offset "+this.pos+"." );
+			// The whole record has to be in the window. If not, start a new one here.
+			if( off+len > this.map.limit() ) {
+				if( run.count > 0 ) break;
+				this.remap();
+				continue;
+			}
+			if( this.map.get( off+TYPE ) == (byte)0xC4 && this.map.get( off+TYPE+1 ) == (byte)0x40 ) {
+				if( len < DLENGTH ) throw new IOException( "D record at offset "+this.pos+" is only "+len+" bytes." );
+				run.offsets[run.count++] = off;
+				this.records++;
+			} else {
+				this.skipped++;
+			}
+			this.pos += len;
+		}
+		if( run.count == 0 ) return null;
+		run.buf = this.map.duplicate();
+		return run;
+	}
+
+	// remap
+	// Maps a window of the file starting at the next record
+	protected void remap() throws IOException {
+		this.mapStart = this.pos;
+		this.map = this.channel.map( FileChannel.MapMode.READ_ONLY, this.pos, Math.min( WINDOW, this.size-this.pos ) );
+	}
+
+	// getRecords
+	public long getRecords() {
+		return this.records;
+	}
+
+	// getSkipped
+	public long getSkipped() {
+		return this.skipped;
+	}
+
+	// close
+	public void close() throws IOException {
+		this.channel.close();
+		this.map = null;
+	}
+
+
+	/*
+	 * One D record
+	 */
+
+	// The attributes of one data set, read from its record as they are asked for.
+	// Point it at a record with set(). One Record per thread.
+	public static class Record extends AbstractMap<String,String> {
+		protected ByteBuffer buf;
+		protected int off;
+		protected char[] chars = new char[44];
+
+		// set
+		// Moves to the record at an offset in the buffer
+		public Record set( ByteBuffer buf, int off ) {
+			this.buf = buf;
+			this.off = off;
+			return this;
+		}
+
+		// get
+		// Decodes the value of one variable, or returns null if the record doesn't have it
+		public String get( Object key ) {
+			String var = (String)key;
+			switch( var ) {
+				case "&DSN":      return this.text( DSNAM, 44 );
+				case "&HLQ":      return this.qualifier( 1 );
+				case "&LLQ":      return this.qualifier( this.qualifiers() );
+				case "&NQUAL":    return String.valueOf( this.qualifiers() );
+				case "&DSORG":    return this.dsorg();
+				case "&RECFM":    return this.recfm();
+				case "&BLKSIZE":  return String.valueOf( this.buf.getShort( this.off+BKLNG ) & 0xFFFF );
+				case "&SIZE":     return String.valueOf( this.kb( ALLSP ) );
+				case "&MAXSIZE":  return String.valueOf( this.kb( ALLSP )+15*this.kb( SCALL ) );
+				case "&ANYVOL":
+				case "&ALLVOL":   return this.text( VOLSR, 6 );
+				case "&EXPDT":    return this.date( EXPDT );
+				case "&DSTYPE":   return this.isGds() ? "GDS" : "PERM";
+				case "&DATACLAS": return this.name( DATCL );
+				case "&STORCLAS": return this.name( STGCL );
+				case "&MGMTCLAS": return this.name( MGTCL );
+				case "&STORGRP":  return this.name( STGRP );
+			}
+			// &DSN(n) is the n'th qualifier
+			if( var.startsWith("&DSN(") && var.endsWith(")") ) {
+				try {
+					return this.qualifier( Integer.parseInt( var.substring( 5, var.length()-1 ) ) );
+				} catch( NumberFormatException e ) {
+					return null;
+				}
+			}
+			return null;
+		}
+
+		// entrySet
+		// Every variable the record has. Decodes them all, so only for looking at a record.
+		public Set<Entry<String,String>> entrySet() {
+			HashMap<String,String> all = new HashMap<String,String>();
+			for( String v : VARIABLES ) all.put( v, this.get( v ) );
+			return all.entrySet();
+		}
+
+		// text
+		// Decodes an EBCDIC field, without trailing blanks
+		protected String text( int at, int len ) {
+			int n = len;
+			while( n > 0 && this.buf.get( this.off+at+n-1 ) == 0x40 ) n--;
+			for( int i=0; i<n; i++ ) this.chars[i] = EBCDIC[this.buf.get( this.off+at+i ) & 0xFF];
+			return new String( this.chars, 0, n );
+		}
+
+		// name
+		// Decodes a class or group name that has a two byte length in front
+		protected String name( int at ) {
+			int len = Math.min( this.buf.getShort( this.off+at ) & 0xFFFF, 30 );
+			return this.text( at+2, len );
+		}
+
+		// qualifiers
+		// Counts the qualifiers of the data set name
+		protected int qualifiers() {
+			int n = 1;
+			for( int i=0; i<44; i++ ) {
+				byte b = this.buf.get( this.off+DSNAM+i );
+				if( b == 0x40 ) break;
+				if( b == 0x4B ) n++;
+			}
+			return n;
+		}
+
+		// qualifier
+		// Decodes the n'th qualifier of the data set name, or null if there isn't one
+		protected String qualifier( int q ) {
+			if( q < 1 ) return null;
+			int start = 0;
+			for( int i=1; i<q; i++ ) {
+				while( start < 44 && this.buf.get( this.off+DSNAM+start ) != 0x4B ) start++;
+				if( start++ >= 44 ) return null;
+			}
+			int end = start;
+			while( end < 44 && this.buf.get( this.off+DSNAM+end ) != 0x4B && this.buf.get( this.off+DSNAM+end ) != 0x40 ) end++;
+			return end > start ? this.text( DSNAM+start, end-start ) : null;
+		}
+
+		// isGds
+		// A generation data set's last qualifier is GnnnnVnn
+		protected boolean isGds() {
+			String llq = this.qualifier( this.qualifiers() );
+			if( llq == null || llq.length() != 8 || llq.charAt(0) != 'G' || llq.charAt(5) != 'V' ) return false;
+			for( int i : new int[] { 1, 2, 3, 4, 6, 7 } ) {
+				if( !Character.isDigit( llq.charAt(i) ) ) return false;
+			}
+			return true;
+		}
+
+		// dsorg
+		// DSORG from its bits, as ACS names it
+		protected String dsorg() {
+			int b1 = this.buf.get( this.off+DSORG ) & 0xFF;
+			int b2 = this.buf.get( this.off+DSORG+1 ) & 0xFF;
+			if( ( b2 & 0x08 ) != 0 ) return "VS";
+			if( ( b1 & 0x02 ) != 0 ) return "PO";
+			if( ( b1 & 0x40 ) != 0 ) return "PS";
+			if( ( b1 & 0x20 ) != 0 ) return "DA";
+			if( ( b1 & 0x80 ) != 0 ) return "IS";
+			return "";
+		}
+
+		// recfm
+		// RECFM from its bits: F, V or U, then B, S, A and M
+		protected String recfm() {
+			int b = this.buf.get( this.off+RECFM ) & 0xFF;
+			int n = 0;
+			switch( b & 0xC0 ) {
+				case 0xC0: this.chars[n++] = 'U'; break;
+				case 0x80: this.chars[n++] = 'F'; break;
+				case 0x40: this.chars[n++] = 'V'; break;
+				default: return "";
+			}
+			if( ( b & 0x10 ) != 0 ) this.chars[n++] = 'B';
+			if( ( b & 0x08 ) != 0 ) this.chars[n++] = 'S';
+			if( ( b & 0x04 ) != 0 ) this.chars[n++] = 'A';
+			if( ( b & 0x02 ) != 0 ) this.chars[n++] = 'M';
+			return new String( this.chars, 0, n );
+		}
+
+		// kb
+		// A fullword of KB
+		protected long kb( int at ) {
+			return this.buf.getInt( this.off+at ) & 0xFFFFFFFFL;
+		}
+
+		// date
+		// A packed 0CYYDDDF date as YYYYDDD, or '' if there isn't one
+		protected String date( int at ) {
+			int p = this.buf.getInt( this.off+at );
+			if( p == 0 ) return "";
+			int n = 0;
+			for( int shift=20; shift>=4; shift-=4 ) n = n*10+( ( p >>> shift ) & 0xF );
+			int c = ( p >>> 24 ) & 0xF;
+			return String.valueOf( ( 1900+c*100+n/1000 )*1000+n%1000 );
+		}
+	}
+}
@@ -0,0 +1,839 @@
+/*****************************
+ *
+ * CLASS:   ACSevaluator
+ * DATE :   10/16/2026
+ * Purpose: Works out which class a data set gets from the rules of
+ *          one extraction, given the data set's attributes.
+ *
+ *          The rules are read the same way as the CSV: a rule is true
+ *          if any of its rows is, and the rule with the highest sequence
+ *          that is true wins. Each EXIT is a rule of its own (see
+ *          ACSextract.visitExit), and if it is true, the routine stops
+ *          there, so nothing after it counts. A rule under a WHEN is
+ *          only true if no WHEN before it in the same SELECT is, since
+ *          only the first true WHEN runs. The CSV doesn't show that, so
+ *          those WHENs are kept with the rule (see ACSrule.Unless) and
+ *          checked whenever its rows are.
+ *
+ *          Rather than trying every row of every rule, the rows are
+ *          compiled into a discrimination tree. There are two kinds
+ *          of node:
+ *            - a key node tests one variable against the literals the
+ *              rows below it need it to equal (&DSORG = 'PS', &DSORG =
+ *              'PO'...), so one hash lookup skips every row that wants
+ *              another value.
+ *            - a pair node tests one pair that many rows share, such as
+ *              the condition of an outer IF, once for all of them.
+ *          Rows that don't need a node's test go on to the next node in
+ *          its rest chain, which is always followed. A row ends at a
+ *          node when nothing is worth splitting on, and whatever tests
+ *          it has left are checked there. Each distinct pair is only
+ *          tested once per data set, wherever it comes up.
+ *
+ *          The rules are cut into segments at each EXIT, and each
+ *          segment has its own tree. Segments are tried in order, so a
+ *          data set that reaches an EXIT early never looks at the rest
+ *          of the routine.
+ *
+ *          A row that tests the routine's own variable (&STORCLAS in a
+ *          STORCLAS routine) depends on the SETs before it, so those
+ *          rules are kept out of the trees and checked in sequence with
+ *          the rest of their segment, against the value set so far.
+ *
+ *          Comparisons follow ACS:
+ *            - masks: * is any characters within a qualifier, ** any
+ *              qualifiers and % one character (see ACSmask)
+ *            - numbers may have KB, MB, GB or TB, and are compared in KB
+ *            - &NAME is a FILTLIST if one has that name (see ACSmatcher),
+ *              else a variable
+ *            - &VAR(n) is the n'th qualifier of &VAR, unless given itself
+ *            - missing attributes are ''
+ *          Other ordering is by Java string compare, not EBCDIC.
+ *
+ *          Once built, an evaluator can be shared by any number of threads.
+ *
+ *****************************/
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class ACSevaluator {
+
+	// Rules, in sequence order, and what each one sets, without quotes
+	protected ACSrule[] rules;
+	protected String[] values;
+
+	// WHENs before each rule's own that must all be false for it to run, or null
+	protected Guard[] unless;
+
+	// Segments, each ending with an EXIT (or the last rule)
+	protected Segment[] segments;
+
+	// Rules that test the routine's own variable, in sequence order,
+	// with their rows. They are checked in turn with their segment.
+	protected int[] dependent;
+	protected ACSpair[][][] dependentRows;
+
+	// The routine's own variable, such as &STORCLAS
+	protected String procVar;
+	protected int procId;
+
+	// Every variable tested, by id. Their values are looked up once per data set.
+	protected HashMap<String,Integer> varIds;
+	protected ArrayList<String> varNames;
+
+	// For &VAR(n), &VAR and n, by id. null and 0 for other variables.
+	protected String[] wholeNames;
+	protected int[] qualifiers;
+
+	// FILTLISTs, by name without the &
+	protected HashMap<String,ACSmatcher> filtlists;
+
+	// How to test each pair, by pair id
+	protected Test[] tests;
+
+	protected long rowCount;
+	protected int nodeCount;
+
+	// Every row of each rule, for scan. Only made if scan is used.
+	protected ACSpair[][][] scanRows;
+
+	// Per thread work space, so evaluators can be shared
+	protected final ThreadLocal<Work> work = ThreadLocal.withInitial( () -> new Work( this.tests.length, this.varNames.size(), this.rules.length ) );
+
+	// Constructor
+	// Compiles the rules of a finished extraction. Rows are multiplied out
+	// the same way they are written: simplified unless nosimplify was given.
+	// maxrows and maxtotal are not used. They only limit what is written, and
+	// a rule missing some of its rows would quietly give data sets the class
+	// of another rule.
+	public ACSevaluator( ACSextract ex ) {
+		this( ex.getRules(), ex.getExits(), ex.getProcName(), ex.filtlists, ex.pairTable, ex.simplify );
+	}
+
+	// Constructor
+	// exitList has a rule for each EXIT, in order, with the sequence of the rule it comes before
+	public ACSevaluator( List<ACSrule> ruleList, List<ACSrule> exitList, String procName, List<ACSextract.ACSfiltlist> fls, ACSpairTable table, boolean simplify ) {
+		this.rules = ruleList.toArray( new ACSrule[0] );
+		this.values = new String[this.rules.length];
+		this.unless = new Guard[this.rules.length];
+		this.procVar = "&"+procName;
+		this.varIds = new HashMap<String,Integer>();
+		this.varNames = new ArrayList<String>();
+		this.procId = this.varId( this.procVar );
+
+		this.filtlists = new HashMap<String,ACSmatcher>();
+		for( ACSextract.ACSfiltlist f : fls ) this.filtlists.put( f.name, new ACSmatcher( f.include, f.exclude ) );
+
+		// Multiply out each rule and sort its rows into its segment or the dependent list
+		ArrayList<Segment> segs = new ArrayList<Segment>();
+		ArrayList<Row> rows = new ArrayList<Row>();
+		ArrayList<Integer> dep = new ArrayList<Integer>();
+		ArrayList<ACSpair[][]> depRows = new ArrayList<ACSpair[][]>();
+		int first = 0;
+		ACSflatten flat = new ACSflatten();
+		IdentityHashMap<ACSrule.Unless,Guard> guards = new IdentityHashMap<ACSrule.Unless,Guard>();
+		Iterator<ACSrule> exits = exitList.iterator();
+		ACSrule exit = exits.hasNext() ? exits.next() : null;
+		for( int r=0; r<=this.rules.length; r++ ) {
+			// End a segment at each EXIT before this rule
+			while( exit != null && ( r == this.rules.length || exit.getSequence() <= this.rules[r].getSequence() ) ) {
+				segs.add( new Segment( first, r-1, this.build( rows ), this.rows( exit, simplify, flat ), guard( exit.getUnless(), guards ) ) );
+				rows = new ArrayList<Row>();
+				first = r;
+				exit = exits.hasNext() ? exits.next() : null;
+			}
+			if( r == this.rules.length ) break;
+
+			this.values[r] = unquote( this.rules[r].getSetValue() );
+			this.unless[r] = guard( this.rules[r].getUnless(), guards );
+			ACSpair[][] mine = this.rows( this.rules[r], simplify, flat );
+			boolean tests = false;
+			for( ACSpair[] p : mine ) {
+				for( ACSpair cp : p ) tests |= cp.getVariable().equals( this.procVar );
+			}
+			this.rowCount += mine.length;
+			if( tests ) {
+				dep.add( r );
+				depRows.add( mine );
+			} else {
+				for( ACSpair[] p : mine ) rows.add( new Row( r, p ) );
+			}
+		}
+		// The rules after the last EXIT
+		segs.add( new Segment( first, this.rules.length-1, this.build( rows ), null, null ) );
+		this.segments = segs.toArray( new Segment[0] );
+		this.dependent = new int[dep.size()];
+		for( int i=0; i<this.dependent.length; i++ ) this.dependent[i] = dep.get(i);
+		this.dependentRows = depRows.toArray( new ACSpair[0][][] );
+
+		// Multiplying out can make new pairs, so they are all there by now
+		this.tests = new Test[table.size()];
+		for( int i=0; i<this.tests.length; i++ ) this.tests[i] = new Test( this, table.get(i) );
+
+		// Every variable has an id by now, so the qualifiers can be worked out once
+		int vars = this.varNames.size();
+		this.wholeNames = new String[vars];
+		this.qualifiers = new int[vars];
+		for( int i=0; i<vars; i++ ) this.qualifier( i );
+	}
+
+	// rows
+	// Multiplies out every row of one rule, the same way it is written
+	protected ACSpair[][] rows( ACSrule rule, boolean simplify, ACSflatten flat ) {
+		ArrayList<ACSpair[]> toRet = new ArrayList<ACSpair[]>();
+		Iterator<ACScondition> it = rule.rows( simplify, flat );
+		while( it.hasNext() ) {
+			toRet.add( it.next().getPairs().toArray( new ACSpair[0] ) );
+		}
+		return toRet.toArray( new ACSpair[0][] );
+	}
+
+	// qualifier
+	// Works out whether a variable is &VAR(n), and if so notes &VAR and n
+	protected void qualifier( int id ) {
+		String var = this.varNames.get( id );
+		int lp = var.indexOf( '(' );
+		if( lp > 0 && var.endsWith(")") ) {
+			try {
+				this.qualifiers[id] = Integer.parseInt( var.substring( lp+1, var.length()-1 ) );
+				this.wholeNames[id] = var.substring( 0, lp );
+			} catch( NumberFormatException e ) {
+				// Not a qualifier number
+			}
+		}
+	}
+
+	// varId
+	// Returns the id of a variable, giving it one the first time
+	protected int varId( String var ) {
+		Integer id = this.varIds.get( var );
+		if( id == null ) {
+			id = this.varNames.size();
+			this.varIds.put( var, id );
+			this.varNames.add( var );
+		}
+		return id;
+	}
+
+	// classify
+	// Returns the class the attributes get, without quotes, or null if no rule sets one.
+	// Attributes are keyed by variable, such as &DSN or &DSN(2).
+	public String classify( Map<String,String> attrs ) {
+		int r = this.match( attrs );
+		return r < 0 ? null : this.values[r];
+	}
+
+	// matchRule
+	// Returns the rule that decides the class, or null if none does
+	public ACSrule matchRule( Map<String,String> attrs ) {
+		int r = this.match( attrs );
+		return r < 0 ? null : this.rules[r];
+	}
+
+	// match
+	// Returns the index of the deciding rule, or -1
+	protected int match( Map<String,String> attrs ) {
+		Work w = this.work.get();
+		w.start( attrs );
+		String current = this.attr( this.procId, w );
+		int toRet = -1;
+		int d = 0;
+		for( Segment s : this.segments ) {
+			w.hitCount = 0;
+			this.walk( s.root, w );
+
+			// Rules from the tree, in sequence order, merged with the dependent rules
+			int[] hit = w.hits;
+			Arrays.sort( hit, 0, w.hitCount );
+			int h = 0;
+			while( h < w.hitCount || ( d < this.dependent.length && this.dependent[d] <= s.last ) ) {
+				int r;
+				if( d == this.dependent.length || this.dependent[d] > s.last || ( h < w.hitCount && hit[h] < this.dependent[d] ) ) {
+					r = hit[h++];
+				} else {
+					r = this.dependent[d];
+					if( !this.anyRow( this.dependentRows[d++], w, current ) ) continue;
+				}
+				if( this.excluded( this.unless[r], w, current ) ) continue;
+				toRet = r;
+				current = this.values[r];
+			}
+			if( this.exits( s, w, current ) ) return toRet;
+		}
+		return toRet;
+	}
+
+	// scan
+	// Same answer as match, found by trying every row of every rule in order.
+	// Only here to check the trees against, and to time them against.
+	protected int scan( Map<String,String> attrs ) {
+		ACSpair[][][] byRule = this.scanRows();
+		Work w = this.work.get();
+		w.start( attrs );
+		String current = this.attr( this.procId, w );
+		int toRet = -1;
+		for( Segment s : this.segments ) {
+			for( int r=s.first; r<=s.last; r++ ) {
+				if( !this.anyRow( byRule[r], w, current ) || this.excluded( this.unless[r], w, current ) ) continue;
+				toRet = r;
+				current = this.values[r];
+			}
+			if( this.exits( s, w, current ) ) break;
+		}
+		return toRet;
+	}
+
+	// scanRows
+	// The rows of each rule, gathered back out of the trees the first time scan is used
+	protected synchronized ACSpair[][][] scanRows() {
+		if( this.scanRows == null ) {
+			ArrayList<ArrayList<ACSpair[]>> byRule = new ArrayList<ArrayList<ACSpair[]>>();
+			for( int r=0; r<this.rules.length; r++ ) byRule.add( new ArrayList<ACSpair[]>() );
+			for( Segment s : this.segments ) this.collect( s.root, byRule, new ArrayList<ACSpair>() );
+			for( int d=0; d<this.dependent.length; d++ ) byRule.get( this.dependent[d] ).addAll( Arrays.asList( this.dependentRows[d] ) );
+			this.scanRows = new ACSpair[this.rules.length][][];
+			for( int r=0; r<this.rules.length; r++ ) this.scanRows[r] = byRule.get(r).toArray( new ACSpair[0][] );
+		}
+		return this.scanRows;
+	}
+
+	// getRowCount
+	// Returns the number of rows compiled
+	public long getRowCount() {
+		return this.rowCount;
+	}
+
+	// getNodeCount
+	// Returns the number of nodes in all the trees
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	// getSegmentCount
+	// Returns the number of segments, one more than the EXITs that split them
+	public int getSegmentCount() {
+		return this.segments.length;
+	}
+
+	// getProcVariable
+	// Returns the routine's own variable, such as &STORCLAS
+	public String getProcVariable() {
+		return this.procVar;
+	}
+
+	// getVariables
+	// Returns every variable the rules test
+	public List<String> getVariables() {
+		return new ArrayList<String>( this.varNames );
+	}
+
+
+	/*
+	 * The trees
+	 */
+
+	// Rules first to last and the tree for them, then the rows of the
+	// EXIT after them and the WHENs it is under, if there is one
+	protected static class Segment {
+		int first;
+		int last;
+		Node root;
+		ACSpair[][] exit;
+		Guard exitUnless;
+
+		Segment( int f, int l, Node n, ACSpair[][] x, Guard u ) {
+			this.first = f;
+			this.last = l;
+			this.root = n;
+			this.exit = x;
+			this.exitUnless = u;
+		}
+	}
+
+	// One row of a rule, and the pairs it still has to test
+	protected static class Row {
+		int rule;
+		ACSpair[] pairs;
+
+		Row( int r, ACSpair[] p ) {
+			this.rule = r;
+			this.pairs = p;
+		}
+
+		// without
+		// The same row without the pair at k
+		Row without( int k ) {
+			ACSpair[] p = new ACSpair[this.pairs.length-1];
+			System.arraycopy( this.pairs, 0, p, 0, k );
+			System.arraycopy( this.pairs, k+1, p, k, p.length-k );
+			return new Row( this.rule, p );
+		}
+	}
+
+	// One node.
+	// A key node has var set, and the rows that need var to equal a
+	// literal are under eq, by the literal. A pair node has pair set, and
+	// the rows that need it are under pass. Either way, the other rows
+	// are under rest. Rows that end at the node are in here.
+	// key is the pair tested to get to this node, if any.
+	protected static class Node {
+		ACSpair key;
+		String var;
+		int varId;
+		HashMap<String,Node> eq;
+		ACSpair pair;
+		Node pass;
+		Node rest;
+		int[] rules;
+		ACSpair[][] left;
+	}
+
+	// isKey
+	// Returns true if the pair can be looked up by value: EQ to a literal
+	protected static boolean isKey( ACSpair p ) {
+		return p.getComparison().relation() == ACSoperator.EQ && p.literal != null && !p.numeric;
+	}
+
+	// build
+	// Builds the nodes for a set of rows. Each node splits on the variable
+	// the most rows need to equal a literal, or failing that on the pair
+	// the most rows share. The rows that don't go under the node go to the
+	// next one along the rest chain, which is built here in a loop, since
+	// a routine with many variables can make it long.
+	protected Node build( List<Row> rows ) {
+		return this.build( rows, null );
+	}
+
+	protected Node build( List<Row> rows, ACSpair key ) {
+		Node first = null, last = null;
+		while( rows != null ) {
+			Node n = new Node();
+			this.nodeCount++;
+			if( last == null ) {
+				first = n;
+				n.key = key;
+			} else {
+				last.rest = n;
+			}
+			last = n;
+
+			// Count the key tests on each variable, and the other pairs
+			HashMap<String,Integer> keys = new HashMap<String,Integer>();
+			HashMap<ACSpair,Integer> pairs = new HashMap<ACSpair,Integer>();
+			for( Row r : rows ) {
+				for( ACSpair p : r.pairs ) {
+					if( isKey( p ) ) keys.merge( p.getVariable(), 1, Integer::sum );
+					else pairs.merge( p, 1, Integer::sum );
+				}
+			}
+			String var = null;
+			int most = 0;
+			for( Map.Entry<String,Integer> e : keys.entrySet() ) {
+				if( e.getValue() > most || ( e.getValue() == most && e.getKey().compareTo( var ) < 0 ) ) {
+					var = e.getKey();
+					most = e.getValue();
+				}
+			}
+			// A pair only helps if more than one row shares it
+			ACSpair pair = null;
+			if( var == null ) {
+				most = 1;
+				for( Map.Entry<ACSpair,Integer> e : pairs.entrySet() ) {
+					if( e.getValue() > most || ( e.getValue() == most && pair != null && e.getKey().getId() < pair.getId() ) ) {
+						pair = e.getKey();
+						most = e.getValue();
+					}
+				}
+			}
+
+			// Split the rows
+			ArrayList<Row> ends = new ArrayList<Row>();
+			HashMap<String,List<Row>> eq = new HashMap<String,List<Row>>();
+			HashMap<String,ACSpair> eqKey = new HashMap<String,ACSpair>();
+			ArrayList<Row> pass = new ArrayList<Row>();
+			ArrayList<Row> rest = new ArrayList<Row>();
+			for( Row r : rows ) {
+				int k = indexOf( r, var, pair );
+				if( k >= 0 && var != null ) {
+					ACSpair p = r.pairs[k];
+					eq.computeIfAbsent( p.literal, x -> new ArrayList<Row>() ).add( r.without( k ) );
+					eqKey.putIfAbsent( p.literal, p );
+				} else if( k >= 0 ) {
+					pass.add( r.without( k ) );
+				} else if( ( var != null || pair != null ) && r.pairs.length > 0 ) {
+					rest.add( r );
+				} else {
+					ends.add( r );
+				}
+			}
+
+			n.rules = new int[ends.size()];
+			n.left = new ACSpair[ends.size()][];
+			for( int i=0; i<n.rules.length; i++ ) {
+				n.rules[i] = ends.get(i).rule;
+				n.left[i] = ends.get(i).pairs;
+			}
+			if( var != null ) {
+				n.var = var;
+				n.varId = this.varId( var );
+				n.eq = new HashMap<String,Node>();
+				for( Map.Entry<String,List<Row>> e : eq.entrySet() ) {
+					n.eq.put( e.getKey(), this.build( e.getValue(), eqKey.get( e.getKey() ) ) );
+				}
+			} else if( pair != null ) {
+				n.pair = pair;
+				n.pass = this.build( pass, pair );
+			}
+			rows = rest.size() > 0 ? rest : null;
+		}
+		return first;
+	}
+
+	// indexOf
+	// Returns where in the row the first key test on the variable is,
+	// or if there's no variable, where the pair is. -1 if it isn't there.
+	protected static int indexOf( Row r, String var, ACSpair pair ) {
+		for( int i=0; i<r.pairs.length; i++ ) {
+			ACSpair p = r.pairs[i];
+			if( var != null ? isKey( p ) && p.getVariable().equals( var ) : p == pair ) return i;
+		}
+		return -1;
+	}
+
+	// walk
+	// Follows every branch of the tree the attributes allow, and
+	// records each rule with a row that is true
+	protected void walk( Node n, Work w ) {
+		for( ; n != null; n = n.rest ) {
+			for( int i=0; i<n.rules.length; i++ ) {
+				int r = n.rules[i];
+				if( w.isHit( r ) ) continue;
+				if( this.allTrue( n.left[i], w, null ) ) w.hit( r );
+			}
+			if( n.var != null ) {
+				Node next = n.eq.get( this.attr( n.varId, w ) );
+				if( next != null ) this.walk( next, w );
+			} else if( n.pair != null ) {
+				if( this.isTrue( n.pair, w ) ) this.walk( n.pass, w );
+			}
+		}
+	}
+
+	// collect
+	// Gathers the rows back out of a tree, by rule, with the pairs
+	// tested on the way down to them
+	protected void collect( Node n, List<ArrayList<ACSpair[]>> byRule, ArrayList<ACSpair> path ) {
+		if( n != null && n.key != null ) path.add( n.key );
+		for( Node c = n; c != null; c = c.rest ) {
+			for( int i=0; i<c.rules.length; i++ ) {
+				ACSpair[] p = Arrays.copyOf( path.toArray( new ACSpair[0] ), path.size()+c.left[i].length );
+				System.arraycopy( c.left[i], 0, p, path.size(), c.left[i].length );
+				byRule.get( c.rules[i] ).add( p );
+			}
+			if( c.eq != null ) for( Node e : c.eq.values() ) this.collect( e, byRule, path );
+			if( c.pass != null ) this.collect( c.pass, byRule, path );
+		}
+		if( n != null && n.key != null ) path.remove( path.size()-1 );
+	}
+
+
+	/*
+	 * Testing pairs
+	 */
+
+	// The rows of one WHEN, and the WHENs before it. Rules under the same
+	// WHEN share one, and the WHENs after it build on it.
+	protected static class Guard {
+		ACSpair[][] rows;
+		Guard next;
+
+		Guard( ACSpair[][] r, Guard n ) {
+			this.rows = r;
+			this.next = n;
+		}
+	}
+
+	// guard
+	// Returns the guard for a chain of WHENs, making what isn't made yet.
+	// Chains can be as long as a SELECT, so this doesn't recurse.
+	protected static Guard guard( ACSrule.Unless u, IdentityHashMap<ACSrule.Unless,Guard> made ) {
+		ArrayList<ACSrule.Unless> todo = new ArrayList<ACSrule.Unless>();
+		for( ; u != null && !made.containsKey( u ); u = u.next ) todo.add( u );
+		Guard toRet = u == null ? null : made.get( u );
+		for( int i=todo.size()-1; i>=0; i-- ) {
+			ACSrule.Unless t = todo.get(i);
+			ACSpair[][] rows = new ACSpair[t.conditions.size()][];
+			int k = 0;
+			for( ACScondition c : t.conditions ) rows[k++] = c.getPairs().toArray( new ACSpair[0] );
+			toRet = new Guard( rows, toRet );
+			made.put( t, toRet );
+		}
+		return toRet;
+	}
+
+	// excluded
+	// Returns true if one of the WHENs is true, so the rule or EXIT under
+	// the WHEN after them doesn't run
+	protected boolean excluded( Guard g, Work w, String current ) {
+		for( ; g != null; g = g.next ) {
+			if( this.anyRow( g.rows, w, current ) ) return true;
+		}
+		return false;
+	}
+
+	// How to test one pair, worked out once when the evaluator is built
+	protected static class Test {
+		static final int LITERAL = 0;
+		static final int MASK = 1;
+		static final int NUMBER = 2;
+		static final int FILTLIST = 3;
+		static final int VARIABLE = 4;
+
+		int kind;
+		int var;            // Id of the variable tested
+		ACSoperator relation;
+		String text;        // Literal, mask or the other variable
+		int other;          // Id of the other variable
+		long kb;            // Number, in KB
+		ACSmask mask;
+		ACSmatcher filter;
+
+		Test( ACSevaluator ev, ACSpair p ) {
+			this.var = ev.varId( p.getVariable() );
+			this.relation = p.getComparison().relation();
+			String pv = p.getValue();
+			if( p.literal == null && pv.startsWith("&") ) {
+				this.filter = ev.filtlists.get( pv.substring(1) );
+				this.kind = this.filter != null ? FILTLIST : VARIABLE;
+				this.text = pv;
+				if( this.filter == null ) this.other = ev.varId( pv );
+			} else if( p.numeric ) {
+				this.kind = NUMBER;
+				this.kb = kilobytes( pv );
+				this.text = pv;
+			} else if( p.literal == null ) {
+				this.kind = MASK;
+				this.text = unquote( pv );
+				this.mask = new ACSmask( this.text );
+			} else {
+				this.kind = LITERAL;
+				this.text = p.literal;
+			}
+		}
+	}
+
+	// exits
+	// Returns true if the EXIT that ends the segment is reached
+	protected boolean exits( Segment s, Work w, String current ) {
+		return s.exit != null && this.anyRow( s.exit, w, current ) && !this.excluded( s.exitUnless, w, current );
+	}
+
+	// anyRow
+	// Returns true if any of the rows is true
+	protected boolean anyRow( ACSpair[][] rows, Work w, String current ) {
+		for( ACSpair[] row : rows ) {
+			if( this.allTrue( row, w, current ) ) return true;
+		}
+		return false;
+	}
+
+	// allTrue
+	// Returns true if every pair of a row is true.
+	// current is the value of the routine's own variable so far, if it matters.
+	protected boolean allTrue( ACSpair[] row, Work w, String current ) {
+		for( ACSpair p : row ) {
+			Test t = this.tests[p.getId()];
+			if( current != null && t.var == this.procId ) {
+				if( !this.test( t, w, current ) ) return false;
+			} else if( !this.isTrue( p, w ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// isTrue
+	// Tests a pair against the data set, or remembers how it came out last time
+	protected boolean isTrue( ACSpair p, Work w ) {
+		int id = p.getId();
+		if( w.pairStamp[id] == w.stamp ) return w.pairValue[id];
+		boolean v = this.test( this.tests[id], w, null );
+		w.pairStamp[id] = w.stamp;
+		w.pairValue[id] = v;
+		return v;
+	}
+
+	// test
+	// Tests one pair against the value of its variable, or against
+	// the given value instead, if there is one
+	protected boolean test( Test t, Work w, String value ) {
+		ACSoperator r = t.relation;
+		String v = value != null ? value : this.attr( t.var, w );
+		switch( t.kind ) {
+			case Test.FILTLIST:
+				boolean in = t.filter.matches( v );
+				return r == ACSoperator.EQ ? in : r == ACSoperator.NE ? !in : false;
+			case Test.VARIABLE:
+				return holds( r, v.compareTo( this.attr( t.other, w ) ) );
+			case Test.NUMBER:
+				long k = value != null ? kilobytes( value ) : this.kilobytes( t.var, w );
+				return holds( r, k >= 0 ? Long.compare( k, t.kb ) : v.compareTo( t.text ) );
+			case Test.MASK:
+				if( r == ACSoperator.EQ ) return t.mask.matches( v );
+				if( r == ACSoperator.NE ) return !t.mask.matches( v );
+				return holds( r, v.compareTo( t.text ) );
+			default:
+				return holds( r, v.compareTo( t.text ) );
+		}
+	}
+
+	// holds
+	// Returns true if the relation holds, given how the value compared
+	protected static boolean holds( ACSoperator r, int c ) {
+		switch( r ) {
+			case EQ: return c == 0;
+			case NE: return c != 0;
+			case GT: return c > 0;
+			case LT: return c < 0;
+			case GE: return c >= 0;
+			case LE: return c <= 0;
+			default: return false;
+		}
+	}
+
+	// kilobytes
+	// Returns a number with an optional KB, MB, GB or TB in KB, or -1 if it isn't one.
+	// Called for every numeric test, so it doesn't make any Strings.
+	protected static long kilobytes( String v ) {
+		long n = 0;
+		int d = 0;
+		while( d < v.length() && v.charAt(d) >= '0' && v.charAt(d) <= '9' ) {
+			if( d == 18 ) return -1;
+			n = n*10+( v.charAt(d++)-'0' );
+		}
+		if( d == 0 ) return -1;
+		if( d == v.length() ) return n;
+		if( d+2 != v.length() || v.charAt(d+1) != 'B' ) return -1;
+		switch( v.charAt(d) ) {
+			case 'K': return n;
+			case 'M': return n<<10;
+			case 'G': return n<<20;
+			case 'T': return n<<30;
+			default: return -1;
+		}
+	}
+
+	// attr
+	// Returns the value of a variable for the data set being evaluated
+	protected String attr( int id, Work w ) {
+		if( w.varStamp[id] != w.stamp ) {
+			w.varValue[id] = this.lookup( id, w.attrs );
+			w.varStamp[id] = w.stamp;
+		}
+		return w.varValue[id];
+	}
+
+	// kilobytes
+	// Returns the value of a variable as a number in KB, or -1
+	protected long kilobytes( int id, Work w ) {
+		if( w.kbStamp[id] != w.stamp ) {
+			w.varKb[id] = kilobytes( this.attr( id, w ) );
+			w.kbStamp[id] = w.stamp;
+		}
+		return w.varKb[id];
+	}
+
+	// lookup
+	// Finds the value of a variable in the attributes.
+	// &VAR(n) falls back to the n'th qualifier of &VAR, found by
+	// stepping over the dots rather than splitting the whole name.
+	protected String lookup( int id, Map<String,String> attrs ) {
+		String v = attrs.get( this.varNames.get( id ) );
+		if( v != null ) return v;
+		String whole = this.wholeNames[id] == null ? null : attrs.get( this.wholeNames[id] );
+		int q = this.qualifiers[id];
+		if( whole == null || q < 1 ) return "";
+		int start = 0;
+		for( int i=1; i<q; i++ ) {
+			start = whole.indexOf( '.', start )+1;
+			if( start == 0 ) return "";
+		}
+		int end = whole.indexOf( '.', start );
+		return whole.substring( start, end < 0 ? whole.length() : end );
+	}
+
+	// unquote
+	// Removes the quotes from a literal
+	public static String unquote( String v ) {
+		if( v.length() >= 2 && v.startsWith("'") && v.endsWith("'") ) return v.substring( 1, v.length()-1 );
+		return v;
+	}
+
+	// normalize
+	// Makes an attribute value look like it would in the routine:
+	// upper case, without quotes
+	public static String normalize( String v ) {
+		return unquote( v.trim() ).toUpperCase( Locale.ROOT );
+	}
+
+
+	/*
+	 * Work space for one thread
+	 */
+
+	// Values of the variables looked up so far, results of the pairs tested
+	// so far and the rules found true so far, for the data set being
+	// evaluated. The stamp changes for each data set, so nothing has to be
+	// cleared between them.
+	protected static class Work {
+		Map<String,String> attrs;
+		int stamp;
+		int[] varStamp;
+		String[] varValue;
+		int[] kbStamp;
+		long[] varKb;
+		int[] pairStamp;
+		boolean[] pairValue;
+		int[] ruleStamp;
+		int[] hits;
+		int hitCount;
+
+		Work( int pairs, int vars, int rules ) {
+			this.varStamp = new int[vars];
+			this.varValue = new String[vars];
+			this.kbStamp = new int[vars];
+			this.varKb = new long[vars];
+			this.pairStamp = new int[pairs];
+			this.pairValue = new boolean[pairs];
+			this.ruleStamp = new int[rules];
+			this.hits = new int[rules];
+		}
+
+		void start( Map<String,String> a ) {
+			this.attrs = a;
+			this.hitCount = 0;
+			if( ++this.stamp == 0 ) {
+				Arrays.fill( this.varStamp, 0 );
+				Arrays.fill( this.kbStamp, 0 );
+				Arrays.fill( this.pairStamp, 0 );
+				Arrays.fill( this.ruleStamp, 0 );
+				this.stamp = 1;
+			}
+		}
+
+		boolean isHit( int r ) {
+			return this.ruleStamp[r] == this.stamp;
+		}
+
+		void hit( int r ) {
+			this.ruleStamp[r] = this.stamp;
+			this.hits[this.hitCount++] = r;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*****************************
+ *
+ * CLASS:   ACSevents
+ * DATE :   10/16/2026
+ * Purpose: JDK Flight Recorder events for an extraction.
+ *          Only made with the jfr option. Loading the first event class
+ *          pulls in jdk.jfr, which costs most of a second, so without
+ *          the option nothing refers to this class at all.
+ *          To capture them, give jfr and start java with something like
+ *            -XX:StartFlightRecording=filename=acs.jfr,settings=profile
+ *          and read the recording with "jfr print --events acs.* acs.jfr"
+ *          or JDK Mission Control.
+ *
+ *          Parse   - reading the routine and walking it into rules
+ *                    (when streaming, that includes writing them)
+ *          Set     - one SET statement, with the condition stack depth
+ *          Flatten - multiplying out and writing one rule
+ *
+ *****************************/
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public class ACSevents {
+
+	@Name( "acs.Parse" )
+	@Label( "ACS Parse" )
+	@Category( "ACS Extract" )
+	public static class Parse extends Event {
+		@Label( "Input" )
+		String input;
+		@Label( "Routine" )
+		String proc;
+		@Label( "Tokens" )
+		long tokens;
+		@Label( "Rules" )
+		int rules;
+	}
+
+	@Name( "acs.Set" )
+	@Label( "ACS SET" )
+	@Category( "ACS Extract" )
+	public static class Set extends Event {
+		@Label( "Sequence" )
+		int sequence;
+		@Label( "Line" )
+		int line;
+		@Label( "Value" )
+		String value;
+		@Label( "Condition Depth" )
+		int depth;
+	}
+
+	@Name( "acs.Flatten" )
+	@Label( "ACS Flatten" )
+	@Category( "ACS Extract" )
+	public static class Flatten extends Event {
+		@Label( "Sequence" )
+		int sequence;
+		@Label( "Line" )
+		int line;
+		@Label( "Rows" )
+		long rows;
+	}
+}
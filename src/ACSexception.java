@@ -0,0 +1,19 @@
+/*****************************
+ *
+ * CLASS:   ACSexception
+ * DATE :   10/16/2026
+ * Purpose: Thrown when an extraction cannot continue.
+ *          Single-file runs simply end the program, but batch runs
+ *          share one JVM, so the failure is passed back to the batch
+ *          driver and recorded against that input instead.
+ *
+ *****************************/
+public class ACSexception extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	// Constructor, accepts the failure message
+	public ACSexception( String message ) {
+		super( message );
+	}
+}
@@ -0,0 +1,132 @@
+/*****************************
+ *
+ * CLASS:   ACSexpansion
+ * DATE :   10/16/2026
+ * Purpose: Walks the rows of a rule one at a time.
+ *          A rule is a list of layers, one per IF / WHEN / ELSE on the
+ *          condition stack. Each layer is a list of conditions joined
+ *          by OR, and the layers are joined by AND. Multiplied out, that
+ *          is one row for every way of picking one condition per layer.
+ *
+ *          Rather than building every row up front, this steps through
+ *          the picks like an odometer. It keeps the AND of the picks from
+ *          the top layer down, so moving to the next row only redoes the
+ *          layers whose pick changed. Rows come out in the same order as
+ *          ANDconditions would build them: top layer slowest. Within a row,
+ *          the pairs of the innermost IF come first, then each one outside
+ *          it, as when the stack was ANDed from the bottom up.
+ *
+ *          With pruning on, a running AND that can never be true stops
+ *          the walk at that layer: every row below it would contain the
+ *          same contradiction, so the whole branch is skipped at once.
+ *
+ *****************************/
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class ACSexpansion implements Iterator<ACScondition> {
+
+	// Layers with at least one condition. Layer 0 is the bottom of the stack.
+	protected ACScondition[][] layers;
+	// Current pick in each layer
+	protected int[] idx;
+	// part[i] = AND of the picks in layers i to the top
+	protected ACScondition[] part;
+	// Row to hand back from next(), or null when done
+	protected ACScondition nextRow;
+	// Skip combinations that can never be true
+	protected boolean prune;
+
+	// Constructor
+	// An empty layer adds no conditions, the same as ANDconditions treats it.
+	// A rule with no conditions at all has a single row with no pairs.
+	public ACSexpansion( List<LinkedList<ACScondition>> stack, ACSpairTable table ) {
+		this( stack, table, false );
+	}
+
+	public ACSexpansion( List<LinkedList<ACScondition>> stack, ACSpairTable table, boolean prune ) {
+		this.prune = prune;
+		LinkedList<ACScondition[]> used = new LinkedList<ACScondition[]>();
+		for( LinkedList<ACScondition> l : stack ) {
+			if( l.size() > 0 ) used.add( l.toArray( new ACScondition[l.size()] ) );
+		}
+		this.layers = used.toArray( new ACScondition[used.size()][] );
+		this.idx = new int[this.layers.length];
+		this.part = new ACScondition[this.layers.length];
+
+		if( this.layers.length == 0 ) {
+			this.nextRow = new ACScondition( table );
+		} else {
+			this.fill( this.layers.length-1 );
+		}
+	}
+
+	// fill
+	// Recomputes the running AND from the given layer down to the bottom,
+	// and sets nextRow. Layers below 'from' must be at their first pick.
+	// When pruning, a layer whose running AND can't be true moves straight
+	// on to its next pick, skipping every row underneath it.
+	protected void fill( int from ) {
+		int top = this.layers.length-1;
+		int i = from;
+		while( i >= 0 ) {
+			ACScondition pick = this.layers[i][this.idx[i]];
+			this.part[i] = ( i == top ) ? pick : this.part[i+1].and( pick );
+			if( this.prune && !this.part[i].isSatisfiable() ) {
+				i = this.step( i );
+				if( i > top ) {
+					this.nextRow = null;
+					return;
+				}
+				continue;
+			}
+			i--;
+		}
+		this.nextRow = this.part[0];
+	}
+
+	// step
+	// Moves the pick in the given layer on by one, carrying into the layers
+	// above like an odometer. Returns the highest layer that changed, which
+	// is past the top when every combination has been used.
+	protected int step( int from ) {
+		int i;
+		for( i=from; i<this.layers.length; i++ ) {
+			if( ++this.idx[i] < this.layers[i].length ) break;
+			this.idx[i] = 0;
+		}
+		return i;
+	}
+
+	// advance
+	// Moves to the next combination. The bottom layer changes fastest.
+	protected void advance() {
+		int i = this.step( 0 );
+		if( i < this.layers.length ) this.fill( i );
+		else this.nextRow = null;
+	}
+
+	// total
+	// Returns the number of rows the rule multiplies out to
+	public long total() {
+		long toRet = 1;
+		for( ACScondition[] l : this.layers ) {
+			toRet *= l.length;
+			if( toRet < 0 ) return Long.MAX_VALUE;
+		}
+		return toRet;
+	}
+
+	public boolean hasNext() {
+		return this.nextRow != null;
+	}
+
+	public ACScondition next() {
+		if( this.nextRow == null ) throw new NoSuchElementException();
+		ACScondition toRet = this.nextRow;
+		this.advance();
+		return toRet;
+	}
+}
@@ -1,10 +1,11 @@
 import java.io.*;
-import java.io.StreamTokenizer;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 import java.util.LinkedList;
+import java.util.Iterator;
 
 /*************************************************************
  * ACSextract
@@ -20,21 +21,48 @@ import java.util.LinkedList;
  *
  * Syntax:
  *   - java ACSextract acsfile <output> <options>
+ *       acsfile - is standard input, and output - is standard output,
+ *       for pipelines. Messages then go to standard error.
+ *   - java ACSextract batch <dir|glob|@listfile> <outdir> <options>
+ *   - java ACSextract library unload.txt <outdir> <options>
+ *       Same as batch with the library option. See ACSlibrary.
+ *   - java ACSextract generate <outfile|-> <options>   (see ACSgenerate)
+ *   - java ACSextract classify acsfile datasets.csv <output> <options>   (see ACSclassify)
+ *   - java ACSextract simulate acsfile inventory.csv <output> <options>  (see ACSsimulate)
  *
  * General algorithm:
- *   - Repeatedly loop over the next token
- *   - For IF and SELECT options, grab the condition statement
- *     in handleCondition. Then recursively call handleKeyword
- *     to handle statements within an IF or SELECT field.
- *     Stack the condition on a condition stack.
- *   - When a SET is encountered, merge the condition stack
- *     and create an ACS rule.
- *   - On END, pop off the associated condition statement
- *   - After all keywords are processed, print
+ *   - ACSparser reads the routine once into a tree of ACSnodes
+ *   - Walk the tree, as an ACSnode.Visitor
+ *   - For IF and SELECT, turn the condition into a list of
+ *     conditions and stack it on a condition stack while the
+ *     statements within the IF or SELECT field are walked.
+ *   - When a SET is encountered, copy the condition stack
+ *     into an ACS rule. The rule multiplies it out into rows
+ *     when it is written.
+ *   - At the end of the IF or SELECT field, pop off the condition
+ *   - After all statements are walked, print
  *     all the variables and each rule.
  *
  * Available options:
  *   - debug    : prints lots of debug messages
+ *   - debug=n  : 1 for each statement, 2 (same as debug) adds every token
+ *   - maxrows=n  : stop multiplying out a rule after n rows
+ *   - maxtotal=n : stop multiplying out rules after n rows in total
+ *   - nosimplify : write every row, even ones that can never be true
+ *                  or are already covered by another row of the rule
+ *   - engine=bdd : keep conditions as a BDD (see ACSbdd) instead of
+ *                  lists of conditions. engine=list is the default.
+ *   - stream     : write each rule as it is found instead of keeping
+ *                  them all. Only the parsed routine is kept.
+ *   - format=jsonl : write JSON Lines instead of CSV (format=csv)
+ *   - echo       : also print the output on the console
+ *   - encoding=cs : character set of the input, such as IBM-1047 or
+ *                  IBM-037 for EBCDIC straight from z/OS. 1047 and 037
+ *                  are enough. ebcdic is the same as encoding=IBM-1047.
+ *                  Default is the platform's.
+ *   - fb80       : the input is 80 column records with sequence numbers
+ *                  in columns 73-80. They are blanked out as the member
+ *                  is loaded, instead of guessing at 8 digit words.
  *
  * Data structures:
  *   ACSrule = set of ACSconditions and a SET
@@ -42,17 +70,59 @@ import java.util.LinkedList;
  *   ACSpair = stores VAR OP VAR, such as DSN = 'BOB'
  *
  *************************************************************/
-public class ACSextract {
+public class ACSextract implements ACSnode.Visitor<LinkedList<ACScondition>> {
 
-	// DEBUG option
-	protected boolean DEBUG = false;
+	// Trace level, set by the debug option. Trace points below the
+	// level cost one compare, and build no message. See trace().
+	public static final int TRACE_OFF = 0;
+	public static final int TRACE_STATEMENTS = 1;   // Each statement handled
+	public static final int TRACE_TOKENS = 2;       // Each token read, and condition lists
+	protected int traceLevel = TRACE_OFF;
 
 	// Variables for file input reader
-	protected StreamTokenizer st;
-	protected boolean eof;
+	protected ACSlexer st;
+
+	// The routine, parsed once into a tree. See ACSparser and ACSnode.
+	// The rules are made by walking it, and line is the line of the
+	// statement being walked, for messages.
+	protected ACSnode.Routine routine;
+	protected int line;
 
 	// Variables for writing
+	// Output goes through the sink, which writes on its own thread
 	protected BufferedWriter out;
+	protected ACSsink sink;
+	protected String format = "csv";    // csv or jsonl
+	protected boolean echo = false;     // Echo the output to the console
+	protected String outputName;
+
+	// Counters and timers, written next to the output at the end. See ACSstats.
+	protected ACSstats stats;
+	protected long rowCount;            // Number of rule rows written
+
+	// Batch processing
+	// When true, failures are thrown back to the batch driver
+	// instead of ending the JVM, and messages are tagged with the input name.
+	protected boolean batch = false;
+	protected String inputName;
+
+	// Row budgets. Rules are multiplied out into rows as they are written,
+	// and these stop the expansion. Zero means no limit.
+	protected long maxRows = 0;         // Per rule
+	protected long maxTotal = 0;        // Per run
+	protected int truncated;            // Number of rules cut short by a budget
+	protected int skipped;              // Rules not written at all because of maxtotal
+	protected int skippedFrom;          // Line of the first of those
+
+	// Leave out rows that can't be true or that another row already covers
+	protected boolean simplify = true;
+
+	// BDD engine. Null when using lists of conditions.
+	// bddStack holds the AND of each layer of the condition stack with
+	// every layer below it, so the top is the condition for a SET.
+	protected boolean useBdd = false;
+	protected ACSbdd bdd;
+	protected Stack<Integer> bddStack;
 
 	// Condition stack
 	// Stack holds a linked list of ACScondition objects
@@ -62,11 +132,41 @@ public class ACSextract {
 	protected Stack<LinkedList<ACScondition>> conditionStack;
 	protected int doDepth;
 
+	// Flattened condition stack of the last rule written.
+	// Rules under the same IF nest reuse the work done for the rule before them.
+	protected ACSflatten flattened;
+
+	// WHENs before the current one, in each SELECT we are in. See ACSrule.Unless.
+	protected ACSrule.Unless unless;
+
 	// LinkedList of rules
 	protected LinkedList<ACSrule> rules;
+	protected ACSrule lastRule;         // Most recent rule, for EXIT. When streaming, not yet written.
+	protected LinkedList<ACSrule> exits; // One rule per EXIT, with its conditions, for ACSevaluator
+
+	// Streaming. Rules are written as they are made instead of being kept.
+	protected boolean stream = false;
+
+	// Flight Recorder events (see ACSevents). Without this, ACSevents is
+	// never touched, so none of jdk.jfr is loaded.
+	protected boolean jfr = false;
+
+	// Input is 80 column records with sequence numbers in 73-80, which the
+	// lexer blanks out. Otherwise any 8 digit word is taken for one.
+	protected boolean fixedRecords = false;
+
+	// Character set of the input
+	protected Charset encoding = Charset.defaultCharset();
+
+	// Where messages go. Standard error when the output is standard output.
+	protected PrintStream console = System.out;
 	protected int ruleSequence;
 
-	// LinkedList of all of the variables used in tests in the ACS
+	// Every distinct VAR / OP / VALUE pair in the ACS
+	protected ACSpairTable pairTable;
+
+	// LinkedList of all of the variables used in tests in the ACS,
+	// in the order they were found
 	protected LinkedList<String> variableList;
 
 	// String representing which ACS routine we're processing
@@ -84,6 +184,28 @@ public class ACSextract {
 		// Otherwise create object and call run();
 		else {
 			if( argz[0].equals("?") || argz[0].equals("-?") || argz[0].toLowerCase().equals("help") ) help();
+			// Batch mode processes many routines in one JVM
+			else if( argz[0].toLowerCase().equals("batch") ) {
+				ACSbatch.main( java.util.Arrays.copyOfRange( argz, 1, argz.length ) );
+			}
+			// Library is a batch run over the routines in an unload
+			else if( argz[0].toLowerCase().equals("library") ) {
+				String[] b = java.util.Arrays.copyOfRange( argz, 1, argz.length+1 );
+				b[b.length-1] = "library";
+				ACSbatch.main( b );
+			}
+			// Generate writes a synthetic routine for testing
+			else if( argz[0].toLowerCase().equals("generate") ) {
+				ACSgenerate.main( java.util.Arrays.copyOfRange( argz, 1, argz.length ) );
+			}
+			// Classify evaluates the rules against a list of data sets
+			else if( argz[0].toLowerCase().equals("classify") ) {
+				ACSclassify.main( java.util.Arrays.copyOfRange( argz, 1, argz.length ) );
+			}
+			// Simulate does the same for a whole inventory, on every CPU, and counts the classes
+			else if( argz[0].toLowerCase().equals("simulate") ) {
+				ACSsimulate.main( java.util.Arrays.copyOfRange( argz, 1, argz.length ) );
+			}
 			else {
 				ACSextract in = new ACSextract( argz );
 				in.run();
@@ -95,72 +217,28 @@ public class ACSextract {
 	// Constructor
 	// Set up object settings
 	public ACSextract( String[] argz ) {
-		// End of file = false
-		this.eof = false;
 		try {
-			// Initialize the tokenizer
-			Reader r = new BufferedReader( new FileReader(argz[0]) );
-			this.st = new StreamTokenizer(r);
-			this.st.resetSyntax();
-
-			/* Define word characters */
-			this.st.wordChars(42,42);        /* asterisk for mask */
-			this.st.wordChars('%','%');      /* % sign for mask */
-			this.st.wordChars(48,57);        /* numbers  */
-			this.st.wordChars(65,90);        /* uppercase letters */
-			this.st.wordChars(97,122);       /* lowercase letters */
-			this.st.wordChars(95,95);        /* underscore */
-			this.st.wordChars(38,38);        /* ampersand  */
-			//this.st.wordChars('\'','\'');    /* quote      */
-			this.st.wordChars('.', '.');     /* Period     */
-			this.st.quoteChar('\'');
-
-			/* Other tokenizer settings */
-			this.st.slashStarComments(true); /* skip comments */
-			this.st.whitespaceChars(9,32);   /* whitespace    */
-			this.st.whitespaceChars(43,43);  /* whitespace +  */
-			this.st.whitespaceChars(45,45);  /* whitespace -  */
-
 			// Create output data set name
-			String dsn = "";
-			if( argz[0].lastIndexOf(".") > 0 ) {
-				dsn = argz[0].substring(0,argz[0].lastIndexOf("."))+".csv";
-			} else {
-				dsn = argz[0]+".csv";
-			}
+			String dsn = null;
 
 			// If name is passed in
 			if( argz.length >= 2 ) {
-				if( argz[1].equals("debug") ) this.DEBUG = true;
-				else dsn = argz[1];
+				if( !this.setOption( argz[1] ) ) dsn = argz[1];
 			}
-			// Open the output file
-			out = new BufferedWriter( new FileWriter( dsn ) );
 
 			/* Process any options */
 			if( argz.length > 2 ) {
 				for( int i=2; i<argz.length; i++ ) {
-					switch( argz[i] ) {
-						case "debug":
-							this.DEBUG = true;
-							break;
-					}
+					if( !this.setOption( argz[i] ) ) System.out.println( "Unknown option: "+argz[i]+"... Moving on." );
 				}
 			}
 
-			/* Initialize condition stack */
-			this.conditionStack = new Stack<LinkedList<ACScondition>>();
-			this.doDepth = 0;
-
-			/* Initialize rules list */
-			this.rules = new LinkedList<ACSrule>();
-			this.ruleSequence = 1;
+			// Default output name, with the extension for the format.
+			// Standard input goes to standard output.
+			if( dsn == null ) dsn = argz[0].equals("-") ? "-" : defaultOutput( argz[0], this.getExtension() );
 
-			/* Initialize list of variables */
-			this.variableList = new LinkedList<String>();
-
-			/* Initialize FILTLISTS */
-			this.filtlists = new LinkedList<ACSfiltlist>();
+			// Open the input and output files
+			this.open( argz[0], dsn );
 
 		} catch (Exception ex) {
 			ex.printStackTrace();
@@ -168,6 +246,161 @@ public class ACSextract {
 		}
 	}
 
+	// Constructor
+	// Default settings and no input. Used to check options before a batch run.
+	public ACSextract() {
+	}
+
+	// Constructor
+	// Used by batch processing, where many extractions share one JVM.
+	// Problems are thrown back to the caller instead of ending the program,
+	// and the output is not echoed to the console.
+	// With no output file, nothing is written. See parse().
+	public ACSextract( String inFile, String outFile, String[] options ) throws IOException {
+		this.batch = true;
+		this.echo = false;
+		for( String o : options ) this.setOption( o );
+		this.open( inFile, outFile );
+	}
+
+	// Constructor
+	// Same, for a routine already read, such as one member of an ACSlibrary.
+	// The name is only used in messages and the stats file.
+	public ACSextract( ACSlexer source, String inName, String outFile, String[] options ) throws IOException {
+		this.batch = true;
+		this.echo = false;
+		for( String o : options ) this.setOption( o );
+		this.open( source, inName, outFile );
+	}
+
+	// Constructor
+	// Same, for a routine that has already been parsed, such as by another
+	// ACSextract. See getRoutine(). Nothing is read, so the tree can be
+	// extracted again with other options, or by several threads at once.
+	public ACSextract( ACSnode.Routine routine, String inName, String outFile, String[] options ) throws IOException {
+		this( (ACSlexer)null, inName, outFile, options );
+		this.routine = routine;
+	}
+
+	// setOption
+	// Applies one command line option.
+	// Returns false if the option isn't recognized.
+	public boolean setOption( String opt ) {
+		try {
+			if( opt.equals("debug") ) this.traceLevel = TRACE_TOKENS;
+			else if( opt.startsWith("debug=") ) this.traceLevel = Integer.parseInt( opt.substring(6) );
+			else if( opt.startsWith("maxrows=") ) this.maxRows = Long.parseLong( opt.substring(8) );
+			else if( opt.startsWith("maxtotal=") ) this.maxTotal = Long.parseLong( opt.substring(9) );
+			else if( opt.equals("nosimplify") ) this.simplify = false;
+			else if( opt.equals("stream") ) this.stream = true;
+			else if( opt.equals("engine=bdd") ) this.useBdd = true;
+			else if( opt.equals("engine=list") ) this.useBdd = false;
+			else if( opt.equals("format=csv") || opt.equals("format=jsonl") ) this.format = opt.substring(7);
+			else if( opt.equals("echo") ) this.echo = true;
+			else if( opt.equals("jfr") ) this.jfr = true;
+			else if( opt.equals("fb80") ) this.fixedRecords = true;
+			else if( opt.equals("ebcdic") ) this.encoding = charset( "1047" );
+			else if( opt.startsWith("encoding=") ) this.encoding = charset( opt.substring(9) );
+			else return false;
+		} catch( IllegalArgumentException e ) {
+			// Bad numbers and unknown character sets
+			return false;
+		}
+		return true;
+	}
+
+	// charset
+	// Looks up a character set. A code page number on its own, such as
+	// 1047 or 037, is taken to be IBM's.
+	public static Charset charset( String name ) {
+		if( name.matches( "[0-9]+" ) ) name = "IBM"+( name.length() < 3 ? "0"+name : name );
+		return Charset.forName( name );
+	}
+
+	// open
+	// Initializes the tokenizer, opens the output file and
+	// sets up the empty condition stack, rule and variable lists.
+	protected void open( String inFile, String outFile ) throws IOException {
+		// Initialize the tokenizer
+		// Reads the whole routine into memory. See ACSlexer for the syntax rules.
+		long t = System.nanoTime();
+		ACSlexer source = ACSlexer.open( inFile, this.encoding, this.fixedRecords );
+		t = System.nanoTime()-t;
+		this.open( source, inFile, outFile );
+		this.stats.tokenizeNanos += t;
+	}
+
+	// open
+	// Same, for a routine that has already been read
+	protected void open( ACSlexer source, String inFile, String outFile ) throws IOException {
+		this.inputName = inFile;
+		this.outputName = outFile;
+		this.stats = new ACSstats();
+		this.st = source;
+
+		// Open the output file
+		if( outFile != null ) {
+			// Standard output keeps the messages out of the way on standard error
+			if( outFile.equals("-") ) {
+				this.out = new BufferedWriter( new OutputStreamWriter( System.out ) );
+				this.console = System.err;
+			} else {
+				this.out = new BufferedWriter( new FileWriter( outFile ) );
+			}
+			PrintStream e = this.echo && this.console == System.out ? System.out : null;
+			ACSsink fs = this.format.equals("jsonl") ? new ACSjsonSink( this.out, e, this.stats ) : new ACScsvSink( this.out, e, this.stats );
+			this.sink = new ACSasyncSink( fs );
+		}
+
+		/* Initialize condition stack */
+		this.conditionStack = new Stack<LinkedList<ACScondition>>();
+		this.doDepth = 0;
+		this.flattened = new ACSflatten();
+		this.unless = null;
+
+		/* Initialize rules list */
+		this.rules = new LinkedList<ACSrule>();
+		this.lastRule = null;
+		this.exits = new LinkedList<ACSrule>();
+		this.ruleSequence = 1;
+		this.rowCount = 0;
+		this.truncated = 0;
+		this.skipped = 0;
+
+		/* Initialize list of variables and pairs */
+		this.variableList = new LinkedList<String>();
+		this.pairTable = new ACSpairTable();
+		if( this.useBdd ) {
+			this.bdd = new ACSbdd( this.pairTable );
+			this.bddStack = new Stack<Integer>();
+		}
+
+		/* Initialize FILTLISTS */
+		this.filtlists = new LinkedList<ACSfiltlist>();
+	}
+
+	// defaultOutput
+	// Builds the output file name from the input name by
+	// replacing the extension with .csv
+	public static String defaultOutput( String inFile ) {
+		return defaultOutput( inFile, ".csv" );
+	}
+
+	// defaultOutput
+	// Same, with a given extension
+	public static String defaultOutput( String inFile, String ext ) {
+		if( inFile.lastIndexOf(".") > 0 ) {
+			return inFile.substring(0,inFile.lastIndexOf("."))+ext;
+		}
+		return inFile+ext;
+	}
+
+	// getExtension
+	// Returns the file extension for the output format
+	public String getExtension() {
+		return "."+this.format;
+	}
+
 	// Main Proc
 	// Runs all the other subroutines
 	//
@@ -175,55 +408,71 @@ public class ACSextract {
 	// - Read in ACS          |
 	// - Strip out comments   | handled by tokenizer
 	// - Tokenize             |
-	// - Loop over keywords and process each one
+	// - Parse into a tree    | handled by ACSparser
+	// - Walk the tree, making a rule for each SET
+	//
+	// The tree already lists the variables for the header, so when
+	// streaming, the header goes first and each rule is written as soon
+	// as the next SET (or the end) shows no EXIT follows it.
 	public void run() {
 
-		// While there is still more to read.
-		while( !this.eof ) {
-			this.handleKeywords();
-		}
-		// When this finishes, the entire file has been read and processed
-
-		// Generate header row
-		String vars = this.procName+",";
-		for( String cv : this.variableList ) {
-			vars += cv+",";
-		}
-		vars += "Seq,Exit,LineNum";
-
 		try {
-			// Print the header
-			System.out.println( vars );
-			this.out.write( vars + "\n" );
-
-			// Print the rule set
-			for( ACSrule cr : this.rules ) {
-				String output = cr.toCSV( this.variableList );
-				System.out.print( output );
-				this.out.write( output );
+			// Time spent writing rules while streaming is counted as flatten, not parse
+			long t = System.nanoTime();
+			long f = this.stats.flattenNanos;
+			ACSevents.Parse pe = null;
+			if( this.jfr ) {
+				pe = new ACSevents.Parse();
+				pe.begin();
+			}
+			this.parseRoutine();
+			if( this.stream ) this.writeHeader();
+
+			// Make the rules
+			this.visit( this.routine );
+			// When this finishes, the entire file has been read and processed
+			this.stats.parseNanos += System.nanoTime()-t-(this.stats.flattenNanos-f);
+			if( pe != null && pe.shouldCommit() ) {
+				pe.input = this.inputName;
+				pe.proc = this.procName;
+				pe.tokens = this.getTokenCount();
+				pe.rules = this.getRuleCount();
+				pe.commit();
+			}
+
+			if( this.stream ) {
+				// Write the last rule
+				this.flushRule();
+			} else {
+				// Print the header, then the rule set
+				this.writeHeader();
+				for( ACSrule cr : this.rules ) {
+					this.writeRule( cr );
+				}
+			}
+			if( this.skipped > 0 ) {
+				this.warn( "Stopped after "+this.rowCount+" rows. "+this.skipped+
+				           " rules from line "+this.skippedFrom+" on were not written. Raise maxtotal= to see the rest." );
 			}
 
 			// Print FILTLISTS
-			System.out.println("");
-			System.out.println("FILTLISTS\nNAME,INCLUDE,EXCLUDE");
-			this.out.write( "\n" );
-			this.out.write( "FILTLISTS\nNAME,INCLUDE,EXCLUDE\n");
-
-			// Loop over and print filtlists
-			String toPrint = "";
-			this.debug( "Filtlist list size: "+this.filtlists.size() );
+			this.sink.endRows();
+			this.trace( TRACE_STATEMENTS, "Filtlist list size: ", this.filtlists.size() );
 			for( ACSfiltlist af : this.filtlists ) {
-				toPrint = af.name + ",\""+af.include+"\",\""+af.exclude+"\"";
-				System.out.println( toPrint );
-				this.out.write( toPrint + "\n" );
+				this.sink.filtlist( af.name, af.include, af.exclude );
 			}
 
-			// Close out the file
-			this.out.flush();
-			this.out.close();
+			// Close out the file. Waits for the writer to finish.
+			this.sink.close();
+
+			// Write the counters and timers next to the output, if it's a file
+			this.stats.tokens = this.getTokenCount();
+			if( !this.outputName.equals("-") ) {
+				this.stats.write( ACSstats.statsFile( this.outputName ), this, this.inputName, this.outputName );
+			}
 
 			// Program is done!
-			System.out.println( "Done." );
+			if( !this.batch ) this.console.println( "Done." );
 
 		}
 		// Handle any errors
@@ -233,707 +482,386 @@ public class ACSextract {
 		}
 	}
 
+	// parse
+	// Reads the whole routine and keeps its rules, without writing anything.
+	// Used by ACSclassify, which evaluates the rules instead of writing them.
+	public void parse() {
+		this.stream = false;
+		long t = System.nanoTime();
+		this.parseRoutine();
+		this.visit( this.routine );
+		this.stats.parseNanos += System.nanoTime()-t;
+	}
+
+	// writeHeader
+	// Writes the header row: routine name, variables, then the rule columns
+	protected void writeHeader() throws IOException {
+		this.sink.header( this.procName, this.variableList );
+	}
 
-	// handleKeyword
-	// This switchpoint is used whenever any keyword could be next.
-	// It will handle one statement and then return
-	public boolean handleKeyword() {
-		// Scan each keyword and handle appropriately
-		String newKeyword="";
-		String temp="";
-		// Controls whether handleKeywords caller returns immediately or
-		// keeps looping. TRUE = keep looping
-		boolean toRet = true;
-		// If not the end of the file, and the token looks good
-		if( !eof && (temp = this.readToken() ) != null ) {
-			this.debug( "handleKeyword "+temp );
-
-			// Conditional on the keyword
-			// PROC - Start of an ACS routine
-			// FILTLIST - Definition of filter criteria
-			// SET - Assigns a value to a read-write variable
-			// DO - Start of statement group
-			// IF - Provides conditional statement execution
-			// SELECT - Defines a set of conditional execution statements
-			// EXIT - Causes immediate termination of the ACS routine and can be used to force allocation failures
-			// WRITE - Sends a message to the end user
-			// END - End of statement group (DO or SELECT) or ACS routine (PROC).
-			switch( temp ) {
-				case "PROC":
-					handleProc();
-					break;
-				case "FILTLIST":
-					handleFiltlist();
-					break;
-				case "SET":
-					handleSet();
-					break;
-				case "DO":
-					handleDo();
-					break;
-				case "IF":
-					handleIf();
-					break;
-				case "SELECT":
-					handleSelect();
-					break;
-				case "EXIT":
-					handleExit();
-					break;
-				case "WRITE":
-					handleWrite();
-					break;
-				case "END":
-					// Stop the handleKeywords looping
-					handleEnd(); // just calls debug
-					toRet = false;
-					break;
-				case "WHEN":
-				case "OTHERWISE":
-					// Stop the handleKeywords from looping
-					toRet = false;
-					// Push the OTHERWISE back on for SELECT processing to handle
-					this.pushToken();
-					break;
-				default:
-					// Ignore keywords we don't understand.
-					this.fail( "Unknown keyword : "+temp+"... Moving on.", false);
-					break;
+	// writeRule
+	// Multiplies out one rule and writes its rows, within the row budgets
+	protected void writeRule( ACSrule cr ) throws IOException {
+		// Skip it if we've hit the budget for the run
+		if( this.maxTotal > 0 && this.rowCount >= this.maxTotal ) {
+			if( this.skipped++ == 0 ) this.skippedFrom = cr.getLineNumber();
+			this.truncated++;
+			return;
+		}
+		ACSevents.Flatten fe = null;
+		if( this.jfr ) {
+			fe = new ACSevents.Flatten();
+			fe.begin();
+		}
+		long t = System.nanoTime();
+		Iterator<ACScondition> rows = cr.rows( this.simplify, this.flattened );
+		long n = 0;
+		while( rows.hasNext() ) {
+			// Stop if we've hit either budget
+			if( ( this.maxRows > 0 && n >= this.maxRows ) ||
+			    ( this.maxTotal > 0 && this.rowCount >= this.maxTotal ) ) {
+				this.truncated++;
+				this.warn( "Rule "+cr.getSequence()+" (SET at line "+cr.getLineNumber()+") stopped after "+
+				           n+" of up to "+cr.size()+" rows. Raise maxrows= or maxtotal= to see the rest." );
+				break;
 			}
+			ACScondition row = rows.next();
+			this.stats.flattenNanos += System.nanoTime()-t;
+			this.sink.row( cr, row );
+			t = System.nanoTime();
+			n++;
+			this.rowCount++;
+		}
+		this.stats.flattenNanos += System.nanoTime()-t;
+		this.stats.rule( cr, n );
+		if( fe != null && fe.shouldCommit() ) {
+			fe.sequence = cr.getSequence();
+			fe.line = cr.getLineNumber();
+			fe.rows = n;
+			fe.commit();
 		}
-		return toRet;
 	}
 
-	// handleKeywords
-	// Wrapper to repeatedly handle keywords
-	// Useful for inside DO blocks
-	// When this returns, the DO block has ENDed
-	protected void handleKeywords() {
-		while( !this.eof && this.handleKeyword() ) ;
+	// addRule
+	// Keeps a new rule. When streaming, the rule before it is written now,
+	// since only an EXIT straight after a SET can still change a rule.
+	protected void addRule( ACSrule nr ) {
+		if( this.stream ) this.flushRule();
+		else this.rules.add( nr );
+		this.lastRule = nr;
 	}
 
-	// handleProc
-	// Processes the PROC keyword.
-	// Establishes which keyword we are setting.
-	protected void handleProc() {
-		this.debug( "handleProc " );
+	// flushRule
+	// Streaming only. Writes the last rule made, if it hasn't been written yet.
+	protected void flushRule() {
+		if( this.lastRule == null ) return;
+		try {
+			this.writeRule( this.lastRule );
+		} catch( IOException e ) {
+			this.fail( "Problem writing output file. "+e.getMessage() );
+		}
+		this.lastRule = null;
+	}
 
-		// Get the next token
-		this.procName = this.readToken();
+	// parseRoutine
+	// Reads the whole routine into a tree, once, unless it was handed in
+	// already parsed. The tree knows every variable the routine tests,
+	// so the header can be written before any rule is made.
+	protected void parseRoutine() {
+		if( this.routine == null ) this.routine = new ACSparser( this.st, this ).parse();
+		this.procName = this.routine.procName;
+		this.variableList = new LinkedList<String>( this.routine.variables );
+	}
 
-		// Check if the next token is a number
-		// If it is a number, re-read
-		if( this.isNumber( this.procName ) ) {
-			this.procName = this.readToken();
-		}
+	// visit
+	// Walks one statement, if there is one
+	protected void visit( ACSnode n ) {
+		if( n == null ) return;
+		this.line = n.line;
+		n.accept( this );
+	}
 
-		// Validity check
-		if( !this.isValidProc( this.procName ) ) this.fail( this.procName+" is not a valid PROC name.");
+	// visitAll
+	// Walks a list of statements, in order
+	protected void visitAll( List<ACSnode> statements ) {
+		for( ACSnode n : statements ) this.visit( n );
+	}
 
-		return;
+	// visitRoutine
+	public LinkedList<ACScondition> visitRoutine( ACSnode.Routine n ) {
+		this.visitAll( n.statements );
+		return null;
 	}
 
-	// handleFiltList
-	// Reads in the INCLUDE and EXCLUDE lists and stores them as entries in a LinkedList
-	// Normal filtlist syntax:
-	// FILTLIST INCLUDE(OPT1,'OPT2',MASK*) EXCLUDE(EX*,'EX2')
-	protected void handleFiltlist() {
-		this.debug( "handleFiltlist" );
+	// visitProc
+	// Establishes which routine we are setting
+	public LinkedList<ACScondition> visitProc( ACSnode.Proc n ) {
+		this.trace( TRACE_STATEMENTS, "visitProc ", n.name );
+		this.procName = n.name;
+		return null;
+	}
 
-		// Next token should be a name
+	// visitFiltlist
+	// Adds the filtlist to the pile
+	public LinkedList<ACScondition> visitFiltlist( ACSnode.Filtlist n ) {
+		this.trace( TRACE_STATEMENTS, "visitFiltlist ", n.name );
 		ACSfiltlist nf = new ACSfiltlist();
-		nf.name = this.readToken();
-		nf.include = "";
-		nf.exclude = "";
-
-		// After that should either be INCLUDE or EXCLUDE
-		String temp = this.readToken();
-		// If it's not INCLUDE or EXCLUDE, then something is wrong
-		while( temp.equals( "INCLUDE" ) || temp.equals("EXCLUDE") ) {
-			// Next should be a (
-			String filt = this.readToken();
-			if( filt.equals("(") ) {
-				// Just grab all values up the next paren
-				String val = this.getToNext( ")" );
-				// If it's the INCLUDE list, add it
-				if( temp.equals( "INCLUDE" ) ) {
-					nf.include = val;
-				}
-				// If not INCLUDE, then it's an EXCLUDE
-				else {
-					nf.exclude = val;
-				}
-			} else {
-				this.fail( "Bad FILTLIST format. ( not found where expected." );
-			}
-			// Try for next. See if there is another EXCLUDE or INCLUDE
-			temp = this.readToken();
-		}
-		// When we're done, put back the next token.
-		// This is because we pull it off to tell when we are done with FILTLIST processing
-		this.pushToken();
-
-		// Add the filtlist to the pile
+		nf.name = n.name;
+		nf.include = n.include;
+		nf.exclude = n.exclude;
 		this.filtlists.add( nf );
-
-		this.debug( "leaving handleFiltlist" );
-		return;
+		return null;
 	}
 
-	// HandleSet
-	// If we encounter a SET, then we grab the next three tokens, should be like &STORCLAS = "value"
+	// visitSet
 	// Create a ACSrule and apply the setval
 	// Copy the current stack of conditions into the ACSrule
-	protected void handleSet() {
-		this.debug( "handleSet " );
-		// Grab the next three tokens and validity check
-		// Should be &STORCLAS = "Value"
-		String nt = this.readToken();
-		if( this.isVar( nt ) && this.isValidProc( nt ) ) {
-			// Validity check that it matches the PROC
-			if( !nt.equals( "&"+this.procName ) && !nt.equals( this.procName ) ) this.fail( "SET variable doesn't match PROC name. SET "+nt, false );
-
-			// Continue processing SET
-			// Ensure there is an equal sign
-			nt = this.readToken();
-			// should be = or EQ
-			if( !nt.equals("=") && !nt.equals("EQ")) this.fail( "SET statement incorrect. Should have an = or EQ." );
-
-			// Read assignment value
-			nt = this.readToken();
-			// should be VALUE - no good way to validity check
-
-			// Create a new rule
-			ACSrule newRule = new ACSrule();
-			newRule.setSetValue( nt );
-			newRule.setLineNumber( this.st.lineno() );
-
-			// Run the current condition stack and add them to the rule
-			// Each entry on the stack is an IF statement
-			// In a list, multiple entries means an OR statement.
-			// To flatten, we must AND the rules from each layer
-			// to the previous and future rules.
-			LinkedList<ACScondition> flattened = new LinkedList<ACScondition>();
-			for( LinkedList<ACScondition> ccl : this.conditionStack ) {
-				flattened = this.ANDconditions( ccl, flattened );
-				/*
-				for( ACScondition cc : ccl ) {
-					newRule.addCondition( cc );
-				}
-				*/
-				newRule.addConditions(flattened);
+	public LinkedList<ACScondition> visitSet( ACSnode.Set n ) {
+		this.trace( TRACE_STATEMENTS, "visitSet ", n.value );
+
+		// Create a new rule
+		ACSrule newRule = this.newRule( n.line );
+		newRule.setSetValue( n.value );
+
+		// Set sequence for rule
+		newRule.setSequence( this.ruleSequence++ );
+
+		if( this.jfr ) {
+			ACSevents.Set se = new ACSevents.Set();
+			if( se.isEnabled() ) {
+				se.sequence = newRule.getSequence();
+				se.line = newRule.getLineNumber();
+				se.value = n.value;
+				se.depth = this.conditionStack.size();
+				se.commit();
 			}
+		}
 
-			// Set sequence for rule
-			newRule.setSequence( this.ruleSequence++ );
+		// Put the rule on the list
+		this.addRule( newRule );
+		return null;
+	}
 
-			// Put the rule on the list
-			this.rules.add( newRule );
+	// newRule
+	// Makes a rule under the current conditions
+	protected ACSrule newRule( int line ) {
+		ACSrule toRet = new ACSrule( this.pairTable );
+		toRet.setLineNumber( line );
+
+		// Copy the current condition stack into the rule
+		// Each entry on the stack is an IF statement
+		// In a list, multiple entries means an OR statement.
+		// The rule ANDs the layers together when it is written,
+		// so nothing is multiplied out here.
+		// The BDD engine already has the AND of the stack.
+		toRet.addLayers( this.conditionStack );
+		if( this.bdd != null ) toRet.setRoot( this.bdd, this.bddStack.isEmpty() ? ACSbdd.TRUE : this.bddStack.peek() );
+		toRet.setUnless( this.unless );
+		return toRet;
+	}
 
-		} else fail( "Not a valid SET R/W Variable: "+nt );
+	// visitExit
+	// Keeps the EXIT as a rule of its own, with the conditions it is under.
+	// Its sequence is that of the next SET, which it comes before.
+	// The last rule made is marked as HAS EXIT only if the EXIT is reached
+	// whenever it is, that is, the EXIT is under no IF or WHEN the rule
+	// isn't. After IF A THEN SET, an EXIT under IF B doesn't mark it.
+	// NOTE: Only the last rule is marked. After a SELECT, the SETs under
+	// the WHENs before the last one are not, though they exit too.
+	public LinkedList<ACScondition> visitExit( ACSnode.Exit n ) {
+		this.trace( TRACE_STATEMENTS, "visitExit" );
+		ACSrule exit = this.newRule( n.line );
+		exit.setExit( true );
+		exit.setSequence( this.ruleSequence );
+		if( !this.stream ) this.exits.add( exit );
+		if( this.lastRule != null && this.lastRule.within( exit ) ) this.lastRule.setExit( true );
+		return null;
+	}
 
-		this.debug( "leaving handleSet " );
-		return;
+	// visitWrite
+	// WRITE statements don't make rules
+	public LinkedList<ACScondition> visitWrite( ACSnode.Write n ) {
+		return null;
 	}
 
-	// handleDo
+	// visitDo
 	// Handles a block of statements together
-	// Doesn't actually have to do much. Recursively calls handleKeyword
-	// to process the block of statements.
-	// handleEnd will cause a return that will come back through here.
-	protected void handleDo() {
-		int startLine = this.st.lineno();
-		this.debug( "handleDo " );
+	public LinkedList<ACScondition> visitDo( ACSnode.Do n ) {
+		this.trace( TRACE_STATEMENTS, "visitDo " );
 		this.doDepth++;
-		this.handleKeywords();
+		this.stats.depth( this.conditionStack.size(), this.doDepth );
+		this.visitAll( n.statements );
 		this.doDepth--;
-		this.debug( "leaving handleDo from "+startLine );
+		this.trace( TRACE_STATEMENTS, "leaving visitDo from ", n.line );
+		return null;
 	}
 
-	// handleIf
-	// Processes the IF conditions and adds them to the stack
-	// Also checks for a THEN and a DO
-	// If no do, then check for SET. Anything else, ignore it.
-	protected void handleIf() {
-		this.debug( "handleIf" );
-		// Now we get to try to decipher the condition
-		// Normal IF statement is as follows
-		// IF &DSN = 'HELP' THEN .. ELSE ..
-		// If there is a ( then we need to decipher the clause recursively
-		// If there are multiple conditions joined by AND/OR
-		// AND or &&  - And
-		// OR  or |   - Or
-		String tok = null;
-		int initialLine = this.st.lineno();
-
-		// Two options
-		// Either a simple VAR CMP VALUE set, or nested ( ) items.
-		// ( &DSN EQ 'BOB' ) | ( ( &DSN = LARR* ) AND &DSORG NE 'FB' )
-		// Two rules:
-		//   1. DSN EQ BOB
-		//   2. DSN = LARR* AND DSORG NE FB
-		// Sample2: ( ( &SIZE > 1000 | &SIZE < 10 ) && DSN(3) = NYC )
-		// Rules:
-		//   1. SIZE > 1000 AND DSN(3) = NYC
-		//   2. SIZE < 10   AND DSN(3) = NYC
-		// Need a good way to recursively parse and combine these into rules
-		// Or complicates things. OR creates permutations
-
-		// Algorithm 1
-		// If token is a keyword, then we probably just have a single comparison
-		// Pull that
-		// If token is a (, then recurse in and re-check first token
-		//
-		// After comparison is done, add it to a linkedlist of conditions
-		// If next token is AND or OR, then parse it as well
-		// For AND, combine the tokens
-		// For OR, return each as it's own token
-
-
-		// Call HandleCondition to parse the IF middle
-		LinkedList<ACScondition> newConditions = this.handleConditions();
-
-		// Add these conditions to the global stack
-		this.conditionStack.push( newConditions );
-
-		// Double check that we have a THEN statement
-		tok = this.readToken();
-		if( !tok.equals("THEN") ) fail( "Missing THEN after IF." );
-
-		// If still good, then call handleKeyword to parse whatever is next
-		this.handleKeyword();
+	// visitIf
+	// Puts the IF conditions on the stack for the THEN statement,
+	// and their NOT for the ELSE statement
+	public LinkedList<ACScondition> visitIf( ACSnode.If n ) {
+		this.trace( TRACE_STATEMENTS, "visitIf" );
 
-		// Remove the condition
-		if( this.conditionStack.pop() != newConditions ) this.fail( "Program logic error. Statements in IF not handled correctly resulting in mixed condition stack.");
+		// Turn the condition into a list of conditions, and put it on the stack
+		LinkedList<ACScondition> newConditions = n.condition.accept( this );
+		this.trace( TRACE_TOKENS, "IF conditions: ", newConditions );
+		this.pushConditions( newConditions );
+		this.visit( n.thenStatement );
+		this.popConditions();
 
 		// Check for ELSE
-		if( this.readToken().equals( "ELSE" ) ) {
+		if( n.hasElse ) {
 			// Invert the last set of conditions and add them back
-			newConditions = this.deMorgan( newConditions );
-			this.conditionStack.push( newConditions );
-
-			// Handle anything in there
-			this.handleKeyword();
-
-			// Pop the condition off the stack
-			if( this.conditionStack.pop() != newConditions ) this.fail( "Program logic error. Statements in ELSE not handled correctly resulting in mixed condition stack.");
-		} else {
-			this.pushToken();
-		}
-		this.debug( "leaving handleIf, IF @ "+initialLine );
-	}
-
-	// handleConditions
-	// Loops through the condition pairs in the IF statement
-	// and builds a list of conditions out of them.
-	// OR is handled by adding conditions
-	// AND is handled by merging conditions
-	// Returns: LinkedList of ACSconditions
-	protected LinkedList<ACScondition> handleConditions() {
-		this.debug( "handleConditions " );
-		// String to hold tokens
-		String tok = this.readToken();
-		// Linkedlist of conditions
-		LinkedList<ACScondition> ncl = null;
-
-		// See if we have a clause in parenthesis
-		if( tok.equals("(") ) {
-			ncl = this.handleConditions();
-			// Ensure a closing parentheses
-			tok = this.readToken();
-			if( !tok.equals(")") ) this.fail( "Missing closing parenthesis" );
-		// Check for extraneous closing paren
-		} else if( tok.equals( ")" ) ) {
-			fail( "Invalid closing parentheses" );
-		} else {
-			// Default cause
-			// Build a new ACScondition
-			ACScondition nc = new ACScondition();
-			ncl = new LinkedList<ACScondition>();
-			this.pushToken();
-
-			// Now parse it
-			String compvar = this.readAndValidateVariable();
-			if( compvar == null ) compvar = this.readToken();
-
-			String compari = this.readAndValidateComparison();
-
-			String compval = this.readAndValidateVariable();
-			if( compval == null ) compval = this.readToken();
-
-			ACSpair np = new ACSpair();
-			if( compari != null ) {
-				// If in format &VAR = 'VALUE'
-				if( this.isVar( compvar ) ) {
-					np.setVariable( compvar );
-					np.setComparison( compari );
-					np.setValue( compval );
-				// If for some reason they use 'VALUE' = &VAR
-				} else if( this.isVar( compval ) ) {
-					// Variables are valid as a comparison (Such as filtlists),
-					// so this path may indicate a missed &
-					this.fail( "Possible missed &: "+compvar+" "+compari+" "+compval, false );
-					np.setVariable( compval );
-					np.setComparison( compari );
-					np.setValue( compvar );
-				} else {
-					this.fail( "Invalid comparison: "+compvar+" "+compari+" "+compval );
-				}
-				// Add it to the global stack
-				this.addVariable( np.getVariable() );
+			// The BDD engine inverts the node and doesn't need the list
+			if( this.bdd != null ) {
+				int ifNode = this.bdd.conditions( newConditions );
+				this.pushConditions( new LinkedList<ACScondition>(), this.bdd.not( ifNode ) );
 			} else {
-				this.fail( "Invalid comparison."+compvar+" "+compval );
-			}
-
-			// Load the ACScondition with the new pair
-			nc.addPair( np );
-			// Put the new condition on the list
-			ncl.add( nc );
-		}
-
-		// Check if we have an AND or OR as next token
-		tok = this.readToken();
-		this.debug( "Checking for AND/OR: "+tok );
-
-		// If AND, parse and combine
-		if( tok.equals( "AND" ) || tok.equals( "&&" ) ) {
-			this.debug( "handleConditions processing AND" );
-			ncl = this.ANDconditions( ncl, this.handleConditions() );
-		}
-		// If OR, then simply add the new ones to the bottom of the list
-		else if( tok.equals( "OR" ) || tok.equals( "|" ) ) {
-			this.debug( "handleConditions processing OR" );
-			ncl.addAll( this.handleConditions() );
-		}
-		// If it's something else, then it's probably an END or a problem
-		else {
-			//Push it back and let the parent routine handle it!
-			this.pushToken();
-		}
-
-		// If we made it this far, then we can return the conditions
-		this.debug( "leaving handleConditions. Condition pairs:" );
-		this.debug( ncl.toString() );
-		return ncl;
-	}
-
-	// ANDconditions
-	// Takes two list of conditions and combines them into one list
-	// If we think of multiple ACSconditions as conditions joined by OR
-	// then this algorithm simply multiplies.
-	protected LinkedList<ACScondition> ANDconditions( LinkedList<ACScondition> list1, LinkedList<ACScondition> list2 ) {
-		this.debug( "ANDconditions" );
-		LinkedList<ACScondition> toRet = new LinkedList<ACScondition>();
-		this.debug( "AND input length: "+list1.size()+" "+list2.size() );
-
-		// loop over each condition in list1
-		// add all the pairs to each item in list2
-		ACScondition temp;
-		if( list1.size() == 0 ) toRet = list2;
-		else if( list2.size() == 0 ) toRet = list1;
-		else {
-			for (ACScondition lc1 : list1 ) {
-				temp = new ACScondition();
-				for( ACScondition lc2 : list2 ) {
-					// Add all the pairs for this combo to the new ACScondition
-					for( ACSpair cp : lc1.getPairs() ) {
-						temp.addPair( cp );
-					}
-					for( ACSpair cp : lc2.getPairs() ) {
-						temp.addPair( cp );
-					}
-				}
-				// Add it to the return stack
-				toRet.add( temp );
+				this.pushConditions( this.deMorgan( newConditions ) );
 			}
+			this.visit( n.elseStatement );
+			this.popConditions();
 		}
-		return toRet;
+		this.trace( TRACE_STATEMENTS, "leaving visitIf, IF @ ", n.line );
+		return null;
 	}
 
-
-	// handleSelect
-	// Handled much like IF
-	// Two options:
-	//   1. &VARIABLE is on the SELECT statement.
-	//   2. &VARIABLE in WHEN statement.
-	protected void handleSelect() {
-		this.debug( "handleSelect" );
-		// Read in the next token
-		String tok = this.readToken();
-		String compVar = null;
-		int startLine = this.st.lineno();
-
+	// visitSelect
+	// Handled much like IF. Each WHEN puts its condition on the stack.
+	// To create the condition for OTHERWISE, we'll
+	// AND together all of the previous ones with NOT
+	// Aka, if A and B are previous WHEN conditions,
+	// then the otherwise is NOT(A) AND NOT(B)
+	// Only the first true WHEN runs, but a WHEN's condition doesn't say
+	// so. Rather than ANDing the NOT of every WHEN before it onto each
+	// one, the rules under a WHEN are given the WHENs before it, and
+	// whoever evaluates them checks those (see ACSevaluator).
+	public LinkedList<ACScondition> visitSelect( ACSnode.Select n ) {
+		this.trace( TRACE_STATEMENTS, "visitSelect" );
+		ACSrule.Unless outer = this.unless;
 		// Keep track of the list of comparisons
 		LinkedList<LinkedList<ACScondition>> otherwiseList = new LinkedList<LinkedList<ACScondition>>();
-
-		// If the next token is a (, then we'll assume it's option #1
-		// Otherwise, we'll assume that it is option #2
-		if( tok.equals( "(" ) ) {
-			compVar = this.readAndValidateVariable();
-			// Make sure it's a valid variable
-			if( compVar == null ) this.fail( "Bad select statement." );
-
-			// Check for )
-			if( !this.readToken().equals(")") ) this.fail( "Missing parentheses" );
-		} else {
-			this.pushToken();
-			compVar = null;
-		}
-
-		// new ACS conditoin list
-		LinkedList<ACScondition> ncl = null;
-
-		// Now find the WHEN statement
-		while( (tok = this.readToken()).equals("WHEN") ) {
-			this.debug("Found the when.");
-			// Check for (
-			if( !this.readToken().equals("(") ) this.fail( "Missing opening parentheses on WHEN statement. " );
-
-			// If it's option 1, then just read the comparison and build pair
-			if( compVar != null ) {
-				// Pull value
-				String compVal = this.readToken();
-				// Build condition
-				ACScondition nc = new ACScondition();
-				ACSpair np = new ACSpair();
-				np.setVariable( compVar );
-				np.setComparison( "EQ" );
-				np.setValue( compVal );
-
-				// Add the variable name to the global stack
-				this.addVariable( compVar );
-
-				nc.addPair( np );
-
-				// Create ncl if we don't have it yet
-				if( ncl == null ) ncl = new LinkedList<ACScondition>();
-				ncl.add( nc );
-			}
-			// If option 2, call handleConditions to read the pair
-			else {
-				ncl = this.handleConditions();
+		// For the BDD engine, the OR of every WHEN
+		int anyWhen = ACSbdd.FALSE;
+
+		for( ACSnode.When w : n.whens ) {
+			this.line = w.line;
+			// Each WHEN gets its own list, since rules keep a reference to it
+			LinkedList<ACScondition> ncl = w.condition.accept( this );
+			if( this.bdd != null ) {
+				int whenNode = this.bdd.conditions( ncl );
+				anyWhen = this.bdd.or( anyWhen, whenNode );
+				this.pushConditions( ncl, whenNode );
+			} else {
+				this.pushConditions( ncl );
 			}
-
-			// Check for closing paren
-			if( !this.readToken().equals(")") ) this.fail( "Missing ending parentheses on WHEN statement. " );
-
-			// Add the condition to the stack
-			this.conditionStack.push( ncl );
-
-			// Handle keywords inside
-			this.handleKeywords();
-
-			// Pop the condition
-			LinkedList<ACScondition> tempc = this.conditionStack.pop();
-			if( tempc != ncl ) this.fail( "Program error: Bad condition POP within WHEN clause" );
+			this.visitAll( w.statements );
+			this.popConditions();
 			otherwiseList.add( ncl );
+			this.unless = new ACSrule.Unless( ncl, this.unless );
 		}
+		// OTHERWISE already has the NOT of every WHEN
+		this.unless = outer;
 
-		// Check for otherwise
-		// To create the condition for OTHERWISE, we'll
-		// AND together all of the previous ones with NOT
-		// Aka, if A and B are previous WHEN conditions,
-		// then the otherwise is NOT(A) AND NOT(B)
-		this.debug("handleSelect - Checking for otherwise: "+tok);
-		if( tok.equals("OTHERWISE") ) {
-			ncl = new LinkedList<ACScondition>();
-			for( LinkedList<ACScondition> oc : otherwiseList ) {
-				ncl = this.ANDconditions( ncl, this.deMorgan( oc ) );
-			}
-			this.conditionStack.push( ncl );
-			this.handleKeywords();
-			// Pop the condition
-			LinkedList<ACScondition> tempc = this.conditionStack.pop();
-			if( tempc != ncl ) this.fail( "Program error: Bad condition POP for OTHERWISE clause" );
-		}
-
-		this.pushToken();
-
-		this.debug( "leaving handleSelect started at "+startLine+". Current token: "+tok );
-		// The handleKeyword should run right up until the END, at which point it will return
-		// So we don't need to check for it here.
-		return;
-	}
-
-	// Handle exit
-	// At some point, I'd like to properly flag rules with whether there was an exit or not
-	// But it'll be hard to pair the exit with the SET. If too much happens between, then the EXITs may get flagged incorrectly.
-	protected void handleExit() {
-		this.debug( "handleExit" );
-		// See if they included a CODE(xx) after the EXIT. If so, discard it
-		String tok = this.readToken();
-		if( tok.equals("CODE") ) {
-			tok = this.readToken(); // (
-			tok = this.readToken(); // xx
-			tok = this.readToken(); // )
-		} else {
-			this.pushToken();
-		}
-		// Mark the last rule we made as HAS EXIT
-		// NOTE: May not always be correct. If EXIT is coded after a large SELECT, then only the last one would get marked.
-		this.rules.getLast().setExit( true );
-	}
-
-	// handleWrite -- write statements are mostly ignored.
-	// To process, pull the rest of the line and any continuation lines
-	protected void handleWrite() {
-		this.debug( "handleWrite" );
-		// Loop finding blocks enclosed in ' ' or variables
-
-		String tok = this.readToken();
-		boolean cont = true;
-
-		while( cont ) {
-			// Remove quoted strings and variables.
-			if( tok.startsWith("'") ) {
-				tok = this.readToken();
-			} else if( this.isVar( tok ) ) {
-				tok = this.readToken();
+		if( n.otherwise != null ) {
+			if( this.bdd != null ) {
+				// NOT( A OR B ), without multiplying anything out
+				this.pushConditions( new LinkedList<ACScondition>(), this.bdd.not( anyWhen ) );
 			} else {
-				cont = false;
+				LinkedList<ACScondition> ncl = new LinkedList<ACScondition>();
+				for( LinkedList<ACScondition> oc : otherwiseList ) {
+					ncl = this.ANDconditions( ncl, this.deMorgan( oc ) );
+				}
+				this.pushConditions( ncl );
 			}
+			this.visitAll( n.otherwise );
+			this.popConditions();
 		}
-		// Push the last token back on the stack
-		this.pushToken();
-		this.debug( "leaving handleWrite" );
+		this.trace( TRACE_STATEMENTS, "leaving visitSelect from ", n.line );
+		return null;
 	}
 
-	// handleEnd()
-	// Handles the END keyword.
-	// Not actually using this as handleKeyword just returns for END.
-	protected void handleEnd() {
-		this.debug( "handleEnd" );
-		return;
+	// visitCompare
+	// One comparison is a list of one condition with one pair
+	public LinkedList<ACScondition> visitCompare( ACSnode.Compare n ) {
+		ACScondition nc = new ACScondition( this.pairTable );
+		nc.addPair( this.pairTable.intern( n.variable, n.operator, n.value ) );
+		LinkedList<ACScondition> toRet = new LinkedList<ACScondition>();
+		toRet.add( nc );
+		return toRet;
 	}
 
-	// getToNext( String )
-	// Returns a String of all the tokens up to the next token matching the passed var
-	protected String getToNext( String nextToken ) {
-		this.debug( "getToNext" );
-		String toRet = "";
-		boolean isFirst = true;
-		String temp = this.readToken();
-		while( !temp.equals( nextToken ) ) {
-			if( isFirst ) {
-				isFirst = false;
-			} else {
-				toRet += "";
-			}
-			toRet += temp;
-			temp = this.readToken();
-		}
-		// Discard the last matching token
-		// Return what we found
+	// visitAnd
+	// AND is handled by merging conditions. The terms are turned into
+	// lists in order, then multiplied together from the last one back,
+	// so A AND B AND C is A AND ( B AND C ).
+	public LinkedList<ACScondition> visitAnd( ACSnode.And n ) {
+		ArrayList<LinkedList<ACScondition>> lists = new ArrayList<LinkedList<ACScondition>>( n.terms.size() );
+		for( ACSnode t : n.terms ) lists.add( t.accept( this ) );
+		LinkedList<ACScondition> toRet = lists.get( lists.size()-1 );
+		for( int i=lists.size()-2; i>=0; i-- ) toRet = this.ANDconditions( lists.get(i), toRet );
 		return toRet;
 	}
 
-	// readAndValidateVariable
-	// Reads in a variable name and makes sure it's
-	// a valid variable, like &VAR.
-	// Returns null if not a real variable.
-	protected String readAndValidateVariable() {
-		this.debug( "readAndValidateVariable" );
-		String tok = this.readToken();
-		if( isVar( tok ) ) {
-			// Check for parens after the variable
-			String t = this.readToken();
-			if( t.equals( "(" ) ) {
-				tok = tok+t+this.readToken()+this.readToken();
-			} else {
-				this.pushToken();
-			}
-		} else {
-			this.pushToken();
-			tok = null;
-		}
-		this.debug( "leaving readAndValidateVariable" );
-		return tok;
+	// visitOr
+	// OR is handled by adding conditions
+	public LinkedList<ACScondition> visitOr( ACSnode.Or n ) {
+		LinkedList<ACScondition> toRet = new LinkedList<ACScondition>();
+		for( ACSnode t : n.terms ) toRet.addAll( t.accept( this ) );
+		return toRet;
 	}
 
-	// isVar( String )
-	// Returns true if the String is a valid variable name
-	protected boolean isVar( String inToken ) {
-		return (inToken.indexOf("&") == 0);
+	// pushConditions
+	// Puts an IF, ELSE, WHEN or OTHERWISE condition on the stack.
+	// Rules keep a reference to the lists on the stack, so a list
+	// must not be changed once it has been pushed.
+	protected void pushConditions( LinkedList<ACScondition> ncl ) {
+		this.pushConditions( ncl, this.bdd == null ? ACSbdd.TRUE : this.bdd.conditions( ncl ) );
 	}
 
-	// isKeyword
-	// Returns true if word matches any of the keywords
-	protected boolean isKeyword( String inToken ) {
-		boolean toRet = false;
-		if( inToken.equals("IF") ||
-          inToken.equals("SELECT") ||
-			 inToken.equals("WRITE") ||
-			 inToken.equals("PROC") ||
-			 inToken.equals("FILTLIST") ||
-			 inToken.equals("SET") ||
-			 inToken.equals("DO") ||
-			 inToken.equals("EXIT") ||
-			 inToken.equals("END")
-		) toRet = true;
-
-		return toRet;
+	// pushConditions
+	// For the BDD engine, node is the condition to use for this layer.
+	// The list is still pushed so the stack checks work the same way.
+	protected void pushConditions( LinkedList<ACScondition> ncl, int node ) {
+		this.conditionStack.push( ncl );
+		this.stats.depth( this.conditionStack.size(), this.doDepth );
+		if( this.bdd != null ) {
+			this.bddStack.push( this.bddStack.isEmpty() ? node : this.bdd.and( this.bddStack.peek(), node ) );
+		}
 	}
 
-	// isValidProc( String )
-	// Returns true if it matches STORCLAS, STORGRP, MGMTCLAS, or DATACLAS
-	protected boolean isValidProc( String inval ) {
-		if( inval.indexOf("&") >= 0 ) {
-			inval = inval.substring( inval.indexOf("&")+1 );
-		}
-		return (inval.equals("STORCLAS") ||
-		        inval.equals("DATACLAS") ||
-		        inval.equals("MGMTCLAS") ||
-		        inval.equals("STORGRP" ) );
+	// popConditions
+	// Takes the top condition off the stack
+	protected LinkedList<ACScondition> popConditions() {
+		if( this.bdd != null ) this.bddStack.pop();
+		return this.conditionStack.pop();
 	}
 
-	// readAndValidateComparison
-	// Read in a comparison and make sure the WHOLE comparison is included.
-	// Since some of the comparisons are two characters, we need to pull them both.
-	protected String readAndValidateComparison() {
-		this.debug( "readAndValidateComparison" );
-		String toRet = "";
-		String tok = this.readToken();
-		toRet = tok;
-		// If it might be the start of a two-char operator
-		if( tok.equals( ">" ) || tok.equals( "<" ) || tok.equals( "^" ) || tok.equals( "¬" ) ) {
-			// Try to get the next token
-			tok = this.readToken();
-			if( tok.equals( ">" ) || tok.equals( "<" ) || tok.equals( "=" ) ) {
-				toRet += tok;
-			} else {
-				// If we don't need it, put it back on the stack
-				this.pushToken();
+	// ANDconditions
+	// Takes two list of conditions and combines them into one list
+	// If we think of multiple ACSconditions as conditions joined by OR
+	// then this algorithm simply multiplies.
+	protected LinkedList<ACScondition> ANDconditions( LinkedList<ACScondition> list1, LinkedList<ACScondition> list2 ) {
+		this.trace( TRACE_TOKENS, "ANDconditions" );
+		LinkedList<ACScondition> toRet = new LinkedList<ACScondition>();
+		this.trace( TRACE_TOKENS, "AND input length: ", list1.size(), list2.size() );
+
+		// loop over each condition in list1
+		// and AND it with each condition in list2
+		if( list1.size() == 0 ) toRet = list2;
+		else if( list2.size() == 0 ) toRet = list1;
+		else {
+			for( ACScondition lc1 : list1 ) {
+				for( ACScondition lc2 : list2 ) {
+					// Add it to the return stack
+					toRet.add( lc1.and( lc2 ) );
+				}
 			}
 		}
-		// Make sure it's a valid comparison
-		if( !this.isValidComparison( toRet ) ) {
-			toRet = null;
-			this.pushToken();
-		}
-		this.debug( "leaving readAndValidateComparison" );
+		this.stats.and( list1.size(), list2.size(), toRet.size() );
 		return toRet;
 	}
 
-	// isValidComparison( String )
-	// Tests if COMPARISON is one of the following:
-	// GT or >  Greater than
-	// LT or <  Less than
-	// NG or ¬> Not greater than
-	// NL or ¬< Not less than
-	// EQ or =  Equal
-	// NE or ¬= Not equal
-	// GE or >= Greater than or equal
-	// LE or <= Less than or equal
-	protected boolean isValidComparison( String comp ) {
-		return ( (comp.equals("GT") ) || (comp.equals(">") ) ||
-		         (comp.equals("LT") ) || (comp.equals("<") ) ||
-		         (comp.equals("NG") ) || (comp.equals("¬>") ) || (comp.equals("^>") ) ||
-		         (comp.equals("NL") ) || (comp.equals("¬<") ) || (comp.equals("^<") ) ||
-		         (comp.equals("EQ") ) || (comp.equals("=") ) ||
-		         (comp.equals("NE") ) || (comp.equals("¬=") ) || (comp.equals( "^=") ) ||
-		         (comp.equals("GE") ) || (comp.equals(">=") ) ||
-		         (comp.equals("LE") ) || (comp.equals("<=") ) );
-	}
 
 	// deMorgan( LinkedList<ACScondition>, LinkedList<ACScondition>)
 	// Compute the logical NOT of a set of condition
@@ -954,79 +882,7 @@ public class ACSextract {
 		for ( ACScondition cc : inC ) {
 			toRet = this.ANDconditions( cc.not(), toRet );
 		}
-		return toRet;
-	}
-
-	// addVariable
-	// Adds a variable to the global list, after ensuring it doesn't already exist
-	protected void addVariable( String var ) {
-		// Search for the variable
-		boolean found = false;
-		for( String cv : this.variableList ) {
-			if( cv.equals( var ) ) found = true;
-		}
-		// If it's not already listed, add it.
-		if( !found ) this.variableList.add( var );
-	}
-
-
-	// Wrapper for main call
-	public String readToken() {
-		return this.readToken(false);
-	}
-
-	// readToken
-	// Reads the file, tokenizes, and handles the token.
-	// Returns null when you get to the end of the file
-	public String readToken(boolean nested) {
-		String toRet = null;
-		try {
-			// As long as not at end of file
-			if( !this.eof ) {
-				// print the stream tokens
-				int token = this.st.nextToken();
-				switch (token) {
-					// If it's EOF
-					case StreamTokenizer.TT_EOF:
-						this.eof = true;
-						break;
-					// If it's a word
-					case StreamTokenizer.TT_WORD:
-						toRet = this.st.sval.toUpperCase();
-
-						// If we hit a 8-digit number as a token, assume it's a line number.
-						// There shouldn't be any 8-digit number tokens flying solo
-						// We may need to later find a way to strip out line numbers before operating
-						if( this.isNumber( toRet ) && toRet.length() == 8 ) {
-							toRet = this.readToken(true);
-						}
-						break;
-					// If it's a number -- not actually used
-					// This program treats numbers like words
-					case StreamTokenizer.TT_NUMBER:
-						//System.out.println("Number: " + st.nval);
-						toRet = Double.toString(this.st.nval);
-						break;
-					// If it's quoted text, save the quoted text
-					case '\'':
-						toRet = '\''+this.st.sval.toUpperCase()+'\'';
-						break;
-					// Anything else, return it
-					default:
-						//System.out.println((char) token + " encountered.");
-						toRet = ""+(char)token;
-						toRet = toRet.toUpperCase();
-				}
-			}
-			// If at end of FILE
-			else {
-				toRet = "EOF";
-			}
-		} catch (Exception ex) {
-			this.fail( "Problem reading token. ", false );
-			ex.printStackTrace();
-		}
-		if( !nested ) this.debug( "READ TOKEN: "+toRet );
+		this.stats.deMorgan( inC.size(), toRet.size() );
 		return toRet;
 	}
 
@@ -1041,28 +897,28 @@ public class ACSextract {
 		return toRet;
 	}
 
-	// isNumber - determines if a given string is a decimal number
-	protected boolean isNumber( String input ) {
-		boolean isNum = true;
-		for( char c : input.toCharArray() ) {
-			if (!Character.isDigit(c)) isNum = false;
-		}
-		return isNum;
-	}
-
-	// pushToken
-	// Pushes last token back onto the stack
-	public void pushToken() {
-		this.debug( "pushToken" );
-		this.st.pushBack();
-	}
-
 	// fail
 	// FAIL prints a message. Optionally stops the program
 	// if you pass TRUE as the separate parameter.
+	// Problems reading the routine are reported by ACSparser.
 	protected void fail(String reason, boolean terminate ) {
-		System.out.println( "Error @"+this.st.lineno()+": "+reason );
-		if( terminate ) System.exit(8);
+		String msg = "Error @"+this.line+": "+reason;
+		// Tag the message with the input, since batch runs interleave them
+		if( this.batch ) msg = this.inputName+": "+msg;
+		this.console.println( msg );
+		if( terminate ) {
+			// Other extractions may still be running, so let the batch driver handle it
+			if( this.batch ) throw new ACSexception( msg );
+			System.exit(8);
+		}
+	}
+
+	// warn
+	// Prints a warning that isn't tied to the line being read
+	protected void warn( String reason ) {
+		String msg = "Warning: "+reason;
+		if( this.batch ) msg = this.inputName+": "+msg;
+		this.console.println( msg );
 	}
 
 	// fail
@@ -1071,10 +927,98 @@ public class ACSextract {
 		this.fail( reason, true );
 	}
 
-	// debug
-	// Simple function to print DEBUG messages and the line currently in processing
-	protected void debug( String message ) {
-		if( this.DEBUG ) System.out.println( "Line: "+this.st.lineno()+" D"+ this.doDepth+" : "+message );
+	// trace
+	// Prints a debug message and the line currently in processing,
+	// if the trace level is at least the given level.
+	// Arguments are only turned into text when the message is printed,
+	// so callers pass objects (such as the lexer, for the current token)
+	// instead of building the message themselves.
+	protected void trace( int level, String message ) {
+		if( level <= this.traceLevel ) this.emit( message );
+	}
+
+	protected void trace( int level, String message, Object a ) {
+		if( level <= this.traceLevel ) this.emit( message+a );
+	}
+
+	protected void trace( int level, String message, Object a, Object b ) {
+		if( level <= this.traceLevel ) this.emit( message+a+" "+b );
+	}
+
+	// trace
+	// Same, for numbers, so they aren't boxed when tracing is off
+	protected void trace( int level, String message, long a ) {
+		if( level <= this.traceLevel ) this.emit( message+a );
+	}
+
+	protected void trace( int level, String message, long a, long b ) {
+		if( level <= this.traceLevel ) this.emit( message+a+" "+b );
+	}
+
+	// emit
+	// Prints one trace message
+	protected void emit( String message ) {
+		this.console.println( "Line: "+this.line+" D"+ this.doDepth+" : "+message );
+	}
+
+	// close
+	// Closes the output file. Used to clean up after a failed batch extraction.
+	public void close() {
+		try {
+			if( this.sink != null ) this.sink.close();
+			else if( this.out != null ) this.out.close();
+		} catch( IOException e ) {
+			// Nothing more we can do with it
+		}
+	}
+
+	// getProcName
+	// Returns which ACS routine was processed (STORCLAS, DATACLAS...)
+	public String getProcName() {
+		return this.procName;
+	}
+
+	// getRules
+	// Returns the rules found, in sequence order. Empty when streaming.
+	public LinkedList<ACSrule> getRules() {
+		return this.rules;
+	}
+
+	// getExits
+	// Returns a rule for each EXIT, in the order they were found. Empty when streaming.
+	public LinkedList<ACSrule> getExits() {
+		return this.exits;
+	}
+
+	// getRoutine
+	// Returns the parsed routine, once run() or parse() has read it.
+	// It can be handed to another ACSextract, which then doesn't read the source again.
+	public ACSnode.Routine getRoutine() {
+		return this.routine;
+	}
+
+	// getTokenCount
+	// Returns the number of tokens read, or 0 if the routine was handed in already parsed
+	public long getTokenCount() {
+		return this.st == null ? 0 : this.st.getTokenCount();
+	}
+
+	// getRuleCount
+	// Returns the number of SET rules found
+	public int getRuleCount() {
+		return this.ruleSequence-1;
+	}
+
+	// getRowCount
+	// Returns the number of rule rows written to the output
+	public long getRowCount() {
+		return this.rowCount;
+	}
+
+	// getTruncatedCount
+	// Returns the number of rules that were cut short by maxrows or maxtotal
+	public int getTruncatedCount() {
+		return this.truncated;
 	}
 
 	// Help
@@ -1084,12 +1028,54 @@ public class ACSextract {
 		 System.out.println("Reads in an ACS routine and generates a CSV list of rules.");
 		 System.out.println("Syntax: ");
 		 System.out.println("   java ACSextract inputfile.txt <outputfile> <options>");
+		 System.out.println("   java ACSextract batch <directory|glob|@listfile> <outputdir> <options>");
+		 System.out.println("   java ACSextract library unload.txt <outputdir> <options>");
+		 System.out.println("   java ACSextract generate <outputfile|-> <options>");
+		 System.out.println("   java ACSextract classify inputfile.txt datasets.csv <outputfile> <options>");
+		 System.out.println("   java ACSextract simulate inputfile.txt inventory.csv <outputfile> <options>");
 		 System.out.println();
 		 System.out.println("If you do not specify an output file, program will use the");
 		 System.out.println("output filename with extension .csv" );
 		 System.out.println();
 		 System.out.println("Options: ");
 		 System.out.println("  debug - shows lots of debug messages." );
+		 System.out.println("  debug=n - 1 shows each statement, 2 (same as debug) adds every token." );
+		 System.out.println("  maxrows=n - stop writing a rule after n rows." );
+		 System.out.println("  maxtotal=n - stop writing rules after n rows in total." );
+		 System.out.println("  nosimplify - keep rows that can never be true or are covered by another row." );
+		 System.out.println("  engine=bdd - keep conditions as a decision diagram instead of lists. Default is engine=list." );
+		 System.out.println("  stream - write rules as they are found instead of holding them all in memory." );
+		 System.out.println("  format=csv|jsonl - output format. Default is csv." );
+		 System.out.println("  echo - also print the output on the console." );
+		 System.out.println("  jfr - emit Flight Recorder events, for a run started with -XX:StartFlightRecording." );
+		 System.out.println("  fb80 - input is 80 column records with sequence numbers in columns 73-80." );
+		 System.out.println("  encoding=cs - character set of the input, such as 1047 or 037 for EBCDIC. ebcdic is 1047." );
+		 System.out.println("  The input file can be - for standard input, and the output - for standard output." );
+		 System.out.println();
+		 System.out.println("Batch options: ");
+		 System.out.println("  threads=n - number of routines to extract at once. Defaults to one per CPU." );
+		 System.out.println("  library - each input is an unload of many routines, split at MEMBER NAME, ./ ADD or PROC." );
+		 System.out.println("  library unload.txt is the same as batch unload.txt library." );
+		 System.out.println();
+		 System.out.println("Generate options: ");
+		 System.out.println("  proc=name - STORCLAS, DATACLAS, MGMTCLAS or STORGRP. Default is STORCLAS." );
+		 System.out.println("  statements=n depth=n width=n fanout=n - size and shape of the routine." );
+		 System.out.println("  repeat=n - write the statements n times (default 1), each copy with its own values," );
+		 System.out.println("             so the work to extract the routine grows exactly n times." );
+		 System.out.println("  else=p comments=p - chance of an ELSE on each IF, and of a comment on each statement." );
+		 System.out.println("  filtlists=n filtsize=n values=n - FILTLISTs, their size, and values per variable." );
+		 System.out.println("  linenums - sequence numbers in columns 73-80." );
+		 System.out.println("  seed=n - random seed. The same seed and options give the same routine." );
+		 System.out.println();
+		 System.out.println("Classify options: ");
+		 System.out.println("  Same as for extracting. datasets.csv has a header of variables, such as &DSN,&DSORG,&SIZE," );
+		 System.out.println("  then one data set per line. The output adds the class, and the sequence and line of its SET." );
+		 System.out.println();
+		 System.out.println("Simulate options: ");
+		 System.out.println("  Same as for classify, and also writes the number of data sets given each class." );
+		 System.out.println("  threads=n - data sets to classify at once. Defaults to one per CPU." );
+		 System.out.println("  countsonly - only write the counts." );
+		 System.out.println("  dcollect - the inventory is DCOLLECT output, sent in binary with QUOTE SITE RDW." );
 	}
 
 
@@ -0,0 +1,109 @@
+/*****************************
+ *
+ * CLASS:   ACSflatten
+ * DATE :   10/17/2026
+ * Purpose: Remembers the condition stack of the last rule multiplied
+ *          out, flattened one depth at a time, so the next rule under
+ *          the same IFs starts from there instead of doing it again.
+ *
+ *          Entry i is the layers 0 to i of the stack ANDed together,
+ *          or null while every one of them was empty, which adds no
+ *          conditions. An empty entry has no rows at all.
+ *          Rules keep the very lists that were on the stack, so two
+ *          rules share a depth exactly when they hold the same list
+ *          there. Each rule keeps the entries it shares with the one
+ *          before it, drops the rest, and adds its own. Rules are
+ *          multiplied out in the order they were found, so SETs under
+ *          the same nest reuse the work done for the SET before them,
+ *          and only one stack's worth of entries is held at a time.
+ *
+ *          An entry is only made while it has at most LIMIT rows.
+ *          The layers above the last entry are left to ACSexpansion,
+ *          as they would be without this.
+ *
+ *          Not shared between threads. Each writer has its own.
+ *
+ *****************************/
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+public class ACSflatten {
+
+	// Most rows one entry can have
+	public static final int LIMIT = 4096;
+
+	// Layers the entries were made from, and the entries
+	protected ArrayList<LinkedList<ACScondition>> stack = new ArrayList<LinkedList<ACScondition>>();
+	protected ArrayList<LinkedList<ACScondition>> flattened = new ArrayList<LinkedList<ACScondition>>();
+	// Whether rows that can never be true were left out of the entries
+	protected boolean prune;
+
+	// layers
+	// Returns the layers to multiply out for a rule: the deepest entry
+	// that could be kept for it, as one layer, then the layers above it.
+	// Returns null if pruning and no row of an entry can be true, since
+	// then no row of the rule can be either.
+	public List<LinkedList<ACScondition>> layers( List<LinkedList<ACScondition>> layers, boolean prune ) {
+		if( prune != this.prune ) this.trim( 0 );
+		this.prune = prune;
+
+		// Keep the entries this rule shares with the last one
+		int same = 0;
+		while( same < this.stack.size() && same < layers.size() && this.stack.get(same) == layers.get(same) ) same++;
+		this.trim( same );
+
+		// Add its own, while they stay small enough
+		while( this.flattened.size() < layers.size() ) {
+			LinkedList<ACScondition> layer = layers.get( this.flattened.size() );
+			LinkedList<ACScondition> below = this.top();
+			if( (long)Math.max( layer.size(), 1 ) * ( below == null ? 1 : below.size() ) > LIMIT ) break;
+			this.stack.add( layer );
+			this.flattened.add( this.and( layer, below ) );
+		}
+
+		LinkedList<ACScondition> top = this.top();
+		List<LinkedList<ACScondition>> above = layers.subList( this.flattened.size(), layers.size() );
+		if( top == null ) return above;
+		if( top.size() == 0 ) return null;
+		ArrayList<LinkedList<ACScondition>> toRet = new ArrayList<LinkedList<ACScondition>>( above.size()+1 );
+		toRet.add( top );
+		toRet.addAll( above );
+		return toRet;
+	}
+
+	// and
+	// ANDs one layer onto the entry below it, the same way ANDconditions
+	// and ACSexpansion do: the layer's conditions change slowest, and
+	// their pairs come first. An empty layer, or a null entry, adds nothing.
+	protected LinkedList<ACScondition> and( LinkedList<ACScondition> layer, LinkedList<ACScondition> below ) {
+		if( layer.size() == 0 ) return below;
+		LinkedList<ACScondition> toRet = new LinkedList<ACScondition>();
+		for( ACScondition lc : layer ) {
+			if( below == null ) {
+				if( !this.prune || lc.isSatisfiable() ) toRet.add( lc );
+				continue;
+			}
+			for( ACScondition bc : below ) {
+				ACScondition c = lc.and( bc );
+				if( !this.prune || c.isSatisfiable() ) toRet.add( c );
+			}
+		}
+		return toRet;
+	}
+
+	// top
+	// Returns the deepest entry, or null if there isn't one
+	protected LinkedList<ACScondition> top() {
+		return this.flattened.isEmpty() ? null : this.flattened.get( this.flattened.size()-1 );
+	}
+
+	// trim
+	// Drops the entries from the given depth up
+	protected void trim( int depth ) {
+		while( this.stack.size() > depth ) {
+			this.stack.remove( this.stack.size()-1 );
+			this.flattened.remove( this.flattened.size()-1 );
+		}
+	}
+}
@@ -0,0 +1,426 @@
+/*****************************
+ *
+ * CLASS:   ACSgenerate
+ * DATE :   10/16/2026
+ * Purpose: Writes synthetic ACS routines for scale and stress testing.
+ *          The same options and seed always give the same routine.
+ *
+ *          A routine is a set of FILTLISTs followed by a number of
+ *          top level statements. Each one nests IFs and SELECTs down to
+ *          the given depth, and every IF or SELECT has one branch that
+ *          goes deeper while the rest are single SETs. So the size of
+ *          the routine grows linearly with the statement count, and the
+ *          depth, width and fan-out set how hard each statement is to
+ *          multiply out:
+ *            - conditions are ORs of ANDs, or ANDs of ORs, fanout wide
+ *            - an ELSE is the NOT of its IF's condition
+ *            - an OTHERWISE is the NOT of every WHEN in its SELECT
+ *
+ * Syntax:
+ *   - java ACSextract generate <outputfile|-> <options>
+ *
+ *   With - or no output file, the routine goes to the console.
+ *
+ * Options:
+ *   - proc=name      : STORCLAS (default), DATACLAS, MGMTCLAS or STORGRP
+ *   - statements=n   : top level statements (default 100)
+ *   - repeat=n       : write the statements n times (default 1). Each copy
+ *                      has the same shape but tests its own values, so the
+ *                      work to extract it grows exactly n times.
+ *   - depth=n        : IF / SELECT nesting in each statement (default 3)
+ *   - width=n        : WHENs in each SELECT (default 4)
+ *   - fanout=n       : comparisons in each AND and OR (default 2)
+ *   - else=p         : chance an IF has an ELSE, 0 to 1 (default 0.5)
+ *   - filtlists=n    : FILTLISTs to define and test against (default 4)
+ *   - filtsize=n     : entries in each INCLUDE list (default 8)
+ *   - values=n       : distinct values each variable is tested against (default 20)
+ *   - comments=p     : chance of a comment on each statement, 0 to 1 (default 0.2)
+ *   - linenums       : sequence numbers in columns 73-80, as in a numbered member
+ *   - seed=n         : random seed (default 1)
+ *
+ *****************************/
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Random;
+
+public class ACSgenerate {
+
+	// Last column for statements when sequence numbers are written
+	public static final int TEXT_COLUMNS = 72;
+
+	// Options
+	protected String proc = "STORCLAS";
+	protected int statements = 100;
+	protected int repeat = 1;
+	protected int depth = 3;
+	protected int width = 4;
+	protected int fanout = 2;
+	protected double elseRate = 0.5;
+	protected int filtlists = 4;
+	protected int filtsize = 8;
+	protected int values = 20;
+	protected double commentRate = 0.2;
+	protected boolean lineNumbers = false;
+	protected long seed = 1;
+
+	// Variables tested in conditions. The kind of each says what it is compared with.
+	protected static final String[] VARIABLES = {
+		"&DSN", "&DSN(2)", "&DSN(3)", "&HLQ", "&LLQ", "&UNIT", "&DSORG", "&RECORG",
+		"&DSTYPE", "&ACSENVIR", "&JOB", "&PGM", "&USER", "&SIZE", "&MAXSIZE", "&NQUAL"
+	};
+	protected static final int MASKED = 0;     // Dataset names, masks and FILTLISTs
+	protected static final int NAMED = 1;      // Short names and FILTLISTs
+	protected static final int FIXED = 2;      // One of a few known values
+	protected static final int NUMBER = 3;     // Compared with GT, LT and so on
+	protected static final int[] KINDS = {
+		MASKED, NAMED, NAMED, NAMED, NAMED, FIXED, FIXED, FIXED,
+		FIXED, FIXED, MASKED, NAMED, NAMED, NUMBER, NUMBER, NUMBER
+	};
+	protected static final String[][] FIXED_VALUES = {
+		null, null, null, null, null,
+		{ "3390", "3380", "SYSDA", "TAPE", "VIO", "3490" },
+		{ "PS", "PO", "VS", "DA", "IS" },
+		{ "KS", "ES", "RR", "LS" },
+		{ "PERM", "TEMP", "GDS" },
+		{ "ALLOC", "RECALL", "RECOVER", "CONVERT", "RENAME" },
+	};
+	protected static final String[] EQUALS = { "=", "EQ" };
+	protected static final String[] NOT_EQUALS = { "NE", "^=" };
+	protected static final String[] RANGES = { ">", "<", ">=", "<=", "GT", "LT", "GE", "LE", "NG", "NL" };
+	protected static final String[] UNITS = { "", "KB", "MB" };
+
+	// State while writing
+	protected Random rand;
+	protected Writer out;
+	protected StringBuilder line;
+	protected int lineNumber;
+	protected int setCount;
+	protected int valueOffset;      // Added to value numbers, different for each copy
+
+	// MAIN proc. Called from ACSextract when the first argument is "generate"
+	public static void main( String[] argz ) {
+		ACSgenerate g = new ACSgenerate();
+		String file = null;
+		for( int i=0; i<argz.length; i++ ) {
+			if( g.setOption( argz[i] ) ) continue;
+			if( i == 0 ) file = argz[i];
+			else System.out.println( "Unknown option: "+argz[i]+"... Moving on." );
+		}
+		try {
+			g.write( file );
+		} catch( IOException e ) {
+			System.out.println( "Error: "+e.getMessage() );
+			System.exit(4);
+		} catch( IllegalArgumentException e ) {
+			System.out.println( "Error: "+e.getMessage() );
+			System.exit(4);
+		}
+	}
+
+	// setOption
+	// Sets one option. Returns false if it isn't a generator option.
+	public boolean setOption( String opt ) {
+		try {
+			if( opt.startsWith("proc=") ) this.proc = opt.substring(5).toUpperCase();
+			else if( opt.startsWith("statements=") ) this.statements = Integer.parseInt( opt.substring(11) );
+			else if( opt.startsWith("repeat=") ) this.repeat = Integer.parseInt( opt.substring(7) );
+			else if( opt.startsWith("depth=") ) this.depth = Integer.parseInt( opt.substring(6) );
+			else if( opt.startsWith("width=") ) this.width = Integer.parseInt( opt.substring(6) );
+			else if( opt.startsWith("fanout=") ) this.fanout = Integer.parseInt( opt.substring(7) );
+			else if( opt.startsWith("else=") ) this.elseRate = Double.parseDouble( opt.substring(5) );
+			else if( opt.startsWith("filtlists=") ) this.filtlists = Integer.parseInt( opt.substring(10) );
+			else if( opt.startsWith("filtsize=") ) this.filtsize = Integer.parseInt( opt.substring(9) );
+			else if( opt.startsWith("values=") ) this.values = Integer.parseInt( opt.substring(7) );
+			else if( opt.startsWith("comments=") ) this.commentRate = Double.parseDouble( opt.substring(9) );
+			else if( opt.equals("linenums") ) this.lineNumbers = true;
+			else if( opt.startsWith("seed=") ) this.seed = Long.parseLong( opt.substring(5) );
+			else return false;
+		} catch( NumberFormatException e ) {
+			System.out.println( "Bad value for option: "+opt+"... Moving on." );
+		}
+		return true;
+	}
+
+	// generate
+	// Returns the routine as a String
+	public String generate() {
+		StringWriter sw = new StringWriter();
+		try {
+			this.write( sw );
+		} catch( IOException e ) {
+			// A StringWriter doesn't throw
+		}
+		return sw.toString();
+	}
+
+	// write
+	// Writes the routine to a file, or to the console for null or -
+	public void write( String file ) throws IOException {
+		if( file == null || file.equals("-") ) {
+			Writer w = new BufferedWriter( new OutputStreamWriter( System.out ) );
+			this.write( w );
+			w.flush();
+		} else {
+			try( Writer w = new BufferedWriter( new FileWriter( file ) ) ) {
+				this.write( w );
+			}
+		}
+	}
+
+	// write
+	// Writes the routine
+	public void write( Writer w ) throws IOException {
+		if( !this.proc.equals("STORCLAS") && !this.proc.equals("DATACLAS") &&
+		    !this.proc.equals("MGMTCLAS") && !this.proc.equals("STORGRP") ) {
+			throw new IllegalArgumentException( this.proc+" is not a valid PROC name." );
+		}
+		this.rand = new Random( this.seed );
+		this.out = w;
+		this.line = new StringBuilder();
+		this.lineNumber = 0;
+		this.setCount = 0;
+		this.valueOffset = 0;
+
+		this.comment( 0, "Generated "+this.proc+" routine, seed "+this.seed );
+		this.emit( 0, "PROC "+this.proc );
+		this.emit( 0, "" );
+
+		// FILTLISTs
+		for( int i=1; i<=this.filtlists; i++ ) {
+			StringBuilder s = new StringBuilder( "FILTLIST LIST" ).append( i ).append( " INCLUDE(" );
+			for( int j=0; j<this.filtsize; j++ ) {
+				if( j > 0 ) s.append( ',' );
+				s.append( this.mask( i*1000+j ) );
+			}
+			s.append( ')' );
+			if( this.rand.nextInt(2) == 0 ) s.append( " EXCLUDE(" ).append( this.mask( i*1000+999 ) ).append( ')' );
+			this.emit( 0, s.toString() );
+		}
+		this.emit( 0, "" );
+
+		// Statements. Every copy starts from the same seed, so it has the same shape.
+		long statementSeed = this.rand.nextLong();
+		for( int c=0; c<this.repeat; c++ ) {
+			this.rand = new Random( statementSeed );
+			this.valueOffset = c*Math.max( this.values, 1 );
+			for( int i=1; i<=this.statements; i++ ) {
+				if( this.rand.nextDouble() < this.commentRate ) this.comment( 0, "Statement "+( c*this.statements+i ) );
+				this.statement( 0, this.depth );
+			}
+		}
+
+		this.emit( 0, "END" );
+		this.out.flush();
+	}
+
+	// statement
+	// Writes one statement, nested levels deep
+	protected void statement( int indent, int levels ) throws IOException {
+		if( levels <= 0 ) {
+			this.set( indent );
+			return;
+		}
+		switch( this.rand.nextInt(3) ) {
+			case 0:
+				this.selectVariable( indent, levels );
+				break;
+			case 1:
+				this.selectConditions( indent, levels );
+				break;
+			default:
+				this.ifStatement( indent, levels );
+				break;
+		}
+	}
+
+	// body
+	// Writes what follows a THEN, ELSE, WHEN or OTHERWISE: a SET if levels
+	// is zero, otherwise a DO block with the deeper statement and a SET
+	protected void body( int indent, int levels ) throws IOException {
+		if( levels <= 0 ) {
+			this.set( indent );
+			return;
+		}
+		this.emit( indent, "DO" );
+		this.statement( indent+2, levels );
+		if( this.rand.nextInt(2) == 0 ) {
+			this.set( indent+2 );
+			if( this.rand.nextInt(4) == 0 ) this.emit( indent+2, "EXIT" );
+		}
+		this.emit( indent, "END" );
+	}
+
+	// ifStatement
+	// IF condition THEN ... ELSE ...
+	protected void ifStatement( int indent, int levels ) throws IOException {
+		this.emit( indent, "IF "+this.condition()+" THEN" );
+		this.body( indent+2, levels-1 );
+		if( this.rand.nextDouble() < this.elseRate ) {
+			this.emit( indent, "ELSE" );
+			this.set( indent+2 );
+		}
+	}
+
+	// selectVariable
+	// SELECT (&VAR) with a WHEN for width values of it
+	protected void selectVariable( int indent, int levels ) throws IOException {
+		int v = this.rand.nextInt( VARIABLES.length );
+		while( KINDS[v] == NUMBER ) v = this.rand.nextInt( VARIABLES.length );
+		this.emit( indent, "SELECT ("+VARIABLES[v]+")" );
+		int deep = this.rand.nextInt( this.width+1 );
+		for( int i=0; i<this.width; i++ ) {
+			this.emit( indent+2, "WHEN ("+this.literal( v, i )+")" );
+			this.body( indent+4, i == deep ? levels-1 : 0 );
+		}
+		this.otherwise( indent, levels, deep );
+	}
+
+	// selectConditions
+	// SELECT with a condition on each WHEN
+	protected void selectConditions( int indent, int levels ) throws IOException {
+		this.emit( indent, "SELECT" );
+		int deep = this.rand.nextInt( this.width+1 );
+		for( int i=0; i<this.width; i++ ) {
+			this.emit( indent+2, "WHEN ("+this.condition()+")" );
+			this.body( indent+4, i == deep ? levels-1 : 0 );
+		}
+		this.otherwise( indent, levels, deep );
+	}
+
+	// otherwise
+	// The OTHERWISE, which is the deep branch if none of the WHENs was, and the END
+	protected void otherwise( int indent, int levels, int deep ) throws IOException {
+		if( deep == this.width || this.rand.nextInt(2) == 0 ) {
+			this.emit( indent+2, "OTHERWISE" );
+			this.body( indent+4, deep == this.width ? levels-1 : 0 );
+		}
+		this.emit( indent, "END" );
+	}
+
+	// set
+	// SET &PROC = 'value'
+	protected void set( int indent ) throws IOException {
+		String prefix = this.proc.equals("STORGRP") ? "SG" : this.proc.substring( 0, 2 );
+		String s = "SET &"+this.proc+" = '"+prefix+( this.setCount++ % 997 )+"'";
+		if( this.rand.nextDouble() < this.commentRate ) s += " /* Rule "+this.setCount+" */";
+		this.emit( indent, s );
+	}
+
+	// condition
+	// Builds an OR of ANDs or an AND of ORs, each fanout comparisons wide
+	protected String condition() {
+		int outer = 1+this.rand.nextInt( this.fanout );
+		if( outer == 1 ) return this.comparison();
+		boolean orOfAnds = this.rand.nextInt(2) == 0;
+		StringBuilder s = new StringBuilder();
+		for( int i=0; i<outer; i++ ) {
+			if( i > 0 ) s.append( orOfAnds ? " OR " : " AND " );
+			int inner = 1+this.rand.nextInt( this.fanout );
+			if( inner > 1 ) s.append( '(' );
+			for( int j=0; j<inner; j++ ) {
+				if( j > 0 ) s.append( orOfAnds ? " AND " : " OR " );
+				s.append( this.comparison() );
+			}
+			if( inner > 1 ) s.append( ')' );
+		}
+		return s.toString();
+	}
+
+	// comparison
+	// Builds one VAR OP VALUE
+	protected String comparison() {
+		int v = this.rand.nextInt( VARIABLES.length );
+		int n = this.rand.nextInt( Math.max( this.values, 1 ) );
+		String var = VARIABLES[v];
+		if( KINDS[v] == NUMBER ) {
+			String unit = var.equals("&NQUAL") ? "" : UNITS[this.rand.nextInt( UNITS.length )];
+			return var+" "+RANGES[this.rand.nextInt( RANGES.length )]+" "+( var.equals("&NQUAL") ? 1+n%8 : (n+1)*10 )+unit;
+		}
+		String op = this.rand.nextInt(4) == 0 ? NOT_EQUALS[this.rand.nextInt(2)] : EQUALS[this.rand.nextInt(2)];
+		// Some tests are against a FILTLIST
+		if( KINDS[v] != FIXED && this.filtlists > 0 && this.rand.nextInt(5) == 0 ) {
+			return var+" "+op+" &LIST"+( 1+this.rand.nextInt( this.filtlists ) );
+		}
+		return var+" "+op+" "+this.literal( v, n );
+	}
+
+	// literal
+	// The n'th value to test a variable against, in this copy of the statements
+	protected String literal( int v, int n ) {
+		switch( KINDS[v] ) {
+			case MASKED:
+				return this.mask( n+this.valueOffset );
+			case FIXED:
+				String[] fv = FIXED_VALUES[v];
+				return "'"+fv[n % fv.length]+"'";
+			default:
+				return "'"+VARIABLES[v].substring( 1, 3 )+( n % Math.max( this.values, 1 )+this.valueOffset )+"'";
+		}
+	}
+
+	// mask
+	// A dataset name or mask, such as 'PROD7.**' or 'SYS%.LINK7'
+	protected String mask( int n ) {
+		switch( n % 4 ) {
+			case 0:
+				return "'PROD"+n+".**'";
+			case 1:
+				return "'SYS%.LINK"+n+"'";
+			case 2:
+				return "'TEST"+n+".*.CNTL'";
+			default:
+				return "'APP"+n+".DATA.D"+n+"'";
+		}
+	}
+
+	// comment
+	// Writes a comment on a line of its own
+	protected void comment( int indent, String text ) throws IOException {
+		this.emit( indent, "/* "+text+" */" );
+	}
+
+	// emit
+	// Writes one line. With sequence numbers, text past column 72 is carried
+	// onto the next line, broken at a blank or after a comma. Values never
+	// have either, so a quoted value is never split. Column 72 is left blank
+	// so the last word doesn't run into the sequence number.
+	protected void emit( int indent, String text ) throws IOException {
+		int room = TEXT_COLUMNS-1-indent;
+		while( this.lineNumbers && text.length() > room ) {
+			int cut = Math.max( text.lastIndexOf( ' ', room ), text.lastIndexOf( ',', room-1 )+1 );
+			if( cut <= 0 ) cut = room;
+			this.line( indent, text.substring( 0, cut ) );
+			text = text.substring( cut ).trim();
+			indent = Math.min( indent+2, TEXT_COLUMNS/2 );
+			room = TEXT_COLUMNS-1-indent;
+		}
+		this.line( indent, text );
+	}
+
+	// line
+	// Writes one line, with its sequence number if needed
+	protected void line( int indent, String text ) throws IOException {
+		StringBuilder s = this.line;
+		s.setLength(0);
+		for( int i=0; i<indent; i++ ) s.append( ' ' );
+		s.append( text );
+		this.lineNumber++;
+		if( this.lineNumbers ) {
+			while( s.length() < TEXT_COLUMNS ) s.append( ' ' );
+			String seq = String.valueOf( this.lineNumber*100 );
+			for( int i=seq.length(); i<8; i++ ) s.append( '0' );
+			s.append( seq );
+		} else {
+			// No trailing blanks
+			int len = s.length();
+			while( len > 0 && s.charAt( len-1 ) == ' ' ) len--;
+			s.setLength( len );
+		}
+		s.append( '\n' );
+		this.out.write( s.toString() );
+	}
+}
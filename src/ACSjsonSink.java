@@ -0,0 +1,121 @@
+/*****************************
+ *
+ * CLASS:   ACSjsonSink
+ * DATE :   10/16/2026
+ * Purpose: Writes the output as JSON Lines: one JSON object per line.
+ *          The first line is the header, then one line per rule row,
+ *          then one per FILTLIST. Each has a "type" to tell them apart.
+ *            {"type":"header","proc":"STORCLAS","variables":["&DSN",...]}
+ *            {"type":"rule","set":"'SC1'","seq":1,"exit":false,"line":12,
+ *             "conditions":{"&DSN":"SYS1.**"}}
+ *            {"type":"filtlist","name":"&ADMINS","include":"...","exclude":"..."}
+ *          Condition values are the same text as the CSV cells, and
+ *          variables the row doesn't test are left out.
+ *
+ *****************************/
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+
+public class ACSjsonSink implements ACSsink {
+
+	protected Writer out;
+	protected PrintStream echo;    // Null for no echo
+	protected ACSstats stats;      // Render and write times. Null to skip.
+	protected List<String> variables;
+
+	// Constructor
+	public ACSjsonSink( Writer o, PrintStream e ) {
+		this( o, e, null );
+	}
+
+	public ACSjsonSink( Writer o, PrintStream e, ACSstats st ) {
+		this.out = o;
+		this.echo = e;
+		this.stats = st;
+	}
+
+	// write
+	// Writes one line to the output and the echo
+	protected void write( StringBuilder s ) throws IOException {
+		long t = System.nanoTime();
+		s.append( '\n' );
+		String line = s.toString();
+		if( this.echo != null ) this.echo.print( line );
+		this.out.write( line );
+		if( this.stats != null ) this.stats.writeNanos += System.nanoTime()-t;
+	}
+
+	public void header( String procName, List<String> vars ) throws IOException {
+		this.variables = vars;
+		StringBuilder s = new StringBuilder( "{\"type\":\"header\",\"proc\":" );
+		quote( s, procName );
+		s.append( ",\"variables\":[" );
+		boolean first = true;
+		for( String v : vars ) {
+			if( !first ) s.append( ',' );
+			quote( s, v );
+			first = false;
+		}
+		s.append( "]}" );
+		this.write( s );
+	}
+
+	public void row( ACSrule rule, ACScondition row ) throws IOException {
+		long t = System.nanoTime();
+		StringBuilder s = new StringBuilder( "{\"type\":\"rule\",\"set\":" );
+		quote( s, rule.getSetValue() );
+		s.append( ",\"seq\":" ).append( rule.getSequence() );
+		s.append( ",\"exit\":" ).append( rule.getExit() );
+		s.append( ",\"line\":" ).append( rule.getLineNumber() );
+		s.append( ",\"conditions\":{" );
+		boolean first = true;
+		for( String v : this.variables ) {
+			String cell = row.cell( v );
+			if( cell.length() == 0 ) continue;
+			if( !first ) s.append( ',' );
+			quote( s, v );
+			s.append( ':' );
+			quote( s, cell );
+			first = false;
+		}
+		s.append( "}}" );
+		if( this.stats != null ) this.stats.renderNanos += System.nanoTime()-t;
+		this.write( s );
+	}
+
+	public void endRows() {
+	}
+
+	public void filtlist( String name, String include, String exclude ) throws IOException {
+		StringBuilder s = new StringBuilder( "{\"type\":\"filtlist\",\"name\":" );
+		quote( s, name );
+		s.append( ",\"include\":" );
+		quote( s, include );
+		s.append( ",\"exclude\":" );
+		quote( s, exclude );
+		s.append( '}' );
+		this.write( s );
+	}
+
+	public void close() throws IOException {
+		this.out.flush();
+		this.out.close();
+	}
+
+	// quote
+	// Appends a JSON string, escaping quotes, backslashes and control characters
+	protected static void quote( StringBuilder s, String v ) {
+		s.append( '"' );
+		if( v != null ) {
+			for( int i=0; i<v.length(); i++ ) {
+				char c = v.charAt(i);
+				if( c == '"' || c == '\\' ) s.append( '\\' ).append( c );
+				else if( c < 0x20 ) s.append( String.format( "\\u%04x", (int)c ) );
+				else s.append( c );
+			}
+		}
+		s.append( '"' );
+	}
+}
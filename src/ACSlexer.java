@@ -0,0 +1,532 @@
+/*****************************
+ *
+ * CLASS:   ACSlexer
+ * DATE :   10/16/2026
+ * Purpose: Splits ACS source into tokens.
+ *          Replaces java.io.StreamTokenizer with a scanner over a
+ *          char[] holding the whole routine. Follows the same syntax
+ *          rules ACSextract used to set up on the StreamTokenizer:
+ *            - words are letters, digits, * % _ & and .
+ *            - text in ' ' is one quoted token
+ *            - comments in slash-star ... star-slash are skipped
+ *            - blanks, control characters, + and - separate tokens
+ *            - anything else is a single character token
+ *
+ *          The buffer is folded to uppercase once when it is loaded,
+ *          so tokens never need toUpperCase(). A token is just a type
+ *          and a start/end offset into the buffer. A String is only
+ *          made when the caller asks for the token text, and common
+ *          keywords and punctuation come back as shared constants.
+ *
+ *          Each token is also classified into an ACStoken kind (and an
+ *          ACSoperator for comparisons) the first time it is asked for.
+ *
+ *          Source in a single byte character set, such as EBCDIC pulled
+ *          from z/OS in binary (IBM-1047, IBM-037), is decoded through a
+ *          256 entry table straight into the buffer, so ¬ comes out as
+ *          ¬ whichever code page it was in. Others, such as UTF-8, go
+ *          through a CharsetDecoder.
+ *
+ *****************************/
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ACSlexer {
+
+	// Token types. Same values as StreamTokenizer, so ordinary
+	// characters are returned as themselves.
+	public static final int TT_EOF = -1;
+	public static final int TT_WORD = -3;
+	public static final int TT_QUOTE = '\'';
+
+	// Inputs bigger than this are memory mapped rather than read into a byte array
+	public static final long MAP_THRESHOLD = 1024*1024;
+
+	// Fixed 80 column records. Columns past TEXT_COLUMNS hold the sequence number.
+	public static final int RECORD_LENGTH = 80;
+	public static final int TEXT_COLUMNS = 72;
+
+	// Character classes
+	protected static final byte CT_ORDINARY = 0;
+	protected static final byte CT_WHITESPACE = 1;
+	protected static final byte CT_WORD = 2;
+	protected static final byte[] ctype = new byte[256];
+
+	// Byte to character tables for single byte character sets, made the first time
+	// each is used. Holds null for character sets that can't use one.
+	protected static final Map<Charset,char[]> tables = Collections.synchronizedMap( new HashMap<Charset,char[]>() );
+
+	// Shared strings for single character tokens
+	protected static final String[] charTokens = new String[256];
+
+	// Shared strings for common words, looked up by hash,
+	// with the kind and operator of each
+	protected static final String[] wordTable = new String[512];
+	protected static final ACStoken[] wordKind = new ACStoken[512];
+	protected static final ACSoperator[] wordOp = new ACSoperator[512];
+
+	static {
+		for( int c=9; c<=32; c++ ) ctype[c] = CT_WHITESPACE;
+		ctype['+'] = CT_WHITESPACE;
+		ctype['-'] = CT_WHITESPACE;
+		for( int c='0'; c<='9'; c++ ) ctype[c] = CT_WORD;
+		for( int c='A'; c<='Z'; c++ ) ctype[c] = CT_WORD;
+		for( int c='a'; c<='z'; c++ ) ctype[c] = CT_WORD;
+		ctype['*'] = CT_WORD;
+		ctype['%'] = CT_WORD;
+		ctype['_'] = CT_WORD;
+		ctype['&'] = CT_WORD;
+		ctype['.'] = CT_WORD;
+
+		for( int c=0; c<256; c++ ) charTokens[c] = String.valueOf( (char)c );
+
+		// Statements
+		addWord( "PROC", ACStoken.PROC );           addWord( "FILTLIST", ACStoken.FILTLIST );
+		addWord( "INCLUDE", ACStoken.INCLUDE );     addWord( "EXCLUDE", ACStoken.EXCLUDE );
+		addWord( "SET", ACStoken.SET );             addWord( "DO", ACStoken.DO );
+		addWord( "IF", ACStoken.IF );               addWord( "THEN", ACStoken.THEN );
+		addWord( "ELSE", ACStoken.ELSE );           addWord( "SELECT", ACStoken.SELECT );
+		addWord( "WHEN", ACStoken.WHEN );           addWord( "OTHERWISE", ACStoken.OTHERWISE );
+		addWord( "EXIT", ACStoken.EXIT );           addWord( "CODE", ACStoken.CODE );
+		addWord( "WRITE", ACStoken.WRITE );         addWord( "END", ACStoken.END );
+		addWord( "AND", ACStoken.AND );             addWord( "&&", ACStoken.AND );
+		addWord( "OR", ACStoken.OR );
+
+		// Operators written as words
+		for( ACSoperator op : ACSoperator.values() ) {
+			String t = op.toString();
+			if( Character.isLetter( t.charAt(0) ) ) addWord( t, ACStoken.COMPARISON, op );
+		}
+
+		// Routines and read/write variables
+		for( String r : new String[] { "STORCLAS", "DATACLAS", "MGMTCLAS", "STORGRP" } ) {
+			addWord( r, ACStoken.ROUTINE );
+			addWord( "&"+r, ACStoken.ROUTINE_VARIABLE );
+		}
+
+		// Read-only variables
+		String[] vars = {
+			"&ACCT_JOB", "&ACCT_STEP", "&ACSENVIR", "&ACSENVR2", "&ALLVOL", "&ANYVOL",
+			"&APPLIC", "&BLKSIZE", "&DD", "&DEF_DATACLAS", "&DEF_MGMTCLAS", "&DEF_STORCLAS",
+			"&DSN", "&DSNTYPE", "&DSORG", "&DSOWNER", "&DSTYPE", "&EATTR", "&EXPDT",
+			"&FILENUM", "&GROUP", "&HLQ", "&JOB", "&LABEL", "&LIBNAME", "&LLQ",
+			"&MAXSIZE", "&MEMHLQ", "&MEMLLQ", "&MEMN", "&MEMNQUAL", "&MSPARM",
+			"&MSPOLICY", "&MSPOOL", "&MSVGP", "&NQUAL", "&NVOL", "&PGM", "&RECORG",
+			"&RETPD", "&SECLABL", "&SIZE", "&SYSNAME", "&SYSPLEX", "&UNIT", "&USER",
+			"&XMODE"
+		};
+		for( String v : vars ) addWord( v, ACStoken.VARIABLE );
+	}
+
+	// addWord
+	// Adds a word to the shared table
+	protected static void addWord( String w, ACStoken k ) {
+		addWord( w, k, null );
+	}
+
+	protected static void addWord( String w, ACStoken k, ACSoperator op ) {
+		int h = w.hashCode() & (wordTable.length-1);
+		while( wordTable[h] != null ) h = (h+1) & (wordTable.length-1);
+		wordTable[h] = w;
+		wordKind[h] = k;
+		wordOp[h] = op;
+	}
+
+	// Input buffer, already folded to uppercase
+	protected char[] buf;
+	protected int pos;
+	protected int limit;
+	protected int line;
+	protected int origin;     // Where scanning starts. Not 0 for one member of a library.
+	protected int firstLine;  // Line number at origin
+
+	// Current token
+	protected int ttype;
+	protected int start;      // First character of the token. For quotes, the first character inside.
+	protected int end;        // One past the last character. For quotes, the closing quote.
+	protected int tokLine;    // Line the token was found on
+	protected boolean closed; // For quotes, whether the closing quote was found
+	protected boolean pushedBack;
+	protected long tokens;    // Number of tokens scanned, not counting pushbacks
+	protected ACStoken kind;  // Filled in the first time it's asked for
+	protected ACSoperator op;
+
+	// Constructor
+	// Scans the given characters. The array is folded to uppercase in place.
+	public ACSlexer( char[] in, int len ) {
+		this( in, 0, len, 1 );
+		foldUpper( this.buf, 0, len );
+	}
+
+	// Constructor
+	// Scans part of characters that are already in uppercase. See slice().
+	protected ACSlexer( char[] in, int from, int to, int firstLine ) {
+		this.buf = in;
+		this.origin = from;
+		this.firstLine = firstLine;
+		this.limit = to;
+		this.reset();
+	}
+
+	// slice
+	// Returns a new lexer over part of this one's input, such as one member
+	// of a library, with its first line numbered firstLine. The buffer is
+	// shared, not copied, so any number of slices can be scanned at once.
+	public ACSlexer slice( int from, int to, int firstLine ) {
+		return new ACSlexer( this.buf, from, to, firstLine );
+	}
+
+	// open
+	// Reads an entire file into a new lexer.
+	// Big files are memory mapped and decoded straight from the mapping.
+	public static ACSlexer open( String file, Charset cs ) throws IOException {
+		return open( file, cs, false );
+	}
+
+	// open
+	// Same, for a member of 80 column records when fixed is true.
+	// The sequence numbers are blanked out as it is loaded.
+	// A file name of - reads standard input.
+	public static ACSlexer open( String file, Charset cs, boolean fixed ) throws IOException {
+		ByteBuffer bb;
+		if( file.equals("-") ) {
+			bb = ByteBuffer.wrap( System.in.readAllBytes() );
+		} else {
+			try( FileChannel fc = FileChannel.open( Paths.get( file ), StandardOpenOption.READ ) ) {
+				if( fc.size() > MAP_THRESHOLD ) {
+					bb = fc.map( FileChannel.MapMode.READ_ONLY, 0, fc.size() );
+				} else {
+					bb = ByteBuffer.wrap( Files.readAllBytes( Paths.get( file ) ) );
+				}
+			}
+		}
+
+		// One byte, one character: straight through the table into the buffer
+		char[] b;
+		int len;
+		char[] table = table( cs );
+		if( table != null ) {
+			len = bb.remaining();
+			b = new char[len];
+			for( int i=0; i<len; i++ ) b[i] = table[bb.get(i) & 0xFF];
+		} else {
+			CharBuffer cb = cs.newDecoder()
+			                  .onMalformedInput( CodingErrorAction.REPLACE )
+			                  .onUnmappableCharacter( CodingErrorAction.REPLACE )
+			                  .decode( bb );
+			b = cb.array();
+			len = cb.limit();
+		}
+		if( fixed ) stripSequence( b, len );
+		return new ACSlexer( b, len );
+	}
+
+	// table
+	// Returns the character for each byte of a single byte character set,
+	// such as IBM-1047 or IBM-037, or null for UTF-8 and the like.
+	// EBCDIC new line (NL, which Java reads as U+0085) is made a \n, so
+	// lines are counted the same as in ASCII.
+	protected static char[] table( Charset cs ) {
+		char[] t = tables.get( cs );
+		if( t != null || tables.containsKey( cs ) ) return t;
+		if( cs.canEncode() && cs.newEncoder().maxBytesPerChar() == 1.0f ) {
+			byte[] all = new byte[256];
+			for( int i=0; i<256; i++ ) all[i] = (byte)i;
+			String s = new String( all, cs );
+			if( s.length() == 256 ) t = s.replace( '\u0085', '\n' ).toCharArray();
+		}
+		tables.put( cs, t );
+		return t;
+	}
+
+	// stripSequence
+	// Blanks out columns 73-80 of every record, in place, so sequence numbers
+	// never reach the scanner. No line is added or taken away, so line numbers
+	// are still record numbers. A member sent without line ends is cut every
+	// 80 characters, and the last column of each record becomes the line end.
+	protected static void stripSequence( char[] b, int len ) {
+		boolean lines = false;
+		for( int i=0; i<len && i<=RECORD_LENGTH && !lines; i++ ) lines = ( b[i] == '\n' || b[i] == '\r' );
+		if( !lines ) {
+			for( int r=0; r<len; r+=RECORD_LENGTH ) {
+				for( int i=r+TEXT_COLUMNS; i<len && i<r+RECORD_LENGTH; i++ ) b[i] = ' ';
+				if( r+RECORD_LENGTH <= len ) b[r+RECORD_LENGTH-1] = '\n';
+			}
+			return;
+		}
+		int col = 0;
+		for( int i=0; i<len; i++ ) {
+			char c = b[i];
+			if( c == '\n' || c == '\r' ) col = 0;
+			else if( col++ >= TEXT_COLUMNS ) b[i] = ' ';
+		}
+	}
+
+	// foldUpper
+	// Converts a range of characters to uppercase, in place
+	protected static void foldUpper( char[] b, int from, int to ) {
+		for( int i=from; i<to; i++ ) {
+			char c = b[i];
+			if( c >= 'a' && c <= 'z' ) b[i] = (char)(c - 32);
+			else if( c >= 128 ) b[i] = Character.toUpperCase( c );
+		}
+	}
+
+	// nextToken
+	// Scans the next token and returns its type:
+	// TT_WORD, TT_QUOTE, TT_EOF, or the character itself
+	public int nextToken() {
+		if( this.pushedBack ) {
+			this.pushedBack = false;
+			return this.ttype;
+		}
+		this.kind = null;
+		this.tokens++;
+		char[] b = this.buf;
+		int p = this.pos;
+		int lim = this.limit;
+		while( true ) {
+			// Skip whitespace, counting lines. \r\n counts once.
+			while( p < lim ) {
+				char c = b[p];
+				if( c >= 256 || ctype[c] != CT_WHITESPACE ) break;
+				if( c == '\n' ) this.line++;
+				else if( c == '\r' ) {
+					this.line++;
+					if( p+1 < lim && b[p+1] == '\n' ) p++;
+				}
+				p++;
+			}
+			this.tokLine = this.line;
+			if( p >= lim ) {
+				this.pos = p;
+				this.start = this.end = p;
+				return this.ttype = TT_EOF;
+			}
+
+			char c = b[p];
+			// Words
+			if( c >= 256 || ctype[c] == CT_WORD ) {
+				this.start = p;
+				while( p < lim && ( b[p] >= 256 || ctype[b[p]] == CT_WORD ) ) p++;
+				this.end = p;
+				this.pos = p;
+				return this.ttype = TT_WORD;
+			}
+			// Quoted strings. A new line ends the string if the quote is missing.
+			if( c == '\'' ) {
+				this.start = ++p;
+				while( p < lim && b[p] != '\'' && b[p] != '\n' && b[p] != '\r' ) p++;
+				this.end = p;
+				this.closed = ( p < lim && b[p] == '\'' );
+				if( this.closed ) p++;
+				this.pos = p;
+				return this.ttype = TT_QUOTE;
+			}
+			// Comments
+			if( c == '/' && p+1 < lim && b[p+1] == '*' ) {
+				p += 2;
+				while( p < lim && !( b[p] == '*' && p+1 < lim && b[p+1] == '/' ) ) {
+					if( b[p] == '\n' ) this.line++;
+					else if( b[p] == '\r' ) {
+						this.line++;
+						if( p+1 < lim && b[p+1] == '\n' ) p++;
+					}
+					p++;
+				}
+				// Skip the closing */ and look again
+				p = Math.min( p+2, lim );
+				continue;
+			}
+			// Anything else is a token by itself
+			this.start = p;
+			this.end = ++p;
+			this.pos = p;
+			return this.ttype = c;
+		}
+	}
+
+	// reset
+	// Goes back to the start of the input, for a second pass
+	public void reset() {
+		this.pos = this.origin;
+		this.line = this.firstLine;
+		this.tokLine = this.firstLine;
+		this.ttype = TT_EOF;
+		this.kind = null;
+		this.pushedBack = false;
+	}
+
+	// pushBack
+	// Makes the next call to nextToken return the current token again.
+	// Only one token can be pushed back.
+	public void pushBack() {
+		this.pushedBack = true;
+	}
+
+	// getTokenCount
+	// Returns the number of tokens scanned so far, over every pass
+	public long getTokenCount() {
+		return this.tokens;
+	}
+
+	// lineno
+	// Returns the line number of the current token
+	public int lineno() {
+		return this.tokLine;
+	}
+
+	// length
+	// Returns the number of characters in the current token
+	public int length() {
+		return this.end - this.start;
+	}
+
+	// isDigits
+	// Returns true if the current token is all decimal digits
+	public boolean isDigits() {
+		for( int i=this.start; i<this.end; i++ ) {
+			if( this.buf[i] < '0' || this.buf[i] > '9' ) return false;
+		}
+		return true;
+	}
+
+	// matches
+	// Compares the current token with a String without making a new one
+	public boolean matches( String s ) {
+		int len = this.end - this.start;
+		if( s.length() != len ) return false;
+		for( int i=0; i<len; i++ ) {
+			if( this.buf[this.start+i] != s.charAt(i) ) return false;
+		}
+		return true;
+	}
+
+	// text
+	// Returns the current token as a String.
+	// Quoted strings include their quotes.
+	public String text() {
+		switch( this.ttype ) {
+			case TT_EOF:
+				return null;
+			case TT_WORD:
+				int w = this.lookupWord();
+				return w >= 0 ? wordTable[w] : new String( this.buf, this.start, this.end-this.start );
+			case TT_QUOTE:
+				// The quotes are already in the buffer around the text
+				if( this.closed ) return new String( this.buf, this.start-1, this.end-this.start+2 );
+				char[] q = new char[this.end-this.start+2];
+				q[0] = '\'';
+				System.arraycopy( this.buf, this.start, q, 1, this.end-this.start );
+				q[q.length-1] = '\'';
+				return new String( q );
+			default:
+				return this.ttype < 256 ? charTokens[this.ttype] : String.valueOf( (char)this.ttype );
+		}
+	}
+
+	// toString
+	// Returns the current token text, for trace messages
+	public String toString() {
+		return String.valueOf( this.text() );
+	}
+
+	// kind
+	// Returns what kind of token the current token is
+	public ACStoken kind() {
+		if( this.kind == null ) this.classify();
+		return this.kind;
+	}
+
+	// operator
+	// Returns the comparison operator for the current token,
+	// or null if it isn't a comparison
+	public ACSoperator operator() {
+		if( this.kind == null ) this.classify();
+		return this.op;
+	}
+
+	// classify
+	// Works out the kind of the current token
+	protected void classify() {
+		this.op = null;
+		switch( this.ttype ) {
+			case TT_EOF:
+				this.kind = ACStoken.EOF;
+				break;
+			case TT_QUOTE:
+				this.kind = ACStoken.QUOTED;
+				break;
+			case TT_WORD:
+				int w = this.lookupWord();
+				if( w >= 0 ) {
+					this.kind = wordKind[w];
+					this.op = wordOp[w];
+				} else if( this.buf[this.start] == '&' ) {
+					this.kind = ACStoken.VARIABLE;
+				} else {
+					this.kind = ACStoken.WORD;
+				}
+				break;
+			case '(':
+				this.kind = ACStoken.LPAREN;
+				break;
+			case ')':
+				this.kind = ACStoken.RPAREN;
+				break;
+			case ',':
+				this.kind = ACStoken.COMMA;
+				break;
+			case '|':
+				this.kind = ACStoken.OR;
+				break;
+			case '¬':
+			case '^':
+				this.kind = ACStoken.NOT;
+				break;
+			case '=':
+				this.kind = ACStoken.COMPARISON;
+				this.op = ACSoperator.EQ_SYM;
+				break;
+			case '>':
+				this.kind = ACStoken.COMPARISON;
+				this.op = ACSoperator.GT_SYM;
+				break;
+			case '<':
+				this.kind = ACStoken.COMPARISON;
+				this.op = ACSoperator.LT_SYM;
+				break;
+			default:
+				this.kind = ACStoken.OTHER;
+		}
+	}
+
+	// firstChar
+	// Returns the first character of the current token
+	public char firstChar() {
+		return this.buf[this.start];
+	}
+
+	// lookupWord
+	// Returns the index of the current word in the shared table, or -1 if it isn't there
+	protected int lookupWord() {
+		int h = 0;
+		for( int i=this.start; i<this.end; i++ ) h = 31*h + this.buf[i];
+		h &= (wordTable.length-1);
+		while( wordTable[h] != null ) {
+			if( this.matches( wordTable[h] ) ) return h;
+			h = (h+1) & (wordTable.length-1);
+		}
+		return -1;
+	}
+}
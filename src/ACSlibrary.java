@@ -0,0 +1,224 @@
+/*****************************
+ *
+ * CLASS:   ACSlibrary
+ * DATE :   10/16/2026
+ * Purpose: Splits a text unload of an ACS library into its routines,
+ *          so each one can be extracted on its own.
+ *
+ *          The unload is read once, into one ACSlexer, and each member
+ *          is a slice of it. Nothing is copied, so the members can be
+ *          extracted at the same time on different threads.
+ *
+ *          Members are found by, in order:
+ *            - MEMBER NAME xxx lines, as printed by IEBPTPCH
+ *            - ./ ADD NAME=xxx lines, as IEBUPDTE takes them
+ *            - failing both, every PROC that starts a line outside a
+ *              comment, for routines simply copied one after another
+ *          Header lines are left out of the members. Line numbers count
+ *          from 1 in each member after a header, the same as in the
+ *          member itself. Without headers they are the lines of the file.
+ *
+ *          A binary IEBCOPY unload is not text, and has to be turned
+ *          into one of these first.
+ *
+ *****************************/
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedList;
+import java.util.List;
+
+public class ACSlibrary {
+
+	// Whole unload, in uppercase
+	protected ACSlexer source;
+	protected LinkedList<Member> members;
+
+	// Constructor
+	// Finds the members in the given input
+	public ACSlibrary( ACSlexer source ) {
+		this.source = source;
+		this.members = this.split();
+	}
+
+	// open
+	// Reads an unload the same way ACSlexer reads a single routine
+	public static ACSlibrary open( String file, Charset cs, boolean fixed ) throws IOException {
+		return new ACSlibrary( ACSlexer.open( file, cs, fixed ) );
+	}
+
+	// getMembers
+	// Returns the members in the order they are in the unload
+	public List<Member> getMembers() {
+		return this.members;
+	}
+
+	// lexer
+	// Returns a new lexer over one member
+	public ACSlexer lexer( Member m ) {
+		return this.source.slice( m.from, m.to, m.line );
+	}
+
+	// split
+	// Cuts the unload at its member headers, or else at its PROCs.
+	// An unload with neither is one member with no name.
+	protected LinkedList<Member> split() {
+		LinkedList<Member> toRet = this.byHeaders();
+		if( toRet.size() == 0 ) toRet = this.byProcs();
+		if( toRet.size() == 0 ) toRet.add( new Member( "", this.source.origin, this.source.limit, this.source.firstLine ) );
+		return toRet;
+	}
+
+	// byHeaders
+	// One member from each MEMBER NAME or ./ ADD line to the next
+	protected LinkedList<Member> byHeaders() {
+		LinkedList<Member> toRet = new LinkedList<Member>();
+		char[] b = this.source.buf;
+		Member cur = null;
+		for( int p = this.source.origin; p < this.source.limit; p = nextLine( b, p, this.source.limit ) ) {
+			String name = header( b, p, lineEnd( b, p, this.source.limit ) );
+			if( name == null ) continue;
+			if( cur != null ) cur.to = p;
+			cur = new Member( name, nextLine( b, p, this.source.limit ), this.source.limit, 1 );
+			toRet.add( cur );
+		}
+		return toRet;
+	}
+
+	// byProcs
+	// One member from each PROC at the start of a line to the next.
+	// Anything before the first PROC, such as a comment block, goes with it.
+	protected LinkedList<Member> byProcs() {
+		LinkedList<Member> toRet = new LinkedList<Member>();
+		char[] b = this.source.buf;
+		int lim = this.source.limit;
+		int line = this.source.firstLine;
+		boolean comment = false;
+		Member cur = null;
+		for( int p = this.source.origin; p < lim; p = nextLine( b, p, lim ), line++ ) {
+			int e = lineEnd( b, p, lim );
+			int w = skipBlanks( b, p, e );
+			if( !comment && word( b, w, e, "PROC" ) ) {
+				if( cur != null ) cur.to = p;
+				cur = new Member( procName( b, w+4, e ), cur == null ? this.source.origin : p, lim, cur == null ? this.source.firstLine : line );
+				toRet.add( cur );
+			}
+			comment = inComment( b, p, e, comment );
+		}
+		return toRet;
+	}
+
+	// header
+	// Returns the member name if the line is a member header, or null
+	protected static String header( char[] b, int p, int e ) {
+		// IEBPTPCH. Column 1 can hold a carriage control character.
+		int w = skipBlanks( b, p, e );
+		if( !word( b, w, e, "MEMBER" ) && p < e && "10-+".indexOf( b[p] ) >= 0 ) w = skipBlanks( b, p+1, e );
+		if( word( b, w, e, "MEMBER" ) ) {
+			int n = skipBlanks( b, w+6, e );
+			if( !word( b, n, e, "NAME" ) ) return null;
+			return name( b, skipBlanks( b, n+4, e ), e );
+		}
+		// IEBUPDTE
+		if( p+2 <= e && b[p] == '.' && b[p+1] == '/' ) {
+			int a = skipBlanks( b, p+2, e );
+			if( !word( b, a, e, "ADD" ) ) return null;
+			for( int i=a+3; i+5 <= e; i++ ) {
+				if( String.valueOf( b, i, 5 ).equals( "NAME=" ) && ( b[i-1] == ' ' || b[i-1] == ',' ) ) return name( b, i+5, e );
+			}
+		}
+		return null;
+	}
+
+	// procName
+	// Returns the routine named after a PROC, skipping the optional number
+	protected static String procName( char[] b, int p, int e ) {
+		p = skipBlanks( b, p, e );
+		String n = name( b, p, e );
+		if( n.length() > 0 && Character.isDigit( n.charAt(0) ) ) n = name( b, skipBlanks( b, p+n.length(), e ), e );
+		return n;
+	}
+
+	// name
+	// Returns the letters, digits and national characters from p on
+	protected static String name( char[] b, int p, int e ) {
+		int s = p;
+		while( p < e && ( Character.isLetterOrDigit( b[p] ) || b[p] == '$' || b[p] == '#' || b[p] == '@' ) ) p++;
+		return String.valueOf( b, s, p-s );
+	}
+
+	// word
+	// Returns true if the line has the word at p, followed by a blank or the end
+	protected static boolean word( char[] b, int p, int e, String w ) {
+		if( p+w.length() > e ) return false;
+		for( int i=0; i<w.length(); i++ ) {
+			if( b[p+i] != w.charAt(i) ) return false;
+		}
+		return p+w.length() == e || b[p+w.length()] == ' ' || b[p+w.length()] == '\t';
+	}
+
+	// inComment
+	// Returns whether the end of the line is inside a comment, given whether its
+	// start was. Quotes end at the end of the line, as in ACSlexer.
+	protected static boolean inComment( char[] b, int p, int e, boolean comment ) {
+		boolean quoted = false;
+		for( ; p < e; p++ ) {
+			if( comment ) {
+				if( b[p] == '*' && p+1 < e && b[p+1] == '/' ) {
+					comment = false;
+					p++;
+				}
+			} else if( b[p] == '\'' ) {
+				quoted = !quoted;
+			} else if( !quoted && b[p] == '/' && p+1 < e && b[p+1] == '*' ) {
+				comment = true;
+				p++;
+			}
+		}
+		return comment;
+	}
+
+	// skipBlanks
+	protected static int skipBlanks( char[] b, int p, int e ) {
+		while( p < e && ( b[p] == ' ' || b[p] == '\t' ) ) p++;
+		return p;
+	}
+
+	// lineEnd
+	// Returns where the line starting at p ends, not counting its line end
+	protected static int lineEnd( char[] b, int p, int lim ) {
+		while( p < lim && b[p] != '\n' && b[p] != '\r' ) p++;
+		return p;
+	}
+
+	// nextLine
+	// Returns the start of the line after the one at p. \r\n counts once.
+	protected static int nextLine( char[] b, int p, int lim ) {
+		p = lineEnd( b, p, lim );
+		if( p < lim && b[p] == '\r' && p+1 < lim && b[p+1] == '\n' ) p++;
+		return p < lim ? p+1 : lim;
+	}
+
+
+	/*
+	 * One routine in the unload
+	 */
+
+	public static class Member {
+		public String name;  // Member name, or the routine name after PROC
+		public int from;     // First character
+		public int to;       // One past the last
+		public int line;     // Line number of the first character
+
+		public Member( String name, int from, int to, int line ) {
+			this.name = name;
+			this.from = from;
+			this.to = to;
+			this.line = line;
+		}
+
+		// toString
+		public String toString() {
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*****************************
+ *
+ * CLASS:   ACSmask
+ * DATE :   10/16/2026
+ * Purpose: One ACS mask, such as SYS1.**, CICS%.*.LOAD or **.LIST,
+ *          compiled once so it can be tested against any number of
+ *          names without making any objects.
+ *
+ *          The mask is a row of tokens: plain characters, % (one
+ *          character but a dot), * (any characters but a dot) and **
+ *          (any characters at all). A .** at the end, or before another
+ *          dot, can also match nothing, so A.** matches A and A.**.B
+ *          matches A.B.
+ *
+ *          Matching runs the tokens as a small automaton: bit i of a
+ *          long is set while the name so far can have matched the
+ *          first i tokens. Each character moves every state at once,
+ *          so a name is read once, left to right, whatever the mask.
+ *          Masks of more than 63 tokens, which can't be data set names,
+ *          fall back to backtracking.
+ *
+ *****************************/
+
+public class ACSmask {
+
+	// Longest mask, in tokens, the automaton can run
+	protected static final int MAXTOKENS = 63;
+
+	protected String text;      // The mask as written, without quotes
+	protected int tokens;       // Number of tokens. State tokens is the end.
+	protected int fixed;        // Leading tokens that take exactly one character each
+	protected int min;          // Fewest characters a name can have
+	protected boolean bounded;  // No * or **, so a name has exactly min characters
+	protected char[] chars;     // Character of each plain token
+	protected long plain;       // States at a plain character
+	protected long one;         // States at a %
+	protected long star;        // States at a *
+	protected long any;         // States at a **
+	protected long skip1;       // States that can step over their token without a character
+	protected long skip2;       // States at the dot of a .** that can be left out
+	protected long start;       // States before any character is read
+
+	// Constructor
+	public ACSmask( String mask ) {
+		this.text = mask;
+		this.chars = new char[mask.length()];
+
+		// Tokens
+		int n = 0;
+		for( int i=0; i<mask.length(); i++, n++ ) {
+			char c = mask.charAt(i);
+			long bit = n < 64 ? 1L << n : 0;
+			if( c == '*' ) {
+				if( i+1 < mask.length() && mask.charAt(i+1) == '*' ) {
+					this.any |= bit;
+					i++;
+				} else {
+					this.star |= bit;
+				}
+				this.skip1 |= bit;
+			} else if( c == '%' ) {
+				this.one |= bit;
+				this.min++;
+			} else {
+				this.plain |= bit;
+				this.chars[n] = c;
+				if( c == '.' && mask.startsWith( "**", i+1 ) && ( i+3 == mask.length() || mask.charAt(i+3) == '.' ) ) {
+					this.skip2 |= bit;
+				} else {
+					this.min++;
+				}
+			}
+		}
+		this.tokens = n;
+		this.bounded = ( this.star | this.any ) == 0;
+
+		// The plain characters and %s up to the first * or **, or up to a dot that can be
+		// left out. They are one token per character, so backtracking can start there too.
+		while( this.fixed < n && this.fixed < 64 && ( ( this.plain & ~this.skip2 | this.one ) & 1L << this.fixed ) != 0 ) this.fixed++;
+		this.start = this.close( 1L << Math.min( this.fixed, 63 ) );
+	}
+
+	// isMask
+	// Returns true if a value has a wildcard in it, so it must be matched as a mask
+	public static boolean isMask( String v ) {
+		return v.indexOf('*') >= 0 || v.indexOf('%') >= 0;
+	}
+
+	// getText
+	public String getText() {
+		return this.text;
+	}
+
+	// fixedChar
+	// Returns the character the i'th leading token takes, or % for any but a dot
+	public char fixedChar( int i ) {
+		return ( this.one & 1L << i ) != 0 ? '%' : this.chars[i];
+	}
+
+	// getFixed
+	// Returns how many leading tokens take exactly one character each
+	public int getFixed() {
+		return this.fixed;
+	}
+
+	// matches
+	// Returns true if the whole name matches the mask
+	public boolean matches( String v ) {
+		if( v.length() < this.fixed ) return false;
+		for( int i=0; i<this.fixed; i++ ) {
+			char c = this.fixedChar(i);
+			if( c == '%' ? v.charAt(i) == '.' : v.charAt(i) != c ) return false;
+		}
+		return this.matchesRest( v );
+	}
+
+	// matchesRest
+	// Returns true if the name matches the mask, given that its first
+	// getFixed() characters are already known to. For ACSmatcher.
+	public boolean matchesRest( String v ) {
+		int j = this.fixed;
+		if( v.length() < this.min || ( this.bounded && v.length() > this.tokens ) ) return false;
+		if( this.tokens > MAXTOKENS ) return backtrack( this.text, this.fixed, v, j );
+
+		long cur = this.start;
+		for( ; j<v.length(); j++ ) {
+			char c = v.charAt(j);
+			// States whose token takes this character move on, * and ** stay put
+			long adv = 0;
+			for( long x = cur & this.plain; x != 0; x &= x-1 ) {
+				int i = Long.numberOfTrailingZeros( x );
+				if( this.chars[i] == c ) adv |= 1L << i;
+			}
+			long stay = cur & this.any;
+			if( c != '.' ) {
+				adv |= cur & this.one;
+				stay |= cur & this.star;
+			}
+			cur = this.close( adv << 1 | stay );
+			if( cur == 0 ) return false;
+		}
+		return ( cur >>> this.tokens & 1 ) != 0;
+	}
+
+	// close
+	// Adds the states reached by stepping over tokens that can match nothing
+	protected long close( long s ) {
+		while( true ) {
+			long t = s | ( s & this.skip1 ) << 1 | ( s & this.skip2 ) << 2;
+			if( t == s ) return s;
+			s = t;
+		}
+	}
+
+	// backtrack
+	// Returns true if the name from j on matches the mask from i on, by trying
+	// every split. Only for masks too long for the automaton.
+	protected static boolean backtrack( String m, int i, String v, int j ) {
+		while( i < m.length() ) {
+			char c = m.charAt(i);
+			if( c == '*' ) {
+				boolean dbl = i+1 < m.length() && m.charAt(i+1) == '*';
+				int next = dbl ? i+2 : i+1;
+				for( int k=j; k<=v.length(); k++ ) {
+					if( backtrack( m, next, v, k ) ) return true;
+					if( k < v.length() && !dbl && v.charAt(k) == '.' ) break;
+				}
+				return false;
+			}
+			if( c == '.' && m.startsWith( "**", i+1 ) && ( i+3 == m.length() || m.charAt(i+3) == '.' ) && backtrack( m, i+3, v, j ) ) {
+				return true;
+			}
+			if( j == v.length() ) return false;
+			if( c == '%' ? v.charAt(j) == '.' : v.charAt(j) != c ) return false;
+			i++;
+			j++;
+		}
+		return j == v.length();
+	}
+
+	// toString
+	public String toString() {
+		return this.text;
+	}
+}
@@ -0,0 +1,162 @@
+/*****************************
+ *
+ * CLASS:   ACSmatcher
+ * DATE :   10/16/2026
+ * Purpose: One FILTLIST, compiled so that names, jobs and user ids can
+ *          be tested against it quickly and without making any objects.
+ *
+ *          The INCLUDE and EXCLUDE lists, kept by ACSextract as the text
+ *          that was written (CICS*,'CISPECL'), are split into entries.
+ *          Plain entries go in a hash set, so any number of them cost
+ *          one lookup. Masks go in a trie keyed on the characters they
+ *          start with, up to the first * or **, so a name only meets
+ *          the masks whose start fits it: SYS1.** is never tried against
+ *          PROD.DATA. A % in the start is an edge any character but a
+ *          dot can take. Each mask is an ACSmask.
+ *
+ *          A name matches if it is included (everything is, when there
+ *          is no INCLUDE list) and not excluded. EXCLUDE always wins.
+ *
+ *          Once built, a matcher can be shared by any number of threads.
+ *
+ *****************************/
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+
+public class ACSmatcher {
+
+	protected Patterns include;
+	protected Patterns exclude;
+
+	// Constructor
+	// From the lists as kept in ACSextract.ACSfiltlist. Either may be empty.
+	public ACSmatcher( String include, String exclude ) {
+		this( entries( include ), entries( exclude ) );
+	}
+
+	// Constructor
+	// From entries already split, without quotes
+	public ACSmatcher( List<String> include, List<String> exclude ) {
+		this.include = new Patterns( include );
+		this.exclude = new Patterns( exclude );
+	}
+
+	// matches
+	// Returns true if the name is included and not excluded
+	public boolean matches( String v ) {
+		if( this.include.size > 0 && !this.include.matches( v ) ) return false;
+		return !this.exclude.matches( v );
+	}
+
+	// entries
+	// Splits a list as written, such as CICS*,'CISPECL', on the commas
+	// outside quotes, and takes the quotes off
+	public static List<String> entries( String list ) {
+		LinkedList<String> toRet = new LinkedList<String>();
+		if( list == null ) return toRet;
+		StringBuilder cur = new StringBuilder();
+		boolean quoted = false;
+		for( int i=0; i<list.length(); i++ ) {
+			char c = list.charAt(i);
+			if( c == '\'' ) quoted = !quoted;
+			if( c == ',' && !quoted ) {
+				if( cur.length() > 0 ) toRet.add( ACSevaluator.unquote( cur.toString() ) );
+				cur.setLength(0);
+			} else {
+				cur.append( c );
+			}
+		}
+		if( cur.length() > 0 ) toRet.add( ACSevaluator.unquote( cur.toString() ) );
+		return toRet;
+	}
+
+
+	/*
+	 * One list of entries
+	 */
+
+	protected static class Patterns {
+		int size;
+		HashSet<String> literals;
+		Trie masks;
+
+		Patterns( List<String> entries ) {
+			this.size = entries.size();
+			this.literals = new HashSet<String>();
+			this.masks = new Trie();
+			for( String e : entries ) {
+				if( ACSmask.isMask( e ) ) this.masks.add( new ACSmask( e ), 0 );
+				else this.literals.add( e );
+			}
+			this.masks.freeze();
+		}
+
+		// matches
+		// Returns true if the name is one of the entries or fits one of the masks
+		boolean matches( String v ) {
+			return this.literals.contains( v ) || this.masks.matches( v, 0 );
+		}
+	}
+
+	// Masks by the characters they start with. A mask sits at the node
+	// for its whole start, and is only tried on names that reach it.
+	protected static class Trie {
+		char[] keys = new char[0];
+		Trie[] next = new Trie[0];
+		Trie wild;
+		ACSmask[] here = new ACSmask[0];
+		TreeMap<Character,Trie> building = new TreeMap<Character,Trie>();
+		LinkedList<ACSmask> adding = new LinkedList<ACSmask>();
+
+		// add
+		// Files a mask under the rest of its start, from depth on
+		void add( ACSmask m, int depth ) {
+			if( depth == m.getFixed() ) {
+				this.adding.add( m );
+				return;
+			}
+			Character c = m.fixedChar( depth );
+			Trie t = this.building.get( c );
+			if( t == null ) {
+				t = new Trie();
+				this.building.put( c, t );
+			}
+			t.add( m, depth+1 );
+		}
+
+		// freeze
+		// Turns the maps used while adding into sorted arrays
+		void freeze() {
+			this.wild = this.building.remove( '%' );
+			if( this.wild != null ) this.wild.freeze();
+			this.keys = new char[this.building.size()];
+			this.next = new Trie[this.building.size()];
+			int i = 0;
+			for( Character c : this.building.keySet() ) {
+				this.keys[i] = c;
+				this.next[i] = this.building.get( c );
+				this.next[i++].freeze();
+			}
+			this.here = this.adding.toArray( new ACSmask[0] );
+			this.building = null;
+			this.adding = null;
+		}
+
+		// matches
+		// Returns true if a mask at or below this node, j characters into
+		// the name, fits it. Follows both the character and any % edge.
+		boolean matches( String v, int j ) {
+			for( ACSmask m : this.here ) {
+				if( m.matchesRest( v ) ) return true;
+			}
+			if( j == v.length() ) return false;
+			char c = v.charAt(j);
+			int i = Arrays.binarySearch( this.keys, c );
+			if( i >= 0 && this.next[i].matches( v, j+1 ) ) return true;
+			return c != '.' && this.wild != null && this.wild.matches( v, j+1 );
+		}
+	}
+}
@@ -0,0 +1,286 @@
+/*****************************
+ *
+ * CLASS:   ACSnode
+ * DATE :   10/16/2026
+ * Purpose: One statement or condition of a parsed ACS routine.
+ *          ACSparser reads the source once into a tree of these, and
+ *          anything that needs to know what the routine says walks the
+ *          tree with a Visitor instead of reading the source again.
+ *          ACSextract is one such visitor. It turns the tree into rules.
+ *
+ *          Nodes are never changed once they are made, so one tree can
+ *          be kept, compared, or walked by any number of threads at once.
+ *          Every node has the line it was found on.
+ *
+ *          Statements:  Routine (the whole routine), Proc, Filtlist,
+ *                       Set, Exit, Write, Do, If, Select
+ *          Conditions:  Compare, And, Or. Parentheses leave no node of
+ *                       their own, so ( A OR B ) AND C is
+ *                       And( Or( A, B ), C ). A run of the same operator
+ *                       is one node, so A OR B OR C is Or( A, B, C ).
+ *                       AND binds tighter than OR, so A AND B OR C
+ *                       is Or( And( A, B ), C ).
+ *
+ *****************************/
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public abstract class ACSnode {
+
+	// Line the node was found on
+	public final int line;
+
+	// Constructor
+	protected ACSnode( int line ) {
+		this.line = line;
+	}
+
+	// accept
+	// Calls the visitor's method for this kind of node and returns what it returns
+	public abstract <T> T accept( Visitor<T> v );
+
+	// Visitor
+	// One method for each kind of node. Statements usually return null,
+	// conditions whatever the visitor makes of them.
+	public interface Visitor<T> {
+		T visitRoutine( Routine n );
+		T visitProc( Proc n );
+		T visitFiltlist( Filtlist n );
+		T visitSet( Set n );
+		T visitExit( Exit n );
+		T visitWrite( Write n );
+		T visitDo( Do n );
+		T visitIf( If n );
+		T visitSelect( Select n );
+		T visitCompare( Compare n );
+		T visitAnd( And n );
+		T visitOr( Or n );
+	}
+
+	// freeze
+	// Returns a copy of a list that can't be changed
+	protected static <T> List<T> freeze( List<T> l ) {
+		return Collections.unmodifiableList( new ArrayList<T>( l ) );
+	}
+
+
+	/*
+	 * Statements
+	 */
+
+	// The whole routine: its statements, the routine it sets (from the
+	// last PROC), and every variable it tests, in the order first tested
+	public static final class Routine extends ACSnode {
+		public final List<ACSnode> statements;
+		public final String procName;
+		public final List<String> variables;
+
+		public Routine( List<ACSnode> statements, String procName, List<String> variables ) {
+			super( 1 );
+			this.statements = freeze( statements );
+			this.procName = procName;
+			this.variables = freeze( variables );
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitRoutine( this );
+		}
+	}
+
+	// PROC STORCLAS, or PROC 1 STORCLAS
+	public static final class Proc extends ACSnode {
+		public final String name;
+
+		public Proc( int line, String name ) {
+			super( line );
+			this.name = name;
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitProc( this );
+		}
+	}
+
+	// FILTLIST name INCLUDE(...) EXCLUDE(...). The lists are kept as written.
+	public static final class Filtlist extends ACSnode {
+		public final String name;
+		public final String include;
+		public final String exclude;
+
+		public Filtlist( int line, String name, String include, String exclude ) {
+			super( line );
+			this.name = name;
+			this.include = include;
+			this.exclude = exclude;
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitFiltlist( this );
+		}
+	}
+
+	// SET &STORCLAS = value. The line is the line of the value.
+	public static final class Set extends ACSnode {
+		public final String variable;
+		public final String value;
+
+		public Set( int line, String variable, String value ) {
+			super( line );
+			this.variable = variable;
+			this.value = value;
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitSet( this );
+		}
+	}
+
+	// EXIT, or EXIT CODE(n). Code is null without one.
+	public static final class Exit extends ACSnode {
+		public final String code;
+
+		public Exit( int line, String code ) {
+			super( line );
+			this.code = code;
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitExit( this );
+		}
+	}
+
+	// WRITE 'text' &VAR ..., with the parts joined by blanks
+	public static final class Write extends ACSnode {
+		public final String text;
+
+		public Write( int line, String text ) {
+			super( line );
+			this.text = text;
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitWrite( this );
+		}
+	}
+
+	// DO ... END
+	public static final class Do extends ACSnode {
+		public final List<ACSnode> statements;
+
+		public Do( int line, List<ACSnode> statements ) {
+			super( line );
+			this.statements = freeze( statements );
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitDo( this );
+		}
+	}
+
+	// IF condition THEN statement ELSE statement.
+	// Either statement can be null if there was nothing there. An ELSE
+	// with nothing after it still counts, so hasElse says whether there was one.
+	public static final class If extends ACSnode {
+		public final ACSnode condition;
+		public final ACSnode thenStatement;
+		public final boolean hasElse;
+		public final ACSnode elseStatement;
+
+		public If( int line, ACSnode condition, ACSnode thenStatement, boolean hasElse, ACSnode elseStatement ) {
+			super( line );
+			this.condition = condition;
+			this.thenStatement = thenStatement;
+			this.hasElse = hasElse;
+			this.elseStatement = elseStatement;
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitIf( this );
+		}
+	}
+
+	// SELECT, or SELECT (&VAR), with its WHENs and OTHERWISE.
+	// With a variable, each WHEN's condition is a Compare of it to the value.
+	// Otherwise is null when there is no OTHERWISE.
+	public static final class Select extends ACSnode {
+		public final String variable;
+		public final List<When> whens;
+		public final List<ACSnode> otherwise;
+
+		public Select( int line, String variable, List<When> whens, List<ACSnode> otherwise ) {
+			super( line );
+			this.variable = variable;
+			this.whens = freeze( whens );
+			this.otherwise = otherwise == null ? null : freeze( otherwise );
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitSelect( this );
+		}
+	}
+
+	// WHEN (condition) statements. Only found in a Select, which visits them itself.
+	public static final class When {
+		public final int line;
+		public final ACSnode condition;
+		public final List<ACSnode> statements;
+
+		public When( int line, ACSnode condition, List<ACSnode> statements ) {
+			this.line = line;
+			this.condition = condition;
+			this.statements = freeze( statements );
+		}
+	}
+
+
+	/*
+	 * Conditions
+	 */
+
+	// &VAR op value. A value written first, 'X' = &VAR, is turned around.
+	public static final class Compare extends ACSnode {
+		public final String variable;
+		public final ACSoperator operator;
+		public final String value;
+
+		public Compare( int line, String variable, ACSoperator operator, String value ) {
+			super( line );
+			this.variable = variable;
+			this.operator = operator;
+			this.value = value;
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitCompare( this );
+		}
+	}
+
+	// Two or more conditions joined by AND
+	public static final class And extends ACSnode {
+		public final List<ACSnode> terms;
+
+		public And( int line, List<ACSnode> terms ) {
+			super( line );
+			this.terms = freeze( terms );
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitAnd( this );
+		}
+	}
+
+	// Two or more conditions joined by OR
+	public static final class Or extends ACSnode {
+		public final List<ACSnode> terms;
+
+		public Or( int line, List<ACSnode> terms ) {
+			super( line );
+			this.terms = freeze( terms );
+		}
+
+		public <T> T accept( Visitor<T> v ) {
+			return v.visitOr( this );
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*****************************
+ *
+ * CLASS:   ACSoperator
+ * DATE :   10/16/2026
+ * Purpose: An ACS comparison operator.
+ *          Each spelling is kept separately (EQ and = are both here),
+ *          so the output shows the operator the way the routine wrote it.
+ *          Negation is a table lookup that keeps the same style of
+ *          spelling, so NOT of EQ is NE and NOT of = is ¬=.
+ *          relation() maps every spelling onto one of EQ, NE, GT, LT,
+ *          GE or LE, so NG and ¬> both come back as LE.
+ *
+ *          GT or >        Greater than
+ *          LT or <        Less than
+ *          NG or ¬> or ^> Not greater than
+ *          NL or ¬< or ^< Not less than
+ *          EQ or =        Equal
+ *          NE or ¬= or ^= Not equal
+ *          GE or >=       Greater than or equal
+ *          LE or <=       Less than or equal
+ *
+ *****************************/
+public enum ACSoperator {
+
+	GT( "GT" ), GT_SYM( ">" ),
+	LT( "LT" ), LT_SYM( "<" ),
+	NG( "NG" ), NG_NOT( "¬>" ), NG_CARET( "^>" ),
+	NL( "NL" ), NL_NOT( "¬<" ), NL_CARET( "^<" ),
+	EQ( "EQ" ), EQ_SYM( "=" ),
+	NE( "NE" ), NE_NOT( "¬=" ), NE_CARET( "^=" ),
+	GE( "GE" ), GE_SYM( ">=" ),
+	LE( "LE" ), LE_SYM( "<=" );
+
+	// How the operator is written
+	protected final String text;
+	// The logical opposite
+	protected ACSoperator negation;
+	// What the operator means, as one of EQ, NE, GT, LT, GE, LE
+	protected ACSoperator relation;
+
+	static {
+		GT.negation = LE;        GT_SYM.negation = LE_SYM;
+		LT.negation = GE;        LT_SYM.negation = GE_SYM;
+		NG.negation = GT;        NG_NOT.negation = GT_SYM;   NG_CARET.negation = GT_SYM;
+		NL.negation = LT;        NL_NOT.negation = LT_SYM;   NL_CARET.negation = LT_SYM;
+		EQ.negation = NE;        EQ_SYM.negation = NE_NOT;
+		NE.negation = EQ;        NE_NOT.negation = EQ_SYM;   NE_CARET.negation = EQ_SYM;
+		GE.negation = LT;        GE_SYM.negation = LT_SYM;
+		LE.negation = GT;        LE_SYM.negation = GT_SYM;
+
+		GT.relation = GT;        GT_SYM.relation = GT;
+		LT.relation = LT;        LT_SYM.relation = LT;
+		NG.relation = LE;        NG_NOT.relation = LE;       NG_CARET.relation = LE;
+		NL.relation = GE;        NL_NOT.relation = GE;       NL_CARET.relation = GE;
+		EQ.relation = EQ;        EQ_SYM.relation = EQ;
+		NE.relation = NE;        NE_NOT.relation = NE;       NE_CARET.relation = NE;
+		GE.relation = GE;        GE_SYM.relation = GE;
+		LE.relation = LE;        LE_SYM.relation = LE;
+	}
+
+	// Constructor
+	ACSoperator( String t ) {
+		this.text = t;
+	}
+
+	// not
+	// Returns the opposite comparison
+	public ACSoperator not() {
+		return this.negation;
+	}
+
+	// relation
+	// Returns what the operator means: EQ, NE, GT, LT, GE or LE
+	public ACSoperator relation() {
+		return this.relation;
+	}
+
+	// disjoint
+	// Returns true if no value can satisfy both x OP1 a and x OP2 b,
+	// where c is a compared to b: negative if a < b, 0 if equal, positive if a > b.
+	public static boolean disjoint( ACSoperator op1, ACSoperator op2, int c ) {
+		ACSoperator r1 = op1.relation, r2 = op2.relation;
+		// Make a the smaller of the two
+		if( c > 0 ) {
+			ACSoperator t = r1; r1 = r2; r2 = t;
+			c = -c;
+		}
+		if( c == 0 ) {
+			// Same value: disjoint if the two sides of it don't overlap
+			switch( r1 ) {
+				case EQ: return r2 == NE || r2 == GT || r2 == LT;
+				case NE: return r2 == EQ;
+				case GT: return r2 == EQ || r2 == LT || r2 == LE;
+				case LT: return r2 == EQ || r2 == GT || r2 == GE;
+				case GE: return r2 == LT;
+				case LE: return r2 == GT;
+				default: return false;
+			}
+		}
+		// a < b: disjoint if the first allows nothing at or above a,
+		// or the second allows nothing at or below b, and they don't reach each other
+		boolean firstStopsAtA = ( r1 == EQ || r1 == LT || r1 == LE );
+		boolean secondStartsAtB = ( r2 == EQ || r2 == GT || r2 == GE );
+		return firstStopsAtA && secondStartsAtB;
+	}
+
+	// isEqual
+	// Returns true for EQ and =, which the CSV shows without the operator
+	public boolean isEqual() {
+		return this == EQ || this == EQ_SYM;
+	}
+
+	// toString
+	// Returns the operator as written in the routine
+	public String toString() {
+		return this.text;
+	}
+
+	// combine
+	// Builds a two character operator from its parts,
+	// such as > and = for >=, or ¬ and = for ¬=.
+	// Returns null if the two don't make an operator.
+	public static ACSoperator combine( char first, char second ) {
+		switch( first ) {
+			case '>':
+				return second == '=' ? GE_SYM : null;
+			case '<':
+				return second == '=' ? LE_SYM : null;
+			case '¬':
+				return second == '=' ? NE_NOT : second == '>' ? NG_NOT : second == '<' ? NL_NOT : null;
+			case '^':
+				return second == '=' ? NE_CARET : second == '>' ? NG_CARET : second == '<' ? NL_CARET : null;
+			default:
+				return null;
+		}
+	}
+
+	// parse
+	// Returns the operator for the given spelling, or null if it isn't one
+	public static ACSoperator parse( String s ) {
+		for( ACSoperator op : values() ) {
+			if( op.text.equals( s ) ) return op;
+		}
+		return null;
+	}
+}
@@ -8,26 +8,65 @@
  *          comparison = EQ
  *          value = SYS1*
  *
+ *          Pairs can't be changed once made. Get them from
+ *          ACSpairTable.intern(), which hands out one shared
+ *          instance per VAR / OP / VALUE, with its own id.
+ *
+ *          The value is looked at once when the pair is made, so
+ *          conflicts() can tell whether two pairs on the same variable
+ *          can ever be true together without parsing it again.
+ *
  *****************************************/
 public class ACSpair {
 
 	// Local variables
-	protected String variable;
-	protected String comparison;
-	protected String value;
-
-	// Constructor. Init to zero
-	public ACSpair() {
-		this.variable = "";
-		this.value = "";
-		this.comparison = "";
-	}
+	protected final ACSpairTable table;
+	protected final int id;
+	protected final String variable;
+	protected final ACSoperator comparison;
+	protected final String value;
+	protected final int hash;
+
+	// What the value is: a literal (quotes removed), a number
+	// (in KB, or -1 if too big to hold), or neither, such as a mask or &VAR
+	protected final String literal;
+	protected final boolean numeric;
+	protected final long kilobytes;
 
-	// Constructor, accepts 3 parameters to create new pair
-	public ACSpair( String nv, String nc, String nval ) {
+	// The opposite pair, looked up the first time not() is called
+	protected ACSpair negation;
+
+	// Constructor. Only used by ACSpairTable.
+	protected ACSpair( ACSpairTable t, int nid, String nv, ACSoperator nc, String nval ) {
+		this.table = t;
+		this.id = nid;
 		this.variable = nv;
 		this.comparison = nc;
 		this.value = nval;
+		this.hash = ( nv.hashCode()*31 + nc.hashCode() )*31 + nval.hashCode();
+
+		// Literal: anything that isn't a variable or a mask
+		boolean quoted = nval.length() >= 2 && nval.startsWith("'") && nval.endsWith("'");
+		String lit = quoted ? nval.substring( 1, nval.length()-1 ) : nval;
+		if( !quoted && nval.startsWith("&") ) lit = null;
+		else if( lit.indexOf('*') >= 0 || lit.indexOf('%') >= 0 ) lit = null;
+		this.literal = lit;
+
+		// Number: unquoted digits, maybe followed by KB, MB, GB or TB.
+		// Kept in KB, as ACSevaluator compares them, so 1MB is 1024KB.
+		int d = 0;
+		while( !quoted && d < nval.length() && Character.isDigit( nval.charAt(d) ) ) d++;
+		String u = nval.substring( d );
+		int shift = u.length() == 0 || u.equals("KB") ? 0 : u.equals("MB") ? 10 : u.equals("GB") ? 20 : u.equals("TB") ? 30 : -1;
+		this.numeric = d > 0 && d <= 18 && shift >= 0;
+		long n = this.numeric ? Long.parseLong( nval.substring( 0, d ) ) : -1;
+		this.kilobytes = n >= 0 && n <= ( Long.MAX_VALUE >> shift ) ? n << shift : -1;
+	}
+
+	// getId
+	// Return the id of this pair within its table
+	public int getId() {
+		return this.id;
 	}
 
 	// getVariable
@@ -44,7 +83,7 @@ public class ACSpair {
 
 	// getComparison
 	// Return the comparison (EQ, NE, etc)
-	public String getComparison() {
+	public ACSoperator getComparison() {
 		return this.comparison;
 	}
 
@@ -55,67 +94,52 @@ public class ACSpair {
 		return this.variable + " " + this.comparison + " " + this.value;
 	}
 
-	// setVariable
-	// Set the variable
-	public void setVariable(String nv) {
-		this.variable = nv;
+	// equals
+	// Two pairs are equal if the variable, comparison and value all match
+	public boolean equals( Object o ) {
+		if( o == this ) return true;
+		if( !(o instanceof ACSpair) ) return false;
+		ACSpair p = (ACSpair)o;
+		return this.hash == p.hash &&
+		       this.comparison == p.comparison &&
+		       this.variable.equals( p.variable ) &&
+		       this.value.equals( p.value );
 	}
 
-	// setComparison
-	// Set the comparison
-	public void setComparison(String nc) {
-		this.comparison = nc;
+	// hashCode
+	public int hashCode() {
+		return this.hash;
 	}
 
-	// setValue
-	// Set the value
-	public void setValue( String nv) {
-		this.value = nv;
+	// conflicts
+	// Returns true if this pair and the other one can never both be true.
+	// Only pairs on the same variable can conflict. Anything that can't
+	// be decided from the values alone (masks, &VARs, string ordering,
+	// a number against something that isn't one) is taken as possible.
+	public boolean conflicts( ACSpair o ) {
+		if( o == this || !this.variable.equals( o.variable ) ) return false;
+		ACSoperator r1 = this.comparison.relation(), r2 = o.comparison.relation();
+
+		// Numbers are compared in KB, whatever unit they were written in
+		if( this.numeric || o.numeric ) {
+			if( this.kilobytes < 0 || o.kilobytes < 0 ) return false;
+			return ACSoperator.disjoint( r1, r2, Long.compare( this.kilobytes, o.kilobytes ) );
+		}
+		// Same value, such as EQ 'PS' and NE 'PS', or GT X and LE X
+		if( this.value.equals( o.value ) || ( this.literal != null && this.literal.equals( o.literal ) ) ) {
+			return ACSoperator.disjoint( r1, r2, 0 );
+		}
+		// Two different literals can't both be equal to the variable
+		return r1 == ACSoperator.EQ && r2 == ACSoperator.EQ && this.literal != null && o.literal != null;
 	}
 
 	// not
 	// Returns the opposite of the current pair.
-	// Done by flipping the comparison.
+	// Done by flipping the comparison. See ACSoperator for the table.
 	public ACSpair not() {
-		// Get and test the comparison
-		String inComp = this.getComparison();
-		String outComp = "";
-		// Handle GT
-		if( inComp.equals("GT") ) outComp = "LE";
-		if( inComp.equals(">") ) outComp = "<=";
-		// Handle LT
-		if( inComp.equals("LT") ) outComp = "GE";
-		if( inComp.equals("<") ) outComp = ">";
-		// Handle NG
-		if( inComp.equals("NG") ) outComp = "GT";
-		if( inComp.equals("¬>") ) outComp = ">";
-		if( inComp.equals("^>") ) outComp = ">";
-		// Handle NL
-		if( inComp.equals("NL") ) outComp = "LT";
-		if( inComp.equals("¬<") ) outComp = ">";
-		if( inComp.equals("^<") ) outComp = ">";
-		// Handle EQ
-		if( inComp.equals("EQ") ) outComp = "NE";
-		if( inComp.equals("=") ) outComp = "¬=";
-		// Handle NE
-		if( inComp.equals("NE") ) outComp = "EQ";
-		if( inComp.equals("¬=") ) outComp = "=";
-		if( inComp.equals("^=") ) outComp = "=";
-		// Handle GE
-		if( inComp.equals("GE") ) outComp = "LT";
-		if( inComp.equals(">=") ) outComp = "<";
-		// Handle LE
-		if( inComp.equals("LE") ) outComp = "GT";
-		if( inComp.equals("<=") ) outComp = ">";
-
-		// Create a new pair and set the values
-		ACSpair np = new ACSpair();
-		np.setVariable( this.getVariable() );
-		np.setComparison( outComp );
-		np.setValue( this.getValue() );
-
-		// Rerturn it
-		return np;
+		if( this.negation == null ) {
+			this.negation = this.table.intern( this.variable, this.comparison.not(), this.value );
+		}
+		return this.negation;
 	}
 }
-
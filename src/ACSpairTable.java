@@ -0,0 +1,51 @@
+/*****************************
+ *
+ * CLASS:   ACSpairTable
+ * DATE :   10/16/2026
+ * Purpose: Holds every distinct ACSpair found in one extraction.
+ *          Each VAR / OP / VALUE triple is created once and given a
+ *          dense id (0, 1, 2...), so conditions can share the same
+ *          pair object and compare pairs by identity or by id.
+ *
+ *          One table is used per extraction. It isn't thread safe,
+ *          and doesn't need to be: each ACSextract has its own.
+ *
+ *****************************/
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class ACSpairTable {
+
+	// Lookup from pair to the one shared instance
+	protected HashMap<ACSpair,ACSpair> pairs;
+	// Pairs by id
+	protected ArrayList<ACSpair> byId;
+
+	// Constructor
+	public ACSpairTable() {
+		this.pairs = new HashMap<ACSpair,ACSpair>();
+		this.byId = new ArrayList<ACSpair>();
+	}
+
+	// intern
+	// Returns the shared pair for VAR OP VALUE, creating it the first time
+	public ACSpair intern( String variable, ACSoperator comparison, String value ) {
+		ACSpair np = new ACSpair( this, this.byId.size(), variable, comparison, value );
+		ACSpair found = this.pairs.putIfAbsent( np, np );
+		if( found != null ) return found;
+		this.byId.add( np );
+		return np;
+	}
+
+	// get
+	// Returns the pair with the given id
+	public ACSpair get( int id ) {
+		return this.byId.get( id );
+	}
+
+	// size
+	// Returns the number of distinct pairs
+	public int size() {
+		return this.byId.size();
+	}
+}
@@ -0,0 +1,722 @@
+/*****************************
+ *
+ * CLASS:   ACSparser
+ * DATE :   10/16/2026
+ * Purpose: Reads an ACS routine from an ACSlexer into a tree of
+ *          ACSnodes, once. Nothing here knows about rules, conditions
+ *          stacks or output. See ACSextract for what is done with it.
+ *
+ *          Each statement is read by its own method, which returns its
+ *          node. Conditions are read in one pass with a stack of open
+ *          parentheses instead of recursion, with AND binding tighter
+ *          than OR, so a condition can be as long as it likes.
+ *
+ *          The routine's variables are collected as the comparisons are
+ *          read, so they're known before anything walks the tree.
+ *
+ *          Problems are reported the same way the extractor does, with
+ *          the line they were found on. Some only warn and move on, the
+ *          rest end the run (or, in a batch, throw an ACSexception).
+ *
+ *****************************/
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+public class ACSparser {
+
+	// Input
+	protected ACSlexer st;
+	protected boolean eof;
+	protected boolean fixedRecords;     // Sequence numbers already blanked out by the lexer
+
+	// Messages. See fail() and trace().
+	protected PrintStream console;
+	protected boolean batch;
+	protected String inputName;
+	protected int traceLevel;
+	protected ACSstats stats;
+	protected int doDepth;
+
+	// Routine named by the last PROC, for checking SETs against
+	protected String procName;
+
+	// Every variable tested, in the order found. The set is for looking them up.
+	protected LinkedList<String> variableList = new LinkedList<String>();
+	protected HashSet<String> variableSet = new HashSet<String>();
+
+	// Constructor
+	// Reads from the given lexer, with the extractor's settings for
+	// sequence numbers and messages, counting into its stats
+	public ACSparser( ACSlexer st, ACSextract ex ) {
+		this.st = st;
+		this.eof = false;
+		this.fixedRecords = ex.fixedRecords;
+		this.console = ex.console;
+		this.batch = ex.batch;
+		this.inputName = ex.inputName;
+		this.traceLevel = ex.traceLevel;
+		this.stats = ex.stats;
+	}
+
+	// parse
+	// Reads statements until the end of the file and returns the routine.
+	// A WHEN or OTHERWISE outside of a SELECT is reported and skipped.
+	// parseKeyword puts those back for the SELECT, so otherwise the
+	// same token would be read again forever.
+	public ACSnode.Routine parse() {
+		LinkedList<ACSnode> statements = new LinkedList<ACSnode>();
+		while( !this.eof ) {
+			this.parseKeywords( statements );
+			ACStoken tok = this.nextKind();
+			if( tok == ACStoken.WHEN || tok == ACStoken.OTHERWISE ) {
+				this.fail( this.tokenText()+" outside of a SELECT... Moving on.", false );
+			} else {
+				this.pushToken();
+			}
+		}
+		return new ACSnode.Routine( statements, this.procName, this.variableList );
+	}
+
+	// parseKeyword
+	// This switchpoint is used whenever any keyword could be next.
+	// It reads one statement, adds it to the list and returns.
+	// Returns false at an END, WHEN or OTHERWISE, so the caller stops looping.
+	protected boolean parseKeyword( List<ACSnode> into ) {
+		ACStoken kw;
+		boolean toRet = true;
+		// If not the end of the file, and the token looks good
+		if( !this.eof && (kw = this.nextKind() ) != ACStoken.EOF ) {
+			this.trace( ACSextract.TRACE_TOKENS, "parseKeyword ", this.st );
+
+			// Conditional on the keyword
+			// PROC - Start of an ACS routine
+			// FILTLIST - Definition of filter criteria
+			// SET - Assigns a value to a read-write variable
+			// DO - Start of statement group
+			// IF - Provides conditional statement execution
+			// SELECT - Defines a set of conditional execution statements
+			// EXIT - Causes immediate termination of the ACS routine and can be used to force allocation failures
+			// WRITE - Sends a message to the end user
+			// END - End of statement group (DO or SELECT) or ACS routine (PROC).
+			switch( kw ) {
+				case PROC:
+					into.add( this.parseProc() );
+					break;
+				case FILTLIST:
+					into.add( this.parseFiltlist() );
+					break;
+				case SET:
+					into.add( this.parseSet() );
+					break;
+				case DO:
+					into.add( this.parseDo() );
+					break;
+				case IF:
+					into.add( this.parseIf() );
+					break;
+				case SELECT:
+					into.add( this.parseSelect() );
+					break;
+				case EXIT:
+					into.add( this.parseExit() );
+					break;
+				case WRITE:
+					into.add( this.parseWrite() );
+					break;
+				case END:
+					// Stop the parseKeywords looping
+					this.trace( ACSextract.TRACE_STATEMENTS, "parseEnd" );
+					toRet = false;
+					break;
+				case WHEN:
+				case OTHERWISE:
+					// Stop the parseKeywords from looping
+					toRet = false;
+					// Push the OTHERWISE back on for SELECT processing to handle
+					this.pushToken();
+					break;
+				default:
+					// Ignore keywords we don't understand.
+					this.fail( "Unknown keyword : "+this.tokenText()+"... Moving on.", false );
+					break;
+			}
+		}
+		return toRet;
+	}
+
+	// parseKeywords
+	// Reads statements until an END, WHEN or OTHERWISE.
+	// Used for DO blocks and the insides of a SELECT.
+	protected List<ACSnode> parseKeywords( List<ACSnode> into ) {
+		while( !this.eof && this.parseKeyword( into ) ) ;
+		return into;
+	}
+
+	// parseStatement
+	// Reads one statement, such as the one after THEN or ELSE.
+	// Returns null if there wasn't one.
+	protected ACSnode parseStatement() {
+		LinkedList<ACSnode> one = new LinkedList<ACSnode>();
+		this.parseKeyword( one );
+		return one.isEmpty() ? null : one.getFirst();
+	}
+
+	// parseProc
+	// PROC name, or PROC n name. Establishes which routine this is.
+	protected ACSnode parseProc() {
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseProc " );
+		int line = this.st.lineno();
+
+		// Get the next token
+		this.procName = this.readToken();
+
+		// Check if the next token is a number
+		// If it is a number, re-read
+		if( this.isNumber( this.procName ) ) {
+			this.procName = this.readToken();
+		}
+
+		// Validity check
+		if( !this.isValidProc() ) this.fail( this.procName+" is not a valid PROC name.");
+
+		return new ACSnode.Proc( line, this.procName );
+	}
+
+	// parseFiltlist
+	// Reads in the INCLUDE and EXCLUDE lists, as written
+	// Normal filtlist syntax:
+	// FILTLIST INCLUDE(OPT1,'OPT2',MASK*) EXCLUDE(EX*,'EX2')
+	protected ACSnode parseFiltlist() {
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseFiltlist" );
+		int line = this.st.lineno();
+
+		// Next token should be a name
+		String name = this.readToken();
+		String include = "";
+		String exclude = "";
+
+		// After that should either be INCLUDE or EXCLUDE
+		ACStoken temp = this.nextKind();
+		// If it's not INCLUDE or EXCLUDE, then something is wrong
+		while( temp == ACStoken.INCLUDE || temp == ACStoken.EXCLUDE ) {
+			// Next should be a (
+			if( this.nextKind() == ACStoken.LPAREN ) {
+				// Just grab all values up the next paren
+				String val = this.getToNext( ACStoken.RPAREN );
+				if( temp == ACStoken.INCLUDE ) include = val;
+				else exclude = val;
+			} else {
+				this.fail( "Bad FILTLIST format. ( not found where expected." );
+			}
+			// Try for next. See if there is another EXCLUDE or INCLUDE
+			temp = this.nextKind();
+		}
+		// When we're done, put back the next token.
+		// This is because we pull it off to tell when we are done with FILTLIST processing
+		this.pushToken();
+
+		return new ACSnode.Filtlist( line, name, include, exclude );
+	}
+
+	// parseSet
+	// SET &STORCLAS = "value". The node has the line of the value,
+	// which is the line the rule reports.
+	protected ACSnode parseSet() {
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseSet " );
+		// Grab the next three tokens and validity check
+		String nt = this.readToken();
+		if( this.st.kind() != ACStoken.ROUTINE_VARIABLE ) {
+			this.fail( "Not a valid SET R/W Variable: "+nt );
+			return null;
+		}
+
+		// Validity check that it matches the PROC
+		if( !nt.equals( "&"+this.procName ) && !nt.equals( this.procName ) ) this.fail( "SET variable doesn't match PROC name. SET "+nt, false );
+
+		// Ensure there is an equal sign
+		// should be = or EQ
+		if( this.nextKind() != ACStoken.COMPARISON || !this.st.operator().isEqual() ) this.fail( "SET statement incorrect. Should have an = or EQ." );
+
+		// Read assignment value
+		// should be VALUE - no good way to validity check
+		String value = this.readToken();
+		return new ACSnode.Set( this.st.lineno(), nt, value );
+	}
+
+	// parseDo
+	// A block of statements, up to its END
+	protected ACSnode parseDo() {
+		int startLine = this.st.lineno();
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseDo " );
+		this.doDepth++;
+		List<ACSnode> statements = this.parseKeywords( new LinkedList<ACSnode>() );
+		this.doDepth--;
+		this.trace( ACSextract.TRACE_STATEMENTS, "leaving parseDo from ", startLine );
+		return new ACSnode.Do( startLine, statements );
+	}
+
+	// parseIf
+	// IF condition THEN statement, and maybe ELSE statement.
+	// The statement is usually a DO block or a SET.
+	protected ACSnode parseIf() {
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseIf" );
+		int initialLine = this.st.lineno();
+
+		// The condition, up to the THEN
+		ACSnode condition = this.parseConditions();
+
+		// Double check that we have a THEN statement
+		if( this.nextKind() != ACStoken.THEN ) this.fail( "Missing THEN after IF." );
+		ACSnode thenStatement = this.parseStatement();
+
+		// Check for ELSE
+		boolean hasElse = false;
+		ACSnode elseStatement = null;
+		if( this.nextKind() == ACStoken.ELSE ) {
+			hasElse = true;
+			elseStatement = this.parseStatement();
+		} else {
+			this.pushToken();
+		}
+		this.trace( ACSextract.TRACE_STATEMENTS, "leaving parseIf, IF @ ", initialLine );
+		return new ACSnode.If( initialLine, condition, thenStatement, hasElse, elseStatement );
+	}
+
+	// parseConditions
+	// Reads a condition, such as
+	//   ( &DSN EQ 'BOB' ) | ( ( &DSN = LARR* ) AND &DSORG NE 'FB' )
+	// AND or &&  - And
+	// OR  or |   - Or
+	// AND binds tighter than OR, so A AND B OR C is ( A AND B ) OR C,
+	// and a run of either is one node however long it is.
+	//
+	// Read left to right in one pass, without recursing. Each open
+	// parenthesis puts the group being read on a stack and starts a new
+	// one, and its closing parenthesis makes the inner group one term of
+	// the outer one. So a long list of ORs costs no more stack than a
+	// short one, and each term is only added to a list once.
+	protected ACSnode parseConditions() {
+		this.trace( ACSextract.TRACE_TOKENS, "parseConditions " );
+		LinkedList<Group> open = new LinkedList<Group>();
+		Group group = new Group();
+
+		while( true ) {
+			// A comparison, or any number of open parentheses before one
+			ACStoken tok = this.nextKind();
+			if( tok == ACStoken.LPAREN ) {
+				open.push( group );
+				group = new Group();
+				continue;
+			}
+			// Check for extraneous closing paren
+			if( tok == ACStoken.RPAREN ) this.fail( "Invalid closing parentheses" );
+			this.pushToken();
+			group.add( this.parseComparison() );
+
+			// Then any number of closing parentheses. One with no group
+			// open belongs to whoever called us, such as a WHEN.
+			tok = this.nextKind();
+			while( tok == ACStoken.RPAREN && !open.isEmpty() ) {
+				ACSnode inner = group.close();
+				group = open.pop();
+				group.add( inner );
+				tok = this.nextKind();
+			}
+
+			// Check if we have an AND or OR as next token
+			this.trace( ACSextract.TRACE_TOKENS, "Checking for AND/OR: ", this.st );
+			if( tok == ACStoken.AND ) {
+				this.trace( ACSextract.TRACE_TOKENS, "parseConditions processing AND" );
+			} else if( tok == ACStoken.OR ) {
+				this.trace( ACSextract.TRACE_TOKENS, "parseConditions processing OR" );
+				group.or();
+			} else {
+				break;
+			}
+		}
+
+		// Ensure a closing parentheses for every open one
+		if( !open.isEmpty() ) this.fail( "Missing closing parenthesis" );
+		// If it's something else, then it's probably a THEN or a problem
+		// Push it back and let the parent routine handle it!
+		this.pushToken();
+		return group.close();
+	}
+
+	// parseComparison
+	// Reads one comparison, &VAR op value
+	protected ACSnode parseComparison() {
+		int line = this.st.lineno();
+		String compvar = this.readAndValidateVariable();
+		if( compvar == null ) compvar = this.readToken();
+
+		ACSoperator compari = this.readAndValidateComparison();
+
+		String compval = this.readAndValidateVariable();
+		if( compval == null ) compval = this.readToken();
+
+		ACSnode.Compare toRet = null;
+		if( compari != null ) {
+			// If in format &VAR = 'VALUE'
+			if( this.isVar( compvar ) ) {
+				toRet = new ACSnode.Compare( line, compvar, compari, compval );
+			// If for some reason they use 'VALUE' = &VAR
+			} else if( this.isVar( compval ) ) {
+				// Variables are valid as a comparison (Such as filtlists),
+				// so this path may indicate a missed &
+				this.fail( "Possible missed &: "+compvar+" "+compari+" "+compval, false );
+				toRet = new ACSnode.Compare( line, compval, compari, compvar );
+			} else {
+				this.fail( "Invalid comparison: "+compvar+" "+compari+" "+compval );
+			}
+		} else {
+			this.fail( "Invalid comparison."+compvar+" "+compval );
+		}
+		if( toRet != null ) this.addVariable( toRet.variable );
+		return toRet;
+	}
+
+	// parseSelect
+	// Two options:
+	//   1. &VARIABLE is on the SELECT statement. Each WHEN has a value.
+	//   2. &VARIABLE in WHEN statement. Each WHEN has a condition.
+	protected ACSnode parseSelect() {
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseSelect" );
+		ACStoken tok = this.nextKind();
+		String compVar = null;
+		int startLine = this.st.lineno();
+
+		// If the next token is a (, then we'll assume it's option #1
+		// Otherwise, we'll assume that it is option #2
+		if( tok == ACStoken.LPAREN ) {
+			compVar = this.readAndValidateVariable();
+			// Make sure it's a valid variable
+			if( compVar == null ) this.fail( "Bad select statement." );
+
+			// Check for )
+			if( this.nextKind() != ACStoken.RPAREN ) this.fail( "Missing parentheses" );
+		} else {
+			this.pushToken();
+		}
+
+		// Now find the WHEN statements
+		LinkedList<ACSnode.When> whens = new LinkedList<ACSnode.When>();
+		while( (tok = this.nextKind()) == ACStoken.WHEN ) {
+			this.trace( ACSextract.TRACE_STATEMENTS, "Found the when." );
+			int line = this.st.lineno();
+			// Check for (
+			if( this.nextKind() != ACStoken.LPAREN ) this.fail( "Missing opening parentheses on WHEN statement. " );
+
+			// If it's option 1, then just read the value
+			ACSnode condition;
+			if( compVar != null ) {
+				condition = new ACSnode.Compare( this.st.lineno(), compVar, ACSoperator.EQ, this.readToken() );
+				this.addVariable( compVar );
+			}
+			// If option 2, read the condition
+			else {
+				condition = this.parseConditions();
+			}
+
+			// Check for closing paren
+			if( this.nextKind() != ACStoken.RPAREN ) this.fail( "Missing ending parentheses on WHEN statement. " );
+
+			// Statements up to the next WHEN, OTHERWISE or END
+			whens.add( new ACSnode.When( line, condition, this.parseKeywords( new LinkedList<ACSnode>() ) ) );
+		}
+
+		// Check for otherwise
+		this.trace( ACSextract.TRACE_TOKENS, "parseSelect - Checking for otherwise: ", this.st );
+		List<ACSnode> otherwise = null;
+		if( tok == ACStoken.OTHERWISE ) {
+			// The OTHERWISE statements run up to and use the END of the SELECT,
+			// so there's nothing to put back. Putting the END back would close the
+			// DO or IF around the SELECT as well.
+			otherwise = this.parseKeywords( new LinkedList<ACSnode>() );
+		} else {
+			this.pushToken();
+		}
+
+		this.trace( ACSextract.TRACE_STATEMENTS, "leaving parseSelect. Start line and current token: ", startLine, this.st );
+		// The last WHEN or the OTHERWISE reads right up to the END, so we don't need to check for it here.
+		return new ACSnode.Select( startLine, compVar, whens, otherwise );
+	}
+
+	// parseExit
+	// EXIT, maybe with a CODE(xx)
+	protected ACSnode parseExit() {
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseExit" );
+		int line = this.st.lineno();
+		String code = null;
+		if( this.nextKind() == ACStoken.CODE ) {
+			this.nextKind(); // (
+			this.nextKind(); // xx
+			code = this.tokenText();
+			this.nextKind(); // )
+		} else {
+			this.pushToken();
+		}
+		return new ACSnode.Exit( line, code );
+	}
+
+	// parseWrite
+	// WRITE and its quoted strings and variables, including any continuation lines
+	protected ACSnode parseWrite() {
+		this.trace( ACSextract.TRACE_STATEMENTS, "parseWrite" );
+		int line = this.st.lineno();
+		StringBuilder text = new StringBuilder();
+		ACStoken tok = this.nextKind();
+		while( tok == ACStoken.QUOTED || tok.isVariable() ) {
+			if( text.length() > 0 ) text.append( ' ' );
+			text.append( this.tokenText() );
+			tok = this.nextKind();
+		}
+		// Push the last token back on the stack
+		this.pushToken();
+		return new ACSnode.Write( line, text.toString() );
+	}
+
+	// getToNext( ACStoken )
+	// Returns a String of all the tokens up to the next token of the passed kind
+	protected String getToNext( ACStoken nextToken ) {
+		this.trace( ACSextract.TRACE_TOKENS, "getToNext" );
+		StringBuilder toRet = new StringBuilder();
+		ACStoken temp = this.nextKind();
+		while( temp != nextToken && temp != ACStoken.EOF ) {
+			toRet.append( this.tokenText() );
+			temp = this.nextKind();
+		}
+		// Discard the last matching token
+		// Return what we found
+		return toRet.toString();
+	}
+
+	// readAndValidateVariable
+	// Reads in a variable name and makes sure it's
+	// a valid variable, like &VAR.
+	// Returns null if not a real variable.
+	protected String readAndValidateVariable() {
+		this.trace( ACSextract.TRACE_TOKENS, "readAndValidateVariable" );
+		String tok = null;
+		if( this.nextKind().isVariable() ) {
+			tok = this.tokenText();
+			// Check for parens after the variable
+			if( this.nextKind() == ACStoken.LPAREN ) {
+				tok = tok+"("+this.readToken()+this.readToken();
+			} else {
+				this.pushToken();
+			}
+		} else {
+			this.pushToken();
+		}
+		this.trace( ACSextract.TRACE_TOKENS, "leaving readAndValidateVariable" );
+		return tok;
+	}
+
+	// readAndValidateComparison
+	// Read in a comparison and make sure the WHOLE comparison is included.
+	// Since some of the comparisons are two characters, we need to pull them both.
+	// Returns null if the next token isn't a comparison:
+	// GT or >  Greater than
+	// LT or <  Less than
+	// NG or ¬> Not greater than
+	// NL or ¬< Not less than
+	// EQ or =  Equal
+	// NE or ¬= Not equal
+	// GE or >= Greater than or equal
+	// LE or <= Less than or equal
+	protected ACSoperator readAndValidateComparison() {
+		this.trace( ACSextract.TRACE_TOKENS, "readAndValidateComparison" );
+		ACStoken tok = this.nextKind();
+		ACSoperator toRet = this.st.operator();
+		// If it might be the start of a two-char operator
+		if( tok == ACStoken.NOT || toRet == ACSoperator.GT_SYM || toRet == ACSoperator.LT_SYM ) {
+			char first = this.st.firstChar();
+			// Try to get the next token
+			ACSoperator second = this.nextKind() == ACStoken.COMPARISON ? this.st.operator() : null;
+			if( second == ACSoperator.GT_SYM || second == ACSoperator.LT_SYM || second == ACSoperator.EQ_SYM ) {
+				toRet = ACSoperator.combine( first, second.toString().charAt(0) );
+			} else {
+				// If we don't need it, put it back on the stack
+				this.pushToken();
+			}
+		}
+		// Make sure it's a valid comparison
+		if( toRet == null ) {
+			this.pushToken();
+		}
+		this.trace( ACSextract.TRACE_TOKENS, "leaving readAndValidateComparison" );
+		return toRet;
+	}
+
+	// addVariable
+	// Adds a variable to the list, after ensuring it isn't already there
+	protected void addVariable( String var ) {
+		if( this.variableSet.add( var ) ) this.variableList.add( var );
+	}
+
+	// isVar( String )
+	// Returns true if the String is a valid variable name
+	protected boolean isVar( String inToken ) {
+		return inToken.startsWith("&");
+	}
+
+	// isValidProc
+	// Returns true if the current token is STORCLAS, STORGRP, MGMTCLAS, or DATACLAS
+	protected boolean isValidProc() {
+		ACStoken k = this.st.kind();
+		return k == ACStoken.ROUTINE || k == ACStoken.ROUTINE_VARIABLE;
+	}
+
+	// isNumber - determines if a given string is a decimal number
+	protected boolean isNumber( String input ) {
+		boolean isNum = true;
+		for( char c : input.toCharArray() ) {
+			if (!Character.isDigit(c)) isNum = false;
+		}
+		return isNum;
+	}
+
+	// readToken
+	// Reads the next token and returns its text.
+	// Returns null when you get to the end of the file, and EOF after that.
+	public String readToken() {
+		boolean atEnd = this.eof;
+		this.nextKind();
+		return atEnd ? "EOF" : this.st.text();
+	}
+
+	// Wrapper for main call
+	public ACStoken nextKind() {
+		return this.nextKind(false);
+	}
+
+	// nextKind
+	// Reads the file, tokenizes, and returns the kind of token found.
+	// The text of the token is only built if asked for, with tokenText().
+	protected ACStoken nextKind(boolean nested) {
+		ACStoken toRet = ACStoken.EOF;
+		// As long as not at end of file
+		if( !this.eof ) {
+			int token = this.st.nextToken();
+			// If it's EOF
+			if( token == ACSlexer.TT_EOF ) {
+				this.eof = true;
+			}
+			// If we hit a 8-digit number as a token, assume it's a line number.
+			// There shouldn't be any 8-digit number tokens flying solo.
+			// With fb80 the lexer has already blanked them out, so there's no guessing.
+			else if( !this.fixedRecords && token == ACSlexer.TT_WORD && this.st.length() == 8 && this.st.isDigits() ) {
+				toRet = this.nextKind(true);
+			}
+			else {
+				toRet = this.st.kind();
+			}
+		}
+		if( !nested ) this.trace( ACSextract.TRACE_TOKENS, "READ TOKEN: ", this.st );
+		return toRet;
+	}
+
+	// tokenText
+	// Returns the text of the last token read
+	public String tokenText() {
+		return this.st.text();
+	}
+
+	// pushToken
+	// Pushes last token back onto the stack
+	public void pushToken() {
+		this.trace( ACSextract.TRACE_TOKENS, "pushToken" );
+		this.stats.pushbacks++;
+		this.st.pushBack();
+	}
+
+	// fail
+	// Prints a message, and stops the run if terminate is true.
+	// In a batch, that throws an ACSexception instead.
+	protected void fail( String reason, boolean terminate ) {
+		String msg = "Error @"+this.st.lineno()+": "+reason;
+		// Tag the message with the input, since batch runs interleave them
+		if( this.batch ) msg = this.inputName+": "+msg;
+		this.console.println( msg );
+		if( terminate ) {
+			// Other extractions may still be running, so let the batch driver handle it
+			if( this.batch ) throw new ACSexception( msg );
+			System.exit(8);
+		}
+	}
+
+	// fail
+	// FAIL wrapper -- always terminates
+	protected void fail( String reason ) {
+		this.fail( reason, true );
+	}
+
+	// trace
+	// Prints a debug message and the line being read, if the trace level
+	// is at least the given level. See ACSextract.trace().
+	protected void trace( int level, String message ) {
+		if( level <= this.traceLevel ) this.emit( message );
+	}
+
+	protected void trace( int level, String message, Object a ) {
+		if( level <= this.traceLevel ) this.emit( message+a );
+	}
+
+	protected void trace( int level, String message, Object a, Object b ) {
+		if( level <= this.traceLevel ) this.emit( message+a+" "+b );
+	}
+
+	// trace
+	// Same, for numbers, so they aren't boxed when tracing is off
+	protected void trace( int level, String message, long a ) {
+		if( level <= this.traceLevel ) this.emit( message+a );
+	}
+
+	protected void trace( int level, String message, long a, Object b ) {
+		if( level <= this.traceLevel ) this.emit( message+a+" "+b );
+	}
+
+	// emit
+	// Prints one trace message
+	protected void emit( String message ) {
+		this.console.println( "Line: "+this.st.lineno()+" D"+ this.doDepth+" : "+message );
+	}
+
+
+	/*
+	 * One parenthesized group of a condition, while it is read
+	 */
+
+	// The terms ANDed together since the last OR, and the terms before
+	// it that are ORed together. Closing the group makes them one node.
+	protected static class Group {
+		protected LinkedList<ACSnode> ors = new LinkedList<ACSnode>();
+		protected LinkedList<ACSnode> ands = new LinkedList<ACSnode>();
+
+		// add
+		// Adds a term to the current AND
+		protected void add( ACSnode n ) {
+			this.ands.add( n );
+		}
+
+		// or
+		// Ends the current AND, making it one term of the OR
+		protected void or() {
+			if( this.ands.size() == 1 ) this.ors.add( this.ands.getFirst() );
+			else this.ors.add( new ACSnode.And( this.ands.getFirst().line, this.ands ) );
+			this.ands = new LinkedList<ACSnode>();
+		}
+
+		// close
+		// Returns the whole group. One term is returned as it is, since
+		// parentheses leave no node of their own.
+		protected ACSnode close() {
+			this.or();
+			if( this.ors.size() == 1 ) return this.ors.getFirst();
+			return new ACSnode.Or( this.ors.getFirst().line, this.ors );
+		}
+	}
+}
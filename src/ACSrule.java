@@ -8,37 +8,193 @@
 *          Represents the conditions that must be
 *          true for a SET statement, and the value
 *          set in that statement.
+*
+*          The conditions are kept the way they were on the
+*          condition stack: a list of layers that are ANDed together,
+*          where each layer is a list of conditions joined by OR.
+*          They are only multiplied out into rows, one at a time,
+*          when the rule is written.
+*
+*          When simplifying, rows that can never be true are skipped,
+*          and a row is dropped if another row of the same rule has a
+*          subset of its pairs (A OR (A AND B) is just A).
+*
+*          With the BDD engine, the rule also holds one BDD node for all
+*          of its conditions, and its rows are the paths of that node.
+*          The layers are then only kept to tell where the rule is.
+*
+*          A rule under a WHEN also keeps the conditions of the WHENs
+*          before it in the same SELECT, since only the first true WHEN
+*          runs. They are not part of its rows; see Unless.
+*
+*          An EXIT is kept as a rule of its own, with no SET value,
+*          so that it has its own conditions.
 *****************************/
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ACSrule {
 
+	// Most rows of one rule that are compared with each other for absorption.
+	// Past this, rows are still checked for contradictions but not compared.
+	public static final int ABSORB_LIMIT = 5000;
+
 	/* Local variables */
-	// Conditions -- each entry is an OR, so requires a separate line in the output
-	protected LinkedList<ACScondition> conditions;
+	// Layers of conditions -- ANDed together. Within a layer, each entry is an OR.
+	protected ArrayList<LinkedList<ACScondition>> layers;
+	protected ACSpairTable table;
 	protected int sequence;
 	protected boolean hasExit;
 	protected String setVal;
 	protected int lineNum;    // Line number for the set in the ACS
+	protected ACSbdd bdd;     // BDD engine only: the BDD and the node for the conditions
+	protected int root;
+	protected Unless unless;  // WHENs before this rule's own, in each SELECT it is in
 
-	/* Constructor. Takes no arguments */
-	public ACSrule() {
-		this.conditions = new LinkedList<ACScondition>();
+	/* Constructor. Takes the pair table for this extraction */
+	public ACSrule( ACSpairTable t ) {
+		this.layers = new ArrayList<LinkedList<ACScondition>>();
+		this.table = t;
 		this.sequence = 0;
 		this.hasExit = false;
 		this.setVal = "";
 		this.lineNum = 0;
 	}
 
-	// addCondition
-	// Adds an ACScondition object to this rule
-	public void addCondition( ACScondition nc ) {
-		this.conditions.push( nc );
+	// addConditions
+	// Adds a layer of conditions (joined by OR) that must be true for this rule.
+	// The list is kept, not copied, so it must not change afterwards.
+	public void addConditions( LinkedList<ACScondition> ncs ) {
+		this.layers.add( ncs );
 	}
 
-	public void addConditions( LinkedList<ACScondition> ncs ) {
-		this.conditions.addAll(ncs);
+	// addLayers
+	// Adds every layer of a condition stack, bottom first
+	public void addLayers( List<LinkedList<ACScondition>> stack ) {
+		this.layers.addAll( stack );
+	}
+
+	// setRoot
+	// Used by the BDD engine instead of addConditions
+	public void setRoot( ACSbdd b, int node ) {
+		this.bdd = b;
+		this.root = node;
+	}
+
+	// setUnless
+	// The WHENs that, if any is true, keep this rule from running
+	public void setUnless( Unless u ) {
+		this.unless = u;
+	}
+
+	// getUnless
+	// Returns the WHENs before this rule's own, innermost SELECT first, or null
+	public Unless getUnless() {
+		return this.unless;
+	}
+
+	// rows
+	// Returns an iterator over the rows of this rule
+	public Iterator<ACScondition> rows() {
+		return this.rows( false );
+	}
+
+	// rows
+	// Returns an iterator over the rows of this rule.
+	// If simplify is set, rows that can't be true and rows covered by
+	// another row are left out. Rows keep their original order.
+	public Iterator<ACScondition> rows( boolean simplify ) {
+		return this.rows( simplify, null );
+	}
+
+	// rows
+	// The same, starting from the layers the rule before it left flattened
+	// in the given ACSflatten, if there is one
+	public Iterator<ACScondition> rows( boolean simplify, ACSflatten flat ) {
+		// BDD paths never overlap, so there is nothing to absorb
+		if( this.bdd != null ) return this.bdd.paths( this.root, simplify );
+
+		List<LinkedList<ACScondition>> layers = flat == null ? this.layers : flat.layers( this.layers, simplify );
+		if( layers == null ) return Collections.emptyIterator();
+		ACSexpansion ex = new ACSexpansion( layers, this.table, simplify );
+		if( !simplify ) return ex;
+
+		ArrayList<ACScondition> buf = new ArrayList<ACScondition>();
+		while( ex.hasNext() && buf.size() < ABSORB_LIMIT ) buf.add( ex.next() );
+		if( ex.hasNext() ) {
+			// Too many to compare. Hand back what we have, then the rest as it comes.
+			return Stream.concat( buf.stream(), StreamSupport.stream( Spliterators.spliteratorUnknownSize( ex, 0 ), false ) ).iterator();
+		}
+		return absorb( buf ).iterator();
+	}
+
+	// absorb
+	// Removes every row that has all the pairs of some other row.
+	// Rows are checked smallest first, so each one only has to be compared
+	// with the rows already kept. Of two equal rows, the first is kept.
+	public static List<ACScondition> absorb( List<ACScondition> in ) {
+		int n = in.size();
+		if( n < 2 ) return in;
+		Integer[] order = new Integer[n];
+		for( int i=0; i<n; i++ ) order[i] = i;
+		Arrays.sort( order, Comparator.comparingInt( i -> in.get(i).size() ) );
+
+		boolean[] keep = new boolean[n];
+		ArrayList<ACScondition> kept = new ArrayList<ACScondition>();
+		for( int i : order ) {
+			ACScondition c = in.get(i);
+			boolean covered = false;
+			for( ACScondition k : kept ) {
+				if( c.implies( k ) ) {
+					covered = true;
+					break;
+				}
+			}
+			if( !covered ) {
+				keep[i] = true;
+				kept.add( c );
+			}
+		}
+
+		ArrayList<ACScondition> toRet = new ArrayList<ACScondition>( kept.size() );
+		for( int i=0; i<n; i++ ) {
+			if( keep[i] ) toRet.add( in.get(i) );
+		}
+		return toRet;
+	}
+
+	// within
+	// Returns true if every IF and WHEN the other rule is under, this one
+	// is under too, so if this rule is reached, so is one made after it there
+	public boolean within( ACSrule outer ) {
+		if( outer.layers.size() > this.layers.size() ) return false;
+		for( int i=0; i<outer.layers.size(); i++ ) {
+			if( outer.layers.get(i) != this.layers.get(i) ) return false;
+		}
+		Unless u = this.unless;
+		while( u != outer.unless && u != null ) u = u.next;
+		return u == outer.unless;
+	}
+
+	// size
+	// Returns the number of rows this rule multiplies out to, before any simplification
+	public long size() {
+		if( this.bdd != null ) return this.bdd.pathCount( this.root );
+		long toRet = 1;
+		for( LinkedList<ACScondition> l : this.layers ) {
+			if( l.size() == 0 ) continue;
+			toRet *= l.size();
+			if( toRet < 0 ) return Long.MAX_VALUE;
+		}
+		return toRet;
 	}
 
 	// setSetValue
@@ -66,34 +222,61 @@ public class ACSrule {
 		this.lineNum = nn;
 	}
 
+	// getSequence
+	public int getSequence() {
+		return this.sequence;
+	}
+
+	// getSetValue
+	public String getSetValue() {
+		return this.setVal;
+	}
+
+	// getExit
+	public boolean getExit() {
+		return this.hasExit;
+	}
+
+	// getLineNumber
+	public int getLineNumber() {
+		return this.lineNum;
+	}
+
+	// toCSV
+	// Creates a string value with the CSV output of one row of this rule
+	// Order: SETVAL, &var values, sequence, EXIT(Y/N)
+	public String toCSV( ACScondition cc, List<String> varOrder ) {
+		StringBuilder toPrint = new StringBuilder();
+		toPrint.append( this.setVal );
+		toPrint.append(",");
+		toPrint.append(cc.toCSV(varOrder));
+		toPrint.append(this.sequence);
+		toPrint.append(",");
+		toPrint.append( this.hasExit ? "Y" : "N" );
+		toPrint.append(",");
+		toPrint.append(this.lineNum);
+		toPrint.append("\n");
+		return toPrint.toString();
+	}
+
 	// toCSV
 	// Creates a string value with the CSV output of the SET statement and conditions.
 	// Loops over the conditions and prints each one on a separate line
-	// Order: SETVAL, &var values, sequence, EXIT(Y/N)
-	public String toCSV(LinkedList<String> varOrder ) {
+	public String toCSV( List<String> varOrder ) {
 		StringBuilder toPrint = new StringBuilder();
-		String t = "N";
 		// Loop over all the conditions and print each one
-		for( ACScondition cc : this.conditions ) {
-			if( this.hasExit ) t = "Y"; else t = "N";
-			toPrint.append( this.setVal );
-			toPrint.append(",");
-			toPrint.append(cc.toCSV(varOrder));
-			toPrint.append(this.sequence);
-			toPrint.append(",");
-			toPrint.append(t);
-			toPrint.append(",");
-			toPrint.append(this.lineNum);
-			toPrint.append("\n");
+		Iterator<ACScondition> it = this.rows();
+		while( it.hasNext() ) {
+			toPrint.append( this.toCSV( it.next(), varOrder ) );
 		}
 		return toPrint.toString();
 	}
 
 	public ACSrule clone() {
-		ACSrule toRet = new ACSrule();
-		for( ACScondition toAdd : this.conditions ) {
-			toRet.addCondition( toAdd );
-		}
+		ACSrule toRet = new ACSrule( this.table );
+		toRet.addLayers( this.layers );
+		toRet.setRoot( this.bdd, this.root );
+		toRet.setUnless( this.unless );
 		toRet.setSequence(this.sequence);
 		toRet.setLineNumber(this.lineNum);
 		toRet.setExit(this.hasExit);
@@ -101,4 +284,19 @@ public class ACSrule {
 
 		return toRet;
 	}
+
+	// Unless
+	// The condition of one WHEN (conditions joined by OR), linked to the
+	// WHENs before it. Each WHEN in a SELECT adds one onto the chain of
+	// the WHEN before it, so the rules under a SELECT share their chains
+	// instead of each holding a list of every WHEN before them.
+	public static class Unless {
+		public final LinkedList<ACScondition> conditions;
+		public final Unless next;
+
+		public Unless( LinkedList<ACScondition> c, Unless n ) {
+			this.conditions = c;
+			this.next = n;
+		}
+	}
 }
@@ -0,0 +1,328 @@
+/*****************************
+ *
+ * CLASS:   ACSsimulate
+ * DATE :   10/16/2026
+ * Purpose: Runs a whole data set inventory through an ACS routine, to
+ *          see what a change to the routine would do before it goes in.
+ *          Works like ACSclassify, but is built for catalogs of tens of
+ *          millions of entries:
+ *            - the inventory is read once, through a large buffer, and
+ *              cut into chunks of lines
+ *            - the chunks are classified on a fork/join pool sized to
+ *              the number of CPUs, all sharing one ACSevaluator
+ *            - the output is written in input order as the chunks come
+ *              back, and only a few chunks per thread are held at once,
+ *              so memory doesn't grow with the inventory
+ *          Besides the class of every data set, the number of data sets
+ *          given each class is written to a counts file.
+ *
+ * Syntax:
+ *   - java ACSextract simulate acsfile inventory.csv <output> <options>
+ *
+ *   The inventory is in the same form as for classify: a header of
+ *   variables, then one data set per line. The output is the same too,
+ *   named inventory.sim.csv if not given. The counts go next to it, as
+ *   inventory.sim.counts.csv, with the columns Class,DataSets,Percent,
+ *   most used class first. Data sets no SET applies to have an empty
+ *   class.
+ *
+ *   Options:
+ *     threads=n  - data sets to classify at once. Defaults to one per CPU.
+ *     countsonly - write the counts, but not the class of every data set
+ *     dcollect   - the inventory is DCOLLECT output, not a CSV. Only the
+ *                  D records are used (see ACSdcollect). The output has
+ *                  the name, the value DCOLLECT has for the routine's own
+ *                  variable (&STORCLAS...) and the new class.
+ *   and the extraction options that shape the rules, as for classify.
+ *
+ *****************************/
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+public class ACSsimulate {
+
+	// Data set lines handed to a thread at a time
+	public static final int CHUNK = 4096;
+	// Size of the read and write buffers
+	public static final int BUFFER = 1 << 20;
+
+	protected ACSevaluator ev;
+	protected int threads;
+	protected boolean countsOnly;
+	// Number of data sets given each class. The empty class is for none.
+	protected HashMap<String,long[]> counts;
+	protected long total;
+
+	// One chunk of data sets, classified
+	protected static class Chunk {
+		StringBuilder out;
+		HashMap<String,long[]> counts = new HashMap<String,long[]>();
+		int n;
+
+		Chunk( int size, boolean countsOnly ) {
+			this.out = countsOnly ? null : new StringBuilder( size*128 );
+		}
+
+		// count
+		// Adds one data set to the count for its class
+		void count( ACSrule rule ) {
+			String cls = rule == null ? "" : ACSclassify.className( rule );
+			long[] n = this.counts.get( cls );
+			if( n == null ) this.counts.put( cls, n = new long[1] );
+			n[0]++;
+			this.n++;
+		}
+	}
+
+	// A finished future that tells the writer the input has run out
+	protected static final Future<Chunk> END = CompletableFuture.completedFuture( null );
+
+	// MAIN proc. Called from ACSextract when the first argument is "simulate"
+	public static void main( String[] argz ) {
+		if( argz.length < 2 ) {
+			ACSextract.help();
+			return;
+		}
+		String out = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean countsOnly = false;
+		boolean dcollect = false;
+		LinkedList<String> options = new LinkedList<String>();
+		ACSextract probe = new ACSextract();
+		for( int i=2; i<argz.length; i++ ) {
+			try {
+				if( argz[i].startsWith("threads=") ) threads = Integer.parseInt( argz[i].substring(8) );
+				else if( argz[i].equals("countsonly") ) countsOnly = true;
+				else if( argz[i].equals("dcollect") ) dcollect = true;
+				else if( probe.setOption( argz[i] ) ) options.add( argz[i] );
+				else if( i == 2 ) out = argz[i];
+				else System.out.println( "Unknown option: "+argz[i]+"... Moving on." );
+			} catch( NumberFormatException e ) {
+				System.out.println( "Bad option: "+argz[i]+"... Moving on." );
+			}
+		}
+		if( out == null ) out = ACSextract.defaultOutput( argz[1], ".sim.csv" );
+		String countFile = ACSextract.defaultOutput( out, ".counts.csv" );
+
+		try {
+			long start = System.currentTimeMillis();
+			ACSevaluator ev = ACSclassify.compile( argz[0], options.toArray( new String[0] ) );
+			long compiled = System.currentTimeMillis();
+			System.out.println( "Compiled "+ev.rules.length+" rules, "+ev.getRowCount()+" rows, into "+
+			                    ev.getNodeCount()+" nodes in "+(compiled-start)+" ms." );
+
+			ACSsimulate sim = new ACSsimulate( ev, threads, countsOnly );
+			if( dcollect ) {
+				// Say which of the routine's variables DCOLLECT can't give
+				LinkedList<String> missing = new LinkedList<String>();
+				for( String v : ev.getVariables() ) {
+					String base = v.indexOf('(') > 0 ? v.substring( 0, v.indexOf('(') ) : v;
+					if( !ACSdcollect.VARIABLES.contains( base ) ) missing.add( v );
+				}
+				if( missing.size() > 0 ) System.out.println( "Not in DCOLLECT, so always '': "+String.join( ", ", missing ) );
+				sim.runDcollect( argz[1], countsOnly ? null : out );
+			} else {
+				sim.run( argz[1], countsOnly ? null : out );
+			}
+			sim.writeCounts( countFile );
+			long ms = System.currentTimeMillis()-compiled;
+			System.out.println( "Simulated "+sim.total+" data sets using "+sim.threads+" threads in "+ms+" ms"+
+			                    ( ms > 0 ? ", "+(sim.total*1000/ms)+" a second." : "." ) );
+			if( !countsOnly ) System.out.println( "Classes in "+out );
+			System.out.println( "Counts in "+countFile );
+			System.out.println( "Done." );
+		} catch( ACSexception e ) {
+			// ACSextract has already reported it
+			System.exit(8);
+		} catch( IOException e ) {
+			System.out.println( "Error: "+e.getMessage() );
+			System.exit(4);
+		}
+	}
+
+	// Constructor
+	public ACSsimulate( ACSevaluator ev, int threads, boolean countsOnly ) {
+		this.ev = ev;
+		this.threads = Math.max( threads, 1 );
+		this.countsOnly = countsOnly;
+		this.counts = new HashMap<String,long[]>();
+	}
+
+	// run
+	// Classifies every data set in the input, writing each with its class
+	// to the output if there is one, and adds up the counts
+	public void run( String inFile, String outFile ) throws IOException {
+		try( BufferedReader r = new BufferedReader( new InputStreamReader( new FileInputStream( inFile ) ), BUFFER );
+		     Writer w = outFile == null ? null : new BufferedWriter( new FileWriter( outFile ), BUFFER ) ) {
+			String header = r.readLine();
+			if( header == null ) throw new IOException( inFile+" is empty. It needs a header of variables." );
+			String[] vars = ACSclassify.variables( header );
+			if( w != null ) {
+				w.write( header );
+				w.write( ACSclassify.HEADER );
+			}
+
+			// Chunks of lines
+			this.pipeline( w, () -> {
+				ArrayList<String> lines = new ArrayList<String>( CHUNK );
+				String line;
+				while( lines.size() < CHUNK && (line = r.readLine()) != null ) {
+					if( line.trim().length() > 0 ) lines.add( line );
+				}
+				return lines.size() == 0 ? null : () -> this.classify( vars, lines );
+			} );
+		}
+	}
+
+	// runDcollect
+	// The same, for a DCOLLECT file. Each data set is written as its name,
+	// the value of the routine's own variable that DCOLLECT has now, and
+	// the new class.
+	public void runDcollect( String inFile, String outFile ) throws IOException {
+		try( ACSdcollect dc = new ACSdcollect( inFile );
+		     Writer w = outFile == null ? null : new BufferedWriter( new FileWriter( outFile ), BUFFER ) ) {
+			if( w != null ) {
+				w.write( "&DSN,"+this.ev.getProcVariable() );
+				w.write( ACSclassify.HEADER );
+			}
+
+			// Runs of records, straight from the mapped file
+			this.pipeline( w, () -> {
+				ACSdcollect.Run run = dc.next( CHUNK );
+				return run == null ? null : () -> this.classify( run );
+			} );
+			if( dc.getSkipped() > 0 ) System.out.println( "Skipped "+dc.getSkipped()+" DCOLLECT records that aren't data sets." );
+		}
+	}
+
+	// Cuts the input into chunks of work. Returns null at the end.
+	protected interface Source {
+		public Callable<Chunk> next() throws IOException;
+	}
+
+	// pipeline
+	// Hands each chunk from the source to the pool, and writes them as they come back
+	protected void pipeline( Writer w, Source src ) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool( this.threads );
+		ArrayBlockingQueue<Future<Chunk>> queue = new ArrayBlockingQueue<Future<Chunk>>( this.threads*4 );
+		Throwable[] failed = new Throwable[1];
+		Thread reader = null;
+		try {
+			// The reader hands the chunks to the pool. The queue holds them
+			// in input order, and blocks when the writer is behind.
+			reader = new Thread( () -> {
+				try {
+					Callable<Chunk> task;
+					while( (task = src.next()) != null ) queue.put( pool.submit( task ) );
+				} catch( RejectedExecutionException | InterruptedException e ) {
+					// The writer has stopped and shut the pool down,
+					// so nobody is waiting for the rest
+					return;
+				} catch( Throwable e ) {
+					// Anything else goes back to the writer, so a bad input
+					// can't end the run early as though it were complete
+					failed[0] = e;
+				}
+				try {
+					queue.put( END );
+				} catch( InterruptedException e ) {
+					// Only the writer waits on the queue, and it has stopped
+				}
+			}, "ACSreader" );
+			reader.setDaemon( true );
+			reader.start();
+
+			// This thread writes the chunks as they come back, in order
+			while( true ) {
+				Chunk c = queue.take().get();
+				if( c == null ) break;
+				if( w != null ) w.append( c.out );
+				this.total += c.n;
+				for( Map.Entry<String,long[]> e : c.counts.entrySet() ) {
+					this.counts.computeIfAbsent( e.getKey(), k -> new long[1] )[0] += e.getValue()[0];
+				}
+			}
+			reader.join();
+			if( failed[0] instanceof IOException ) throw (IOException)failed[0];
+			if( failed[0] instanceof Error ) throw (Error)failed[0];
+			if( failed[0] != null ) throw new IOException( "Reading the input failed: "+failed[0], failed[0] );
+		} catch( InterruptedException | ExecutionException e ) {
+			throw new IOException( "Simulation interrupted.", e );
+		} finally {
+			pool.shutdownNow();
+			// If the writer stopped early, the reader may be waiting on a full queue
+			if( reader != null ) reader.interrupt();
+		}
+	}
+
+	// classify
+	// Classifies one chunk of lines. Runs on the pool.
+	protected Chunk classify( String[] vars, ArrayList<String> lines ) {
+		Chunk c = new Chunk( lines.size(), this.countsOnly );
+		HashMap<String,String> attrs = new HashMap<String,String>();
+		for( String line : lines ) {
+			ACSrule rule = ACSclassify.classifyLine( this.ev, vars, line, attrs );
+			if( c.out != null ) c.out.append( line ).append( ACSclassify.columns( rule ) );
+			c.count( rule );
+		}
+		return c;
+	}
+
+	// classify
+	// Classifies one run of DCOLLECT records. Runs on the pool.
+	protected Chunk classify( ACSdcollect.Run run ) {
+		Chunk c = new Chunk( run.count, this.countsOnly );
+		ACSdcollect.Record rec = new ACSdcollect.Record();
+		for( int i=0; i<run.count; i++ ) {
+			rec.set( run.buf, run.offsets[i] );
+			ACSrule rule = this.ev.matchRule( rec );
+			if( c.out != null ) {
+				String now = rec.get( this.ev.getProcVariable() );
+				c.out.append( ACSclassify.quote( rec.get( "&DSN" ) ) ).append( ',' ).append( now == null ? "" : ACSclassify.quote( now ) );
+				c.out.append( ACSclassify.columns( rule ) );
+			}
+			c.count( rule );
+		}
+		return c;
+	}
+
+	// writeCounts
+	// Writes the number of data sets given each class, most used first
+	public void writeCounts( String outFile ) throws IOException {
+		ArrayList<Map.Entry<String,long[]>> sorted = new ArrayList<Map.Entry<String,long[]>>( this.counts.entrySet() );
+		Collections.sort( sorted, ( a, b ) -> a.getValue()[0] != b.getValue()[0] ? Long.compare( b.getValue()[0], a.getValue()[0] ) :
+		                                      a.getKey().compareTo( b.getKey() ) );
+		try( BufferedWriter w = new BufferedWriter( new FileWriter( outFile ) ) ) {
+			w.write( "Class,DataSets,Percent\n" );
+			for( Map.Entry<String,long[]> e : sorted ) {
+				long n = e.getValue()[0];
+				w.write( ACSclassify.quote( e.getKey() )+","+n+","+String.format( Locale.ROOT, "%.2f", this.total == 0 ? 0.0 : n*100.0/this.total )+"\n" );
+			}
+		}
+	}
+
+	// getCounts
+	// Returns the number of data sets given each class. The empty class is for none.
+	public Map<String,Long> getCounts() {
+		HashMap<String,Long> toRet = new HashMap<String,Long>();
+		for( Map.Entry<String,long[]> e : this.counts.entrySet() ) toRet.put( e.getKey(), e.getValue()[0] );
+		return toRet;
+	}
+
+	// getTotal
+	public long getTotal() {
+		return this.total;
+	}
+}
@@ -0,0 +1,36 @@
+/*****************************
+ *
+ * CLASS:   ACSsink
+ * DATE :   10/16/2026
+ * Purpose: Where the output of an extraction goes.
+ *          ACSextract hands over the header, each row of each rule and
+ *          the FILTLISTs, in that order, and the sink decides how to
+ *          write them. See ACScsvSink and ACSjsonSink for the formats,
+ *          and ACSasyncSink for writing on a separate thread.
+ *
+ *****************************/
+import java.io.IOException;
+import java.util.List;
+
+public interface ACSsink {
+
+	// header
+	// Called once, before any rows. The variables are the columns, in order.
+	public void header( String procName, List<String> variables ) throws IOException;
+
+	// row
+	// One row of a rule
+	public void row( ACSrule rule, ACScondition row ) throws IOException;
+
+	// endRows
+	// Called after the last row, before any FILTLISTs
+	public void endRows() throws IOException;
+
+	// filtlist
+	// One FILTLIST, with its INCLUDE and EXCLUDE lists as written in the ACS
+	public void filtlist( String name, String include, String exclude ) throws IOException;
+
+	// close
+	// Finishes the output and closes it
+	public void close() throws IOException;
+}
@@ -0,0 +1,146 @@
+/*****************************
+ *
+ * CLASS:   ACSstats
+ * DATE :   10/16/2026
+ * Purpose: Counters and phase timers for one extraction.
+ *          Always collected, since each is just an add or a
+ *          System.nanoTime() call, and written as a JSON summary
+ *          next to the output when the run finishes.
+ *
+ *          Phases:
+ *            tokenize - reading and folding the input
+ *            parse    - reading statements and building rules
+ *            flatten  - multiplying rules out into rows
+ *            render   - turning rows into CSV or JSON text
+ *            write    - writing the text out
+ *          Render and write happen on the writer thread, so they can
+ *          overlap with parse and flatten, and the phases can add up
+ *          to more than the total.
+ *
+ *****************************/
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+public class ACSstats {
+
+	// Tokens and statements
+	public long tokens;
+	public long pushbacks;
+	public int maxConditionDepth;   // IF / SELECT nesting
+	public int maxDoDepth;
+
+	// ANDconditions and deMorgan: calls, total list sizes in and out, biggest result
+	public long andCalls, andIn, andOut;
+	public int andMaxOut;
+	public long deMorganCalls, deMorganIn, deMorganOut;
+	public int deMorganMaxOut;
+
+	// Rows, and the SET that wrote the most
+	public long rows;
+	public long maxRuleRows = -1;
+	public int maxRuleSeq, maxRuleLine;
+
+	// Phase times, in nanoseconds
+	public long tokenizeNanos, parseNanos, flattenNanos, renderNanos, writeNanos;
+	protected long startNanos;
+
+	// Constructor. The total time starts now.
+	public ACSstats() {
+		this.startNanos = System.nanoTime();
+	}
+
+	// and
+	// Records one ANDconditions call
+	public void and( int in1, int in2, int out ) {
+		this.andCalls++;
+		this.andIn += in1+in2;
+		this.andOut += out;
+		if( out > this.andMaxOut ) this.andMaxOut = out;
+	}
+
+	// deMorgan
+	// Records one deMorgan call
+	public void deMorgan( int in, int out ) {
+		this.deMorganCalls++;
+		this.deMorganIn += in;
+		this.deMorganOut += out;
+		if( out > this.deMorganMaxOut ) this.deMorganMaxOut = out;
+	}
+
+	// depth
+	// Records the current IF / SELECT and DO nesting
+	public void depth( int conditions, int dos ) {
+		if( conditions > this.maxConditionDepth ) this.maxConditionDepth = conditions;
+		if( dos > this.maxDoDepth ) this.maxDoDepth = dos;
+	}
+
+	// rule
+	// Records the rows written for one SET
+	public void rule( ACSrule r, long n ) {
+		this.rows += n;
+		if( n > this.maxRuleRows ) {
+			this.maxRuleRows = n;
+			this.maxRuleSeq = r.getSequence();
+			this.maxRuleLine = r.getLineNumber();
+		}
+	}
+
+	// statsFile
+	// Returns the name of the summary for an output file: the same name with .stats.json
+	public static String statsFile( String outFile ) {
+		int dot = outFile.lastIndexOf('.');
+		int slash = Math.max( outFile.lastIndexOf('/'), outFile.lastIndexOf('\\') );
+		return ( dot > slash+1 ? outFile.substring( 0, dot ) : outFile )+".stats.json";
+	}
+
+	// write
+	// Writes the JSON summary
+	public void write( String file, ACSextract ex, String input, String output ) throws IOException {
+		long total = System.nanoTime()-this.startNanos;
+		StringBuilder s = new StringBuilder();
+		s.append( "{\n" );
+		s.append( "  \"input\": " ); ACSjsonSink.quote( s, input ); s.append( ",\n" );
+		s.append( "  \"output\": " ); ACSjsonSink.quote( s, output ); s.append( ",\n" );
+		s.append( "  \"proc\": " ); ACSjsonSink.quote( s, ex.getProcName() ); s.append( ",\n" );
+		s.append( "  \"engine\": \"" ).append( ex.bdd != null ? "bdd" : "list" ).append( "\",\n" );
+		s.append( "  \"counts\": {" );
+		s.append( "\"tokens\": " ).append( this.tokens );
+		s.append( ", \"pushbacks\": " ).append( this.pushbacks );
+		s.append( ", \"maxConditionDepth\": " ).append( this.maxConditionDepth );
+		s.append( ", \"maxDoDepth\": " ).append( this.maxDoDepth );
+		s.append( ", \"pairs\": " ).append( ex.pairTable.size() );
+		s.append( ", \"variables\": " ).append( ex.variableList.size() );
+		s.append( ", \"rules\": " ).append( ex.getRuleCount() );
+		s.append( ", \"rows\": " ).append( this.rows );
+		s.append( ", \"truncated\": " ).append( ex.getTruncatedCount() );
+		if( ex.bdd != null ) s.append( ", \"bddNodes\": " ).append( ex.bdd.size() );
+		s.append( "},\n" );
+		s.append( "  \"ANDconditions\": {\"calls\": " ).append( this.andCalls ).append( ", \"in\": " ).append( this.andIn )
+		 .append( ", \"out\": " ).append( this.andOut ).append( ", \"maxOut\": " ).append( this.andMaxOut ).append( "},\n" );
+		s.append( "  \"deMorgan\": {\"calls\": " ).append( this.deMorganCalls ).append( ", \"in\": " ).append( this.deMorganIn )
+		 .append( ", \"out\": " ).append( this.deMorganOut ).append( ", \"maxOut\": " ).append( this.deMorganMaxOut ).append( "},\n" );
+		s.append( "  \"largestRule\": {\"seq\": " ).append( this.maxRuleSeq ).append( ", \"line\": " ).append( this.maxRuleLine )
+		 .append( ", \"rows\": " ).append( Math.max( this.maxRuleRows, 0 ) ).append( "},\n" );
+		s.append( "  \"millis\": {" );
+		s.append( "\"tokenize\": " ).append( millis( this.tokenizeNanos ) );
+		s.append( ", \"parse\": " ).append( millis( this.parseNanos ) );
+		s.append( ", \"flatten\": " ).append( millis( this.flattenNanos ) );
+		s.append( ", \"render\": " ).append( millis( this.renderNanos ) );
+		s.append( ", \"write\": " ).append( millis( this.writeNanos ) );
+		s.append( ", \"total\": " ).append( millis( total ) );
+		s.append( "}\n" );
+		s.append( "}\n" );
+
+		try( BufferedWriter w = new BufferedWriter( new FileWriter( file ) ) ) {
+			w.write( s.toString() );
+		}
+	}
+
+	// millis
+	// Nanoseconds as milliseconds, to the microsecond
+	protected static String millis( long nanos ) {
+		return String.format( Locale.ROOT, "%.3f", nanos/1e6 );
+	}
+}
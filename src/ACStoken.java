@@ -0,0 +1,62 @@
+/*****************************
+ *
+ * CLASS:   ACStoken
+ * DATE :   10/16/2026
+ * Purpose: The kinds of token the ACS lexer hands back.
+ *          Each token is classified once, when it is read, so the
+ *          parser can switch on the kind instead of comparing Strings.
+ *          Comparison tokens also carry an ACSoperator.
+ *
+ *****************************/
+public enum ACStoken {
+
+	// Statement keywords
+	PROC( true ), FILTLIST( true ), SET( true ), DO( true ), IF( true ),
+	SELECT( true ), EXIT( true ), WRITE( true ), END( true ),
+
+	// Keywords that only show up as part of a statement
+	THEN, ELSE, WHEN, OTHERWISE, INCLUDE, EXCLUDE, CODE,
+
+	// Logic: AND or &&, OR or |, and the ¬ or ^ that starts a two character operator
+	AND, OR, NOT,
+
+	// Punctuation
+	LPAREN, RPAREN, COMMA,
+
+	// Comparison operators, such as EQ, =, >= or NL
+	COMPARISON,
+
+	// Routine names: STORCLAS, STORGRP, MGMTCLAS, DATACLAS
+	ROUTINE,
+	// Read/write variables: &STORCLAS, &STORGRP, &MGMTCLAS, &DATACLAS
+	ROUTINE_VARIABLE,
+	// Any other &VARIABLE, including FILTLIST names
+	VARIABLE,
+
+	// Everything else
+	WORD, QUOTED, OTHER, EOF;
+
+	// Whether this starts a statement
+	protected final boolean keyword;
+
+	// Constructors
+	ACStoken() {
+		this( false );
+	}
+
+	ACStoken( boolean kw ) {
+		this.keyword = kw;
+	}
+
+	// isKeyword
+	// Returns true if this kind of token starts a statement
+	public boolean isKeyword() {
+		return this.keyword;
+	}
+
+	// isVariable
+	// Returns true for any &VARIABLE
+	public boolean isVariable() {
+		return this == VARIABLE || this == ROUTINE_VARIABLE;
+	}
+}